@@ -0,0 +1,181 @@
+package com.tapwithus.sdk;
+
+import androidx.annotation.NonNull;
+
+import com.tapwithus.sdk.bluetooth.GattException;
+import com.tapwithus.sdk.bluetooth.GattFuture;
+import com.tapwithus.sdk.bluetooth.TapBluetoothManager;
+import com.tapwithus.sdk.tap.TapCache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Queues every read and subscription a newly connected Tap needs at once, instead of one at a time, and lets the GATT
+ * queue run them back to back. Subscriptions that depend on the hardware and firmware versions are queued as soon as
+ * both versions are known.
+ * <p>
+ * Each {@link TapCache.DataKey} is a bit. Per Tap the planner keeps a mask of the keys already requested, the completed
+ * mask is taken from the cache. A firmware version restored from the {@link com.tapwithus.sdk.tap.TapCacheStore} is read
+ * again before it gates the subscriptions, as the subscriptions would be made against a stale service table if the
+ * firmware changed.
+ * <p>
+ * A key whose read or subscription fails is no longer counted as requested. It is requested again right away once,
+ * after that on the next plan.
+ */
+class BootstrapPlanner {
+
+    private static final String[] KEYS = new String[] {
+            TapCache.DataKey.Name,
+            TapCache.DataKey.Battery,
+            TapCache.DataKey.SerialNumber,
+            TapCache.DataKey.HwVer,
+            TapCache.DataKey.FwVer,
+            TapCache.DataKey.BootloaderVer,
+            TapCache.DataKey.TapNotification,
+            TapCache.DataKey.MouseNotification,
+            TapCache.DataKey.AirMouseNotification,
+            TapCache.DataKey.RawSensorNotification,
+            TapCache.DataKey.DataRequestNotification,
+    };
+
+    private static final int FW_VER = bitOf(TapCache.DataKey.FwVer);
+
+    // Keys that depend on the hardware and firmware versions
+    private static final int VERSION_GATED = bitOf(TapCache.DataKey.MouseNotification)
+            | bitOf(TapCache.DataKey.AirMouseNotification)
+            | bitOf(TapCache.DataKey.RawSensorNotification)
+            | bitOf(TapCache.DataKey.DataRequestNotification);
+    // Keys that are read again on connection even when restored from the store
+    private static final int VERIFIED_ON_CONNECTION = FW_VER;
+    private static final int SUBSCRIPTIONS = bitOf(TapCache.DataKey.TapNotification) | VERSION_GATED;
+
+    private final TapBluetoothManager tapBluetoothManager;
+    private final TapCache cache;
+    private final Map<String, Integer> requested = new ConcurrentHashMap<>();
+    // Keys requested again after a failure
+    private final Map<String, Integer> rerequested = new ConcurrentHashMap<>();
+
+    BootstrapPlanner(@NonNull TapBluetoothManager tapBluetoothManager, @NonNull TapCache cache) {
+        this.tapBluetoothManager = tapBluetoothManager;
+        this.cache = cache;
+    }
+
+    /**
+     * Requests every needed key that wasn't requested yet.
+     * @return true if nothing is missing anymore
+     */
+    synchronized boolean plan(@NonNull String tapIdentifier) {
+        boolean versionsKnown = cache.has(tapIdentifier, TapCache.DataKey.HwVer) && cache.has(tapIdentifier, TapCache.DataKey.FwVer)
+                && !cache.isRestored(tapIdentifier, TapCache.DataKey.FwVer);
+        int completed = getCompleted(tapIdentifier);
+
+        int needed = 0;
+        for (int i = 0; i < KEYS.length; i++) {
+            int bit = 1 << i;
+            if ((bit & VERSION_GATED) != 0 && !versionsKnown) {
+                continue;
+            }
+            if (cache.shouldHave(tapIdentifier, KEYS[i])) {
+                needed |= bit;
+            }
+        }
+
+        Integer requestedMask = requested.get(tapIdentifier);
+        int alreadyRequested = requestedMask == null ? 0 : requestedMask;
+        int toRequest = needed & ~completed & ~alreadyRequested;
+        requested.put(tapIdentifier, alreadyRequested | toRequest);
+
+        for (int i = 0; i < KEYS.length; i++) {
+            final int bit = 1 << i;
+            if ((toRequest & bit) != 0) {
+                request(tapIdentifier, KEYS[i]).addCallback((v, e) -> {
+                    if (e instanceof GattException && shouldRequestAgain(bit, ((GattException) e).getReason())) {
+                        onRequestFailed(tapIdentifier, bit);
+                    }
+                });
+            }
+        }
+
+        return versionsKnown && (needed & ~completed) == 0;
+    }
+
+    /**
+     * Forgets what was requested, e.g. when the Tap disconnects, so the next connection plans from scratch.
+     */
+    void reset(@NonNull String tapIdentifier) {
+        requested.remove(tapIdentifier);
+        rerequested.remove(tapIdentifier);
+    }
+
+    void clear() {
+        requested.clear();
+        rerequested.clear();
+    }
+
+    private synchronized void onRequestFailed(@NonNull String tapIdentifier, int bit) {
+        Integer requestedMask = requested.get(tapIdentifier);
+        if (requestedMask == null || (requestedMask & bit) == 0) {
+            return;
+        }
+        requested.put(tapIdentifier, requestedMask & ~bit);
+
+        Integer rerequestedMask = rerequested.get(tapIdentifier);
+        int alreadyRerequested = rerequestedMask == null ? 0 : rerequestedMask;
+        if ((alreadyRerequested & bit) == 0) {
+            rerequested.put(tapIdentifier, alreadyRerequested | bit);
+            plan(tapIdentifier);
+        }
+    }
+
+    /**
+     * A missing characteristic is reported as read, and a disconnected Tap is planned from scratch on reconnection. A
+     * subscription to a missing characteristic is requested again, as the service table it was looked up in may have
+     * been stale, and is refreshed by then.
+     */
+    private static boolean shouldRequestAgain(int bit, @NonNull GattException.Reason reason) {
+        return reason == GattException.Reason.FAILED || reason == GattException.Reason.TIMEOUT
+                || (reason == GattException.Reason.NOT_FOUND && (bit & SUBSCRIPTIONS) != 0);
+    }
+
+    private static int bitOf(@NonNull String dataKey) {
+        for (int i = 0; i < KEYS.length; i++) {
+            if (KEYS[i].equals(dataKey)) {
+                return 1 << i;
+            }
+        }
+        throw new IllegalArgumentException(dataKey);
+    }
+
+    private int getCompleted(@NonNull String tapIdentifier) {
+        int completed = 0;
+        for (int i = 0; i < KEYS.length; i++) {
+            int bit = 1 << i;
+            if (!cache.has(tapIdentifier, KEYS[i])) {
+                continue;
+            }
+            if ((bit & VERIFIED_ON_CONNECTION) != 0 && cache.isRestored(tapIdentifier, KEYS[i])) {
+                continue;
+            }
+            completed |= bit;
+        }
+        return completed;
+    }
+
+    private @NonNull GattFuture<?> request(@NonNull String tapIdentifier, @NonNull String dataKey) {
+        switch (dataKey) {
+            case TapCache.DataKey.Name: return tapBluetoothManager.readNameAsync(tapIdentifier);
+            case TapCache.DataKey.Battery: return tapBluetoothManager.readBatteryAsync(tapIdentifier);
+            case TapCache.DataKey.SerialNumber: return tapBluetoothManager.readSerialNumberAsync(tapIdentifier);
+            case TapCache.DataKey.HwVer: return tapBluetoothManager.readHwVerAsync(tapIdentifier);
+            case TapCache.DataKey.FwVer: return tapBluetoothManager.readFwVerAsync(tapIdentifier);
+            case TapCache.DataKey.BootloaderVer: return tapBluetoothManager.readBootloaderVerAsync(tapIdentifier);
+            case TapCache.DataKey.TapNotification: return tapBluetoothManager.setupTapNotificationAsync(tapIdentifier);
+            case TapCache.DataKey.MouseNotification: return tapBluetoothManager.setupMouseNotificationAsync(tapIdentifier);
+            case TapCache.DataKey.AirMouseNotification: return tapBluetoothManager.setupAirMouseNotificationAsync(tapIdentifier);
+            case TapCache.DataKey.RawSensorNotification: return tapBluetoothManager.setupRawSensorNotificationAsync(tapIdentifier);
+            case TapCache.DataKey.DataRequestNotification: return tapBluetoothManager.setupDataNotificationAsync(tapIdentifier);
+        }
+        throw new IllegalArgumentException(dataKey);
+    }
+}
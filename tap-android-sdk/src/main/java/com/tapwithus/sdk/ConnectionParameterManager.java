@@ -0,0 +1,200 @@
+package com.tapwithus.sdk;
+
+import android.bluetooth.BluetoothGatt;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.tapwithus.sdk.bluetooth.TapBluetoothManager;
+import com.tapwithus.sdk.mode.TapInputMode;
+import com.tapwithus.sdk.mode.TapXRState;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Retunes the connection priority of every Tap according to what it is doing.
+ * <p>
+ * A Tap goes to {@link BluetoothGatt#CONNECTION_PRIORITY_HIGH} as soon as a streaming mode is started (raw sensor or
+ * air mouse) or its notification rate reaches {@link #HIGH_ENTER_RATE}. It stays there while the rate is above
+ * {@link #HIGH_EXIT_RATE}, and only drops back to {@link BluetoothGatt#CONNECTION_PRIORITY_BALANCED} once it was below
+ * that for {@link #HIGH_HOLD_TIME} - so short pauses in the data don't make the connection flap.
+ * While the SDK is paused all Taps are kept at {@link BluetoothGatt#CONNECTION_PRIORITY_LOW_POWER}.
+ */
+public class ConnectionParameterManager {
+
+    /** Notifications per second that raise the connection priority. */
+    public static final int HIGH_ENTER_RATE = 20;
+    /** Notifications per second below which a high priority connection starts to cool down. */
+    public static final int HIGH_EXIT_RATE = 5;
+    public static final long HIGH_HOLD_TIME = 5000;
+
+    private static final long EVALUATION_INTERVAL = 1000;
+
+    private final TapBluetoothManager tapBluetoothManager;
+    private final Handler handler;
+    private final Map<String, Link> links = new ConcurrentHashMap<>();
+    private volatile boolean isPaused = false;
+    private boolean isEvaluating = false;
+
+    private final Runnable evaluationRunnable = new Runnable() {
+        @Override
+        public void run() {
+            for (Map.Entry<String, Link> entry : links.entrySet()) {
+                evaluate(entry.getKey(), entry.getValue());
+            }
+            handler.postDelayed(this, EVALUATION_INTERVAL);
+        }
+    };
+
+    public ConnectionParameterManager(@NonNull TapBluetoothManager tapBluetoothManager) {
+        this.tapBluetoothManager = tapBluetoothManager;
+        this.handler = new Handler(tapBluetoothManager.getEventLoop().getLooper());
+    }
+
+    /**
+     * Counts a mouse, air mouse or raw sensor notification. Called for every notification, so it only bumps a counter.
+     * Callers that know the Tap's {@link Link} count on it directly instead, see {@link #getLink(String)}.
+     */
+    public void onDataReceived(@NonNull String tapIdentifier) {
+        Link link = links.get(tapIdentifier);
+        if (link != null) {
+            link.onData();
+        }
+    }
+
+    /**
+     * @return the link of a connected Tap, to count its notifications on without looking it up by identifier, or null
+     * if the Tap isn't connected
+     */
+    @Nullable Link getLink(@NonNull String tapIdentifier) {
+        return links.get(tapIdentifier);
+    }
+
+    public void onTapConnected(@NonNull String tapIdentifier) {
+        if (!links.containsKey(tapIdentifier)) {
+            links.put(tapIdentifier, new Link());
+        }
+        startEvaluating();
+    }
+
+    public void onTapDisconnected(@NonNull String tapIdentifier) {
+        links.remove(tapIdentifier);
+        if (links.isEmpty()) {
+            stopEvaluating();
+        }
+    }
+
+    public void onModeChanged(@NonNull String tapIdentifier, @NonNull TapInputMode mode) {
+        Link link = links.get(tapIdentifier);
+        if (link != null) {
+            link.isRawSensorMode = mode.type == TapInputMode.RAW_SENSOR;
+            link.setStreaming(link.isRawSensorMode || link.isAirMouseState, SystemClock.elapsedRealtime());
+            evaluate(tapIdentifier, link);
+        }
+    }
+
+    public void onXRStateChanged(@NonNull String tapIdentifier, @NonNull TapXRState state) {
+        Link link = links.get(tapIdentifier);
+        if (link != null) {
+            link.isAirMouseState = state.type == TapXRState.AIR_MOUSE;
+            link.setStreaming(link.isRawSensorMode || link.isAirMouseState, SystemClock.elapsedRealtime());
+            evaluate(tapIdentifier, link);
+        }
+    }
+
+    /**
+     * @param isAirMouse whether the Tap reports that it is in air mouse state
+     */
+    public void onAirMouseStateChanged(@NonNull String tapIdentifier, boolean isAirMouse) {
+        Link link = links.get(tapIdentifier);
+        if (link != null) {
+            link.isAirMouseState = isAirMouse;
+            link.setStreaming(link.isRawSensorMode || link.isAirMouseState, SystemClock.elapsedRealtime());
+            evaluate(tapIdentifier, link);
+        }
+    }
+
+    public void setPaused(boolean paused) {
+        isPaused = paused;
+        for (Map.Entry<String, Link> entry : links.entrySet()) {
+            evaluate(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void clear() {
+        links.clear();
+        stopEvaluating();
+    }
+
+    private synchronized void startEvaluating() {
+        if (isEvaluating) {
+            return;
+        }
+        isEvaluating = true;
+        handler.postDelayed(evaluationRunnable, EVALUATION_INTERVAL);
+    }
+
+    private synchronized void stopEvaluating() {
+        isEvaluating = false;
+        handler.removeCallbacks(evaluationRunnable);
+    }
+
+    private synchronized void evaluate(@NonNull String tapIdentifier, @NonNull Link link) {
+        int priority = link.nextPriority(isPaused, SystemClock.elapsedRealtime());
+        if (priority != link.priority) {
+            link.priority = priority;
+            tapBluetoothManager.requestConnectionPriority(tapIdentifier, priority);
+        }
+    }
+
+    static class Link {
+
+        private int priority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+        private boolean isRawSensorMode = false;
+        private boolean isAirMouseState = false;
+        private boolean isStreaming = false;
+
+        private int count = 0;
+        private int rate = 0;
+        private long windowStart = SystemClock.elapsedRealtime();
+        private long lastActivity = Long.MIN_VALUE / 2;
+
+        synchronized void onData() {
+            count++;
+        }
+
+        /**
+         * Entering a streaming mode raises the priority right away, before the data starts flowing.
+         */
+        synchronized void setStreaming(boolean streaming, long now) {
+            if (streaming && !isStreaming) {
+                lastActivity = now;
+            }
+            isStreaming = streaming;
+        }
+
+        synchronized int nextPriority(boolean isPaused, long now) {
+            long elapsed = now - windowStart;
+            if (elapsed >= EVALUATION_INTERVAL) {
+                rate = (int) (count * 1000L / elapsed);
+                count = 0;
+                windowStart = now;
+            }
+
+            if (isPaused) {
+                return BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER;
+            }
+
+            if (rate >= HIGH_ENTER_RATE || (priority == BluetoothGatt.CONNECTION_PRIORITY_HIGH && rate >= HIGH_EXIT_RATE)) {
+                lastActivity = now;
+            }
+            if (now - lastActivity < HIGH_HOLD_TIME) {
+                return BluetoothGatt.CONNECTION_PRIORITY_HIGH;
+            }
+            return BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+        }
+    }
+}
@@ -29,6 +29,20 @@ public class ListenerManager<ListenerType> {
         return new ArrayList<>(listeners);
     }
 
+    public int size() {
+        return listeners.size();
+    }
+
+    public int countListenersOfType(@NonNull Class<?> type) {
+        int count = 0;
+        for (int i = 0; i < listeners.size(); i++) {
+            if (type.isInstance(listeners.get(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     public void removeAllListeners() {
         listeners.clear();
     }
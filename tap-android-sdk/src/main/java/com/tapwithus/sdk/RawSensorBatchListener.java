@@ -0,0 +1,19 @@
+package com.tapwithus.sdk;
+
+import androidx.annotation.NonNull;
+
+import com.tapwithus.sdk.mode.RawSensorBatch;
+
+/**
+ * Optional interface for a {@link TapListener} that wants raw sensor data once per notification, as a
+ * {@link RawSensorBatch}, instead of one {@link TapListener#onRawSensorInputReceived} call per sample.
+ * Listeners implementing it don't get {@link TapListener#onRawSensorInputReceived} calls.
+ */
+public interface RawSensorBatchListener {
+
+    /**
+     * The batch is reused for the next raw sensor notification of the same Tap, so it is only valid during this
+     * callback. Use {@link RawSensorBatch#copy()} to keep it.
+     */
+    void onRawSensorBatchReceived(@NonNull String tapIdentifier, @NonNull RawSensorBatch batch);
+}
@@ -0,0 +1,28 @@
+package com.tapwithus.sdk;
+
+import androidx.annotation.NonNull;
+
+import com.tapwithus.sdk.airmouse.AirMousePacket;
+import com.tapwithus.sdk.mouse.MousePacket;
+
+/**
+ * Optional interface for a {@link TapListener} that wants the input of a Tap by its handle instead of by its
+ * identifier, see {@link TapSdk#getTapHandle(String)}. Listeners implementing it don't get the matching
+ * {@link TapListener} calls.
+ */
+public interface TapHandleListener {
+    void onTapInputReceived(int tapHandle, int data, int repeatData);
+    void onTapShiftSwitchReceived(int tapHandle, int data);
+
+    /**
+     * The packet is reused for the next mouse notification of the same Tap, so it is only valid during this
+     * callback. Use {@link MousePacket#copy()} to keep it.
+     */
+    void onMouseInputReceived(int tapHandle, @NonNull MousePacket data);
+
+    /**
+     * The packet is reused for the next air mouse notification of the same Tap, so it is only valid during this
+     * callback. Use {@link AirMousePacket#copy()} to keep it.
+     */
+    void onAirMouseInputReceived(int tapHandle, @NonNull AirMousePacket data);
+}
@@ -15,8 +15,19 @@ public interface TapListener {
     void onTapChanged(@NonNull String tapIdentifier);
     void onTapInputReceived(@NonNull String tapIdentifier, int data, int repeatData);
     void onTapShiftSwitchReceived(@NonNull String tapIdentifier, int data);
+
+    /**
+     * The packet is reused for the next mouse notification of the same Tap, so it is only valid during this
+     * callback. Use {@link MousePacket#copy()} to keep it.
+     */
     void onMouseInputReceived(@NonNull String tapIdentifier, @NonNull MousePacket data);
+
+    /**
+     * The packet is reused for the next air mouse notification of the same Tap, so it is only valid during this
+     * callback. Use {@link AirMousePacket#copy()} to keep it.
+     */
     void onAirMouseInputReceived(@NonNull String tapIdentifier, @NonNull AirMousePacket data);
+
     void onRawSensorInputReceived(@NonNull String tapIdentifier, @NonNull RawSensorData rsData);
     void onTapChangedState(@NonNull String tapIdentifier, int state);
     void onError(@NonNull String tapIdentifier, int code, @NonNull String description);
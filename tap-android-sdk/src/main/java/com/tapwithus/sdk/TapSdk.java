@@ -1,24 +1,28 @@
 package com.tapwithus.sdk;
 
 import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.tapwithus.sdk.airmouse.AirMousePacket;
+import com.tapwithus.sdk.bluetooth.TapBluetoothHandleListener;
 import com.tapwithus.sdk.bluetooth.TapBluetoothListener;
 import com.tapwithus.sdk.bluetooth.TapBluetoothManager;
+import com.tapwithus.sdk.mode.RawSensorBatch;
 import com.tapwithus.sdk.mode.RawSensorData;
-import com.tapwithus.sdk.mode.RawSensorDataParser;
+import com.tapwithus.sdk.mode.RawSensorDataCollector;
+import com.tapwithus.sdk.mode.RawSensorDataSink;
+import com.tapwithus.sdk.mode.RawSensorStreamParser;
 import com.tapwithus.sdk.mode.TapInputMode;
 import com.tapwithus.sdk.mode.TapXRState;
 import com.tapwithus.sdk.mouse.MousePacket;
 import com.tapwithus.sdk.tap.Tap;
 import com.tapwithus.sdk.tap.TapCache;
+import com.tapwithus.sdk.tap.TapCacheStore;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -35,15 +39,18 @@ public class TapSdk {
     public static final int ERR_HAPTIC = 102;
 
     protected TapBluetoothManager tapBluetoothManager;
+    private final ConnectionParameterManager connectionParameterManager;
+    private final BootstrapPlanner bootstrapPlanner;
     private final ListenerManager<TapListener> tapListeners = new ListenerManager<>();
 
 
 
-    private final Map<String, TapInputMode> modeSubscribers = new ConcurrentHashMap<>();
-    private final Map<String, TapXRState> stateSubscribers = new ConcurrentHashMap<>();
+    // Mode, XR state and raw sensor parsing of each Tap, by identifier
+    private final Map<String, TapSession> sessions = new ConcurrentHashMap<>();
+    // The same sessions by handle. Replaced, never changed, when a session is added or removed.
+    private volatile TapSession[] sessionsByHandle = new TapSession[0];
 
 //    private Set<String> HIDMouseInRawModeSubscribers = new HashSet<>();
-    private final Set<String> tapsInAirMouseState = new HashSet<>();
 //    private List<String> startModeNotificationSubscribers = new CopyOnWriteArrayList<>();
 //    private List<String> notifyOnConnectedAfterControllerModeStarted = new CopyOnWriteArrayList<>();
 //    private List<String> notifyOnResumedAfterControllerModeStarted = new CopyOnWriteArrayList<>();
@@ -66,6 +73,8 @@ public class TapSdk {
         this.cache = this.getTapCache();
         this.tapBluetoothManager = tapBluetoothManager;
         this.tapBluetoothManager.registerTapBluetoothListener(tapBluetoothListener);
+        this.connectionParameterManager = new ConnectionParameterManager(tapBluetoothManager);
+        this.bootstrapPlanner = new BootstrapPlanner(tapBluetoothManager, cache);
         startRawModeLoop();
     }
 
@@ -87,6 +96,15 @@ public class TapSdk {
         this.clearCacheOnTapDisconnection = clearCacheOnTapDisconnection;
     }
 
+    /**
+     * Persists the name, serial number and versions of every Tap, so they are served right away on the next
+     * connection and only revalidated in the background.
+     * @param store the store to persist to, or null to only cache in memory
+     */
+    public void setCacheStore(@Nullable TapCacheStore store) {
+        cache.setStore(store);
+    }
+
 //    public void enableAutoSetControllerModeOnConnection() {
 //
 //        autoSetControllerModeOnConnection = true;
@@ -127,12 +145,19 @@ public class TapSdk {
             return;
         }
 
+        connectionParameterManager.setPaused(false);
+
         Set<String> actuallyConnectTaps = getConnectedTaps();
 
+        // A Tap that reconnected while paused skipped handleTapConnection, its link is bound here
+        for (String tapIdentifier : actuallyConnectTaps) {
+            bindLink(tapIdentifier);
+        }
 
-        for (Map.Entry<String, TapInputMode> entry : modeSubscribers.entrySet()) {
-            if (actuallyConnectTaps.contains(entry.getKey())) {
-                startMode(entry.getKey(), entry.getValue());
+        for (TapSession session : sessions.values()) {
+            TapInputMode mode = session.mode;
+            if (mode != null && actuallyConnectTaps.contains(session.tapIdentifier)) {
+                startMode(session.tapIdentifier, mode);
             }
         }
 
@@ -155,7 +180,12 @@ public class TapSdk {
 
 
         // Check if a TAP was disconnected while the app was in background
-        Set<String> mSubscribers = new HashSet<>(modeSubscribers.keySet());
+        Set<String> mSubscribers = new HashSet<>();
+        for (TapSession session : sessions.values()) {
+            if (session.mode != null) {
+                mSubscribers.add(session.tapIdentifier);
+            }
+        }
         for (String tapIdentifier: mSubscribers) {
             if (!actuallyConnectTaps.contains(tapIdentifier)) {
                 handleTapDisconnection(tapIdentifier);
@@ -184,6 +214,8 @@ public class TapSdk {
             return;
         }
 
+        connectionParameterManager.setPaused(true);
+
         stopRawModeLoop();
 
         Set<String> connectedTaps = getConnectedTaps();
@@ -203,11 +235,38 @@ public class TapSdk {
         return tapBluetoothManager.getConnectedTaps();
     }
 
+    /**
+     * A Tap gets its handle when it is first seen and keeps it until the process ends. Handles are small and dense,
+     * starting at 0, so apps can keep the state of each Tap in arrays indexed by them, see {@link TapHandleListener}.
+     * @return the handle of the Tap, or {@link com.tapwithus.sdk.bluetooth.BluetoothManager#NO_HANDLE} if it isn't known
+     */
+    public int getTapHandle(@NonNull String tapIdentifier) {
+        return tapBluetoothManager.getTapHandle(tapIdentifier);
+    }
+
+    /**
+     * @return the identifier of the Tap with the handle, or null if there is no such Tap
+     */
+    @Nullable
+    public String getTapIdentifier(int tapHandle) {
+        return tapBluetoothManager.getTapAddress(tapHandle);
+    }
+
     @Nullable
     public Tap getCachedTap(@NonNull String tapIdentifier) {
         return cache.getCached(tapIdentifier);
     }
 
+    /**
+     * @return the raw sensor parser of the given Tap, to read its carried, resynced and discarded byte counts,
+     * or null if no raw sensor data was received from it yet
+     */
+    @Nullable
+    public RawSensorStreamParser getRawSensorStreamParser(@NonNull String tapIdentifier) {
+        TapSession session = sessions.get(tapIdentifier);
+        return session == null ? null : session.findRawSensorParser();
+    }
+
     public void registerTapListener(@NonNull TapListener listener) {
         isClosed = false;
 
@@ -275,7 +334,8 @@ public class TapSdk {
 
     public boolean isTapInAirMouseState(String tapIdentifier)
     {
-        return tapsInAirMouseState.contains(tapIdentifier);
+        TapSession session = sessions.get(tapIdentifier);
+        return session != null && session.inAirMouseState;
     }
 
 
@@ -326,13 +386,16 @@ public class TapSdk {
     }
 
     private void startXRSTate(String tapIdentifier, TapXRState state) {
-        stateSubscribers.put(tapIdentifier, state);
+        TapSession session = getSession(tapIdentifier);
+        session.xrState = state;
+        connectionParameterManager.onXRStateChanged(tapIdentifier, state);
         if (state.getBytes().length > 0) {
             if (isFeatureSupported(tapIdentifier, FeatureVersionSupport.FEATURE_XR_STATE)) {
-                if (modeSubscribers.containsKey(tapIdentifier) && modeSubscribers.get(tapIdentifier).type != TapInputMode.TEXT) {
+                TapInputMode mode = session.mode;
+                if (mode != null && mode.type != TapInputMode.TEXT) {
                     tapBluetoothManager.startXRState(tapIdentifier, state.getBytes());
                     if (state.type == TapXRState.USER_CONTROL) {
-                        stateSubscribers.put(tapIdentifier, TapXRState.none());
+                        session.xrState = TapXRState.none();
                     }
                 }
             }
@@ -345,7 +408,8 @@ public class TapSdk {
             return;
         }
 
-        modeSubscribers.put(tapIdentifier, mode);
+        getSession(tapIdentifier).mode = mode;
+        connectionParameterManager.onModeChanged(tapIdentifier, mode);
         tapBluetoothManager.startMode(tapIdentifier, mode.getBytes());
 //        startModeNotificationSubscribers.add(tapIdentifier);
 //        switch (mode) {
@@ -457,6 +521,11 @@ public class TapSdk {
             return;
         }
         log("Starting Raw Sensor mode - " + tapIdentifier);
+        TapSession session = sessions.get(tapIdentifier);
+        RawSensorStreamParser parser = session == null ? null : session.findRawSensorParser();
+        if (parser != null) {
+            parser.reset();
+        }
         startMode(tapIdentifier, TapInputMode.rawSensorData(deviceAccelerometerSensitivity, imuGyroSensitivity, imuAccelerometerSensitivity));
 
     }
@@ -526,8 +595,13 @@ public class TapSdk {
         Log.i("TAPSDK", "CLOSE!!!");
         isClosing = true;
         stopRawModeLoop();
+        connectionParameterManager.clear();
+        bootstrapPlanner.clear();
         tapBluetoothManager.close();
-        modeSubscribers.clear();
+        for (TapSession session : sessions.values()) {
+            session.mode = null;
+            session.link = null;
+        }
 
         handleCloseReset();
     }
@@ -548,7 +622,9 @@ public class TapSdk {
 //    };
 
     @SuppressWarnings("FieldCanBeLocal")
-    private final TapBluetoothListener tapBluetoothListener = new TapBluetoothListener() {
+    private final TapBluetoothListener tapBluetoothListener = new BluetoothInputListener();
+
+    private class BluetoothInputListener implements TapBluetoothListener, TapBluetoothHandleListener {
 
         @Override
         public void onBluetoothTurnedOn() {
@@ -577,11 +653,15 @@ public class TapSdk {
 
         @Override
         public void onTapConnected(@NonNull String tapAddress) {
+            bootstrapPlanner.reset(tapAddress);
+            cache.restore(tapAddress);
             handleEmission(tapAddress);
         }
 
         @Override
         public void onTapAlreadyConnected(@NonNull String tapAddress) {
+            bootstrapPlanner.reset(tapAddress);
+            cache.restore(tapAddress);
             handleEmission(tapAddress);
         }
 
@@ -592,8 +672,9 @@ public class TapSdk {
 
         @Override
         public void onNameRead(@NonNull String tapAddress, @NonNull String name) {
+            String restored = getRevalidatedValue(tapAddress, TapCache.DataKey.Name);
             cache.onNameRead(tapAddress, name);
-            handleEmission(tapAddress);
+            handleRead(tapAddress, restored, name);
         }
 
         @Override
@@ -610,14 +691,22 @@ public class TapSdk {
 
         @Override
         public void onSerialNumberRead(@NonNull String tapAddress, @NonNull String serialNumber) {
+            String restored = getRevalidatedValue(tapAddress, TapCache.DataKey.SerialNumber);
             cache.onSerialNumberRead(tapAddress, serialNumber);
-            handleEmission(tapAddress);
+            if (restored != null && !restored.equals(serialNumber)) {
+                // The restored values belong to another Tap, the cache dropped them, so read them from this one
+                handleCacheDependencies(tapAddress);
+                notifyOnTapChanged(tapAddress);
+                return;
+            }
+            handleRead(tapAddress, restored, serialNumber);
         }
 
         @Override
         public void onHwVerRead(@NonNull String tapAddress, @NonNull String hwVer) {
+            String restored = getRevalidatedValue(tapAddress, TapCache.DataKey.HwVer);
             cache.onHwVerRead(tapAddress, hwVer);
-            handleEmission(tapAddress);
+            handleRead(tapAddress, restored, hwVer);
         }
 
         @Override
@@ -628,22 +717,50 @@ public class TapSdk {
 
         @Override
         public void onBootloaderVerRead(@NonNull String tapAddress, @NonNull String bootloaderVer) {
+            String restored = getRevalidatedValue(tapAddress, TapCache.DataKey.BootloaderVer);
             cache.onBootloaderVerRead(tapAddress, bootloaderVer);
-            handleEmission(tapAddress);
+            handleRead(tapAddress, restored, bootloaderVer);
         }
 
         @Override
         public void onRawSensorDataReceieved(@NonNull String tapAddress, byte[] data) {
+            onRawSensorDataReceived(tapBluetoothManager.getTapHandle(tapAddress), data);
+        }
+
+        @Override
+        public void onRawSensorDataReceived(int tapHandle, @NonNull byte[] data) {
+            TapSession session = getSession(tapHandle);
+            if (session == null) {
+                return;
+            }
+            String tapAddress = session.tapIdentifier;
+            session.onDataReceived();
             if (isPaused || isClosing) {
                 return;
             }
-            if (modeSubscribers.containsKey(tapAddress)) {
-                TapInputMode mode = modeSubscribers.get(tapAddress);
-                ArrayList<RawSensorData> rsData = RawSensorDataParser.parseWhole(tapAddress, data, mode.getDeviceAccelerometerSensitivity(), mode.getImuGyroSensitivity(), mode.getImuAccelerometerSensitivity());
+            TapInputMode mode = session.mode;
+            if (mode != null) {
+                int numOfBatchListeners = tapListeners.countListenersOfType(RawSensorBatchListener.class);
+
+                RawSensorBatch batch = session.getRawSensorBatch();
+                batch.clear();
+                RawSensorDataCollector collector = null;
+                RawSensorDataSink sink = batch;
+                if (tapListeners.size() > numOfBatchListeners) {
+                    collector = session.getRawSensorCollector();
+                    collector.clear();
+                    sink = collector;
+                }
 
+                session.getRawSensorParser().parse(data, 0, data.length, mode.getDeviceAccelerometerSensitivity(), mode.getImuGyroSensitivity(), mode.getImuAccelerometerSensitivity(), sink);
 
-                for (RawSensorData rsDatum : rsData) {
-                    notifyOnRawSensorDataReceieved(tapAddress, rsDatum);
+                if (numOfBatchListeners > 0) {
+                    notifyOnRawSensorBatchReceived(tapAddress, batch);
+                }
+                if (collector != null) {
+                    for (RawSensorData rsDatum : collector.getRawSensorData()) {
+                        notifyOnRawSensorDataReceieved(tapAddress, rsDatum);
+                    }
                 }
 
             }
@@ -715,14 +832,23 @@ public class TapSdk {
 
         @Override
         public void onTapInputReceived(@NonNull String tapAddress, int data, int repeatData) {
-            if (isTapInAirMouseState(tapAddress)) {
+            onTapInputReceived(tapBluetoothManager.getTapHandle(tapAddress), data, repeatData);
+        }
+
+        @Override
+        public void onTapInputReceived(int tapHandle, int data, int repeatData) {
+            TapSession session = getSession(tapHandle);
+            if (session == null) {
+                return;
+            }
+            if (session.inAirMouseState) {
                 if (data == 2) {
                     AirMousePacket packet = new AirMousePacket(new byte[] { AirMousePacket.AIR_MOUSE_GESTURE_INDEX_TO_THUMB_TOUCH, 0});
-                    notifyOnAirMouseInputReceived(tapAddress, packet);
+                    notifyOnAirMouseInputReceived(session, packet);
                     return;
                 } else if (data == 4) {
                     AirMousePacket packet = new AirMousePacket(new byte[] { AirMousePacket.AIR_MOUSE_GESTURE_MIDDLE_TO_THUMB_TOUCH, 0});
-                    notifyOnAirMouseInputReceived(tapAddress, packet);
+                    notifyOnAirMouseInputReceived(session, packet);
                     return;
                 }
                 return;
@@ -752,31 +878,54 @@ public class TapSdk {
                     //this shouldn't be possible at all unless I coded wrong
                     logError("Something super weird, got a value for repeatData of " + repeatData);
             }
-            notifyOnTapInputReceived(tapAddress, data, convertedRepeatData);
+            notifyOnTapInputReceived(session, data, convertedRepeatData);
         }
 
         @Override
         public void onTapShiftSwitchReceived(@NonNull String tapAddress, int data) {
-            notifyOnTapShiftSwitchReceived(tapAddress, data);
+            onTapShiftSwitchReceived(tapBluetoothManager.getTapHandle(tapAddress), data);
+        }
+
+        @Override
+        public void onTapShiftSwitchReceived(int tapHandle, int data) {
+            TapSession session = getSession(tapHandle);
+            if (session != null) {
+                notifyOnTapShiftSwitchReceived(session, data);
+            }
         }
 
         @Override
         public void onMouseInputReceived(@NonNull String tapAddress, @NonNull MousePacket data) {
-            notifyOnMouseInputReceived(tapAddress, data);
+            onMouseInputReceived(tapBluetoothManager.getTapHandle(tapAddress), data);
+        }
+
+        @Override
+        public void onMouseInputReceived(int tapHandle, @NonNull MousePacket data) {
+            TapSession session = getSession(tapHandle);
+            if (session != null) {
+                session.onDataReceived();
+                notifyOnMouseInputReceived(session, data);
+            }
         }
 
         @Override
         public void onAirMouseInputReceived(@NonNull String tapAddress, @NonNull AirMousePacket data) {
-            notifyOnAirMouseInputReceived(tapAddress, data);
+            onAirMouseInputReceived(tapBluetoothManager.getTapHandle(tapAddress), data);
         }
 
         @Override
-        public void onTapChangedState(@NonNull String tapIdentifier, int state) {
-            if (state == 1) {
-                tapsInAirMouseState.add(tapIdentifier);
-            } else {
-                tapsInAirMouseState.remove(tapIdentifier);
+        public void onAirMouseInputReceived(int tapHandle, @NonNull AirMousePacket data) {
+            TapSession session = getSession(tapHandle);
+            if (session != null) {
+                session.onDataReceived();
+                notifyOnAirMouseInputReceived(session, data);
             }
+        }
+
+        @Override
+        public void onTapChangedState(@NonNull String tapIdentifier, int state) {
+            connectionParameterManager.onAirMouseStateChanged(tapIdentifier, state == 1);
+            getSession(tapIdentifier).inAirMouseState = state == 1;
             notifyOnTapChangedState(tapIdentifier, state);
         }
 
@@ -784,7 +933,7 @@ public class TapSdk {
         public void onError(@NonNull String tapAddress, int code, @NonNull String description) {
             notifyOnError(tapAddress, code, description);
         }
-    };
+    }
 
 
 
@@ -844,25 +993,61 @@ public class TapSdk {
 //        });
     }
 
-    private void notifyOnTapInputReceived(@NonNull final String tapIdentifier, final int data, final int repeatData) {
-        tapListeners.notifyAll(listener -> listener.onTapInputReceived(tapIdentifier, data, repeatData));
+    private void notifyOnTapInputReceived(@NonNull final TapSession session, final int data, final int repeatData) {
+        tapListeners.notifyAll(listener -> {
+            if (listener instanceof TapHandleListener) {
+                ((TapHandleListener) listener).onTapInputReceived(session.handle, data, repeatData);
+            } else {
+                listener.onTapInputReceived(session.tapIdentifier, data, repeatData);
+            }
+        });
     }
 
-    private void notifyOnTapShiftSwitchReceived(@NonNull final String tapIdentifier, final int data) {
-        tapListeners.notifyAll(listener -> listener.onTapShiftSwitchReceived(tapIdentifier, data));
+    private void notifyOnTapShiftSwitchReceived(@NonNull final TapSession session, final int data) {
+        tapListeners.notifyAll(listener -> {
+            if (listener instanceof TapHandleListener) {
+                ((TapHandleListener) listener).onTapShiftSwitchReceived(session.handle, data);
+            } else {
+                listener.onTapShiftSwitchReceived(session.tapIdentifier, data);
+            }
+        });
     }
 
     private void notifyOnRawSensorDataReceieved(@NonNull final String tapIdentifier, final RawSensorData rsData) {
-        tapListeners.notifyAll(listener -> listener.onRawSensorInputReceived(tapIdentifier, rsData));
+        tapListeners.notifyAll(listener -> {
+            if (!(listener instanceof RawSensorBatchListener)) {
+                listener.onRawSensorInputReceived(tapIdentifier, rsData);
+            }
+        });
+    }
+
+    private void notifyOnRawSensorBatchReceived(@NonNull final String tapIdentifier, @NonNull final RawSensorBatch batch) {
+        tapListeners.notifyAll(listener -> {
+            if (listener instanceof RawSensorBatchListener) {
+                ((RawSensorBatchListener) listener).onRawSensorBatchReceived(tapIdentifier, batch);
+            }
+        });
     }
 
-    private void notifyOnMouseInputReceived(@NonNull final String tapIdentifier, @NonNull final MousePacket data) {
+    private void notifyOnMouseInputReceived(@NonNull final TapSession session, @NonNull final MousePacket data) {
 
-        tapListeners.notifyAll(listener -> listener.onMouseInputReceived(tapIdentifier, data));
+        tapListeners.notifyAll(listener -> {
+            if (listener instanceof TapHandleListener) {
+                ((TapHandleListener) listener).onMouseInputReceived(session.handle, data);
+            } else {
+                listener.onMouseInputReceived(session.tapIdentifier, data);
+            }
+        });
     }
 
-    private void notifyOnAirMouseInputReceived(@NonNull final String tapIdentifier, @NonNull final AirMousePacket data) {
-        tapListeners.notifyAll(listener -> listener.onAirMouseInputReceived(tapIdentifier, data));
+    private void notifyOnAirMouseInputReceived(@NonNull final TapSession session, @NonNull final AirMousePacket data) {
+        tapListeners.notifyAll(listener -> {
+            if (listener instanceof TapHandleListener) {
+                ((TapHandleListener) listener).onAirMouseInputReceived(session.handle, data);
+            } else {
+                listener.onAirMouseInputReceived(session.tapIdentifier, data);
+            }
+        });
     }
 
 //    private void notifyOnRawSensorInputReceived(@NonNull final String tapIdentifier, @NonNull final int data) {
@@ -898,9 +1083,11 @@ public class TapSdk {
             return;
         }
 
+        bindLink(tapIdentifier);
         startMode(tapIdentifier, autoSetModeOnConnection);
         startXRSTate(tapIdentifier, defaultXRState);
         notifyOnTapConnected(tapIdentifier);
+        revalidateRestoredValues(tapIdentifier);
 //            List<String> textModeSubscribers = getTapsInMode(MODE_TEXT);
 //            if (textModeSubscribers.contains(tapIdentifier) || !autoSetControllerModeOnConnection) {
 //                modeSubscribers.put(tapIdentifier, MODE_TEXT);
@@ -914,7 +1101,21 @@ public class TapSdk {
 //        }
     }
 
+    /**
+     * Counts the notifications of the connected Tap on its connection priority link. Does nothing if already bound.
+     */
+    private void bindLink(@NonNull String tapIdentifier) {
+        connectionParameterManager.onTapConnected(tapIdentifier);
+        getSession(tapIdentifier).link = connectionParameterManager.getLink(tapIdentifier);
+    }
+
     private void handleTapDisconnection(@NonNull String tapIdentifier) {
+        connectionParameterManager.onTapDisconnected(tapIdentifier);
+        TapSession session = sessions.get(tapIdentifier);
+        if (session != null) {
+            session.link = null;
+        }
+        bootstrapPlanner.reset(tapIdentifier);
         if (isPaused) {
             cache.softClear(tapIdentifier);
             return;
@@ -923,8 +1124,9 @@ public class TapSdk {
         if (clearCacheOnTapDisconnection) {
             cache.clear(tapIdentifier);
         }
-        modeSubscribers.remove(tapIdentifier);
-        stateSubscribers.remove(tapIdentifier);
+        if (session != null) {
+            session.onDisconnected();
+        }
 //        HIDMouseInRawModeSubscribers.remove(tapIdentifier);
         if (!isClosing) {
             notifyOnTapDisconnected(tapIdentifier);
@@ -933,6 +1135,80 @@ public class TapSdk {
         handleCloseReset();
     }
 
+    private @NonNull TapSession getSession(@NonNull String tapIdentifier) {
+        TapSession session = sessions.get(tapIdentifier);
+        if (session != null) {
+            return session;
+        }
+        synchronized (sessions) {
+            session = sessions.get(tapIdentifier);
+            if (session == null) {
+                session = new TapSession(tapBluetoothManager.getTapHandle(tapIdentifier), tapIdentifier);
+                sessions.put(tapIdentifier, session);
+                setSessionByHandle(session.handle, session);
+            }
+            return session;
+        }
+    }
+
+    /**
+     * @return the session of the Tap, created if needed, or null if there is no Tap with the handle
+     */
+    private @Nullable TapSession getSession(int tapHandle) {
+        TapSession[] byHandle = sessionsByHandle;
+        TapSession session = tapHandle >= 0 && tapHandle < byHandle.length ? byHandle[tapHandle] : null;
+        if (session != null) {
+            return session;
+        }
+        String tapIdentifier = tapBluetoothManager.getTapAddress(tapHandle);
+        return tapIdentifier == null ? null : getSession(tapIdentifier);
+    }
+
+    private void setSessionByHandle(int tapHandle, @NonNull TapSession session) {
+        if (tapHandle < 0) {
+            return;
+        }
+        TapSession[] byHandle = Arrays.copyOf(sessionsByHandle, Math.max(sessionsByHandle.length, tapHandle + 1));
+        byHandle[tapHandle] = session;
+        sessionsByHandle = byHandle;
+    }
+
+    /**
+     * Reads the values that were served from the {@link TapCacheStore} again, after the Tap was reported as connected.
+     */
+    private void revalidateRestoredValues(@NonNull String tapIdentifier) {
+        for (String dataKey : cache.getRestoredKeys(tapIdentifier)) {
+            switch (dataKey) {
+                case TapCache.DataKey.Name: tapBluetoothManager.readName(tapIdentifier);
+                    break;
+                case TapCache.DataKey.SerialNumber: tapBluetoothManager.readSerialNumber(tapIdentifier);
+                    break;
+                case TapCache.DataKey.HwVer: tapBluetoothManager.readHwVer(tapIdentifier);
+                    break;
+                case TapCache.DataKey.BootloaderVer: tapBluetoothManager.readBootloaderVer(tapIdentifier);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return the restored value if reading it now revalidates an already reported Tap, otherwise null
+     */
+    private @Nullable String getRevalidatedValue(@NonNull String tapIdentifier, @NonNull String dataKey) {
+        if (!cache.isRestored(tapIdentifier, dataKey) || !cache.isCached(tapIdentifier)) {
+            return null;
+        }
+        return cache.getFromCache(tapIdentifier).get(dataKey);
+    }
+
+    private void handleRead(@NonNull String tapIdentifier, @Nullable String restoredValue, @NonNull String value) {
+        if (restoredValue == null) {
+            handleEmission(tapIdentifier);
+        } else if (!restoredValue.equals(value)) {
+            notifyOnTapChanged(tapIdentifier);
+        }
+    }
+
     private void handleCloseReset() {
         if (isClosing && tapBluetoothManager.numOfConnectedTaps() == 0) {
             isClosing = false;
@@ -955,39 +1231,12 @@ public class TapSdk {
     }
 
 
+    /**
+     * Queues every read and subscription the Tap is still missing, see {@link BootstrapPlanner}.
+     * @return true if nothing is missing anymore
+     */
     public boolean handleCacheDependencies(@NonNull String tapIdentifier) {
-
-        if (!cache.has(tapIdentifier, TapCache.DataKey.Name) && cache.shouldHave(tapIdentifier, TapCache.DataKey.Name)) {
-            tapBluetoothManager.readName(tapIdentifier);
-        } else if (!cache.has(tapIdentifier, TapCache.DataKey.Battery) && cache.shouldHave(tapIdentifier, TapCache.DataKey.Battery)) {
-
-            tapBluetoothManager.readBattery(tapIdentifier);
-        } else if (!cache.has(tapIdentifier, TapCache.DataKey.SerialNumber) && cache.shouldHave(tapIdentifier, TapCache.DataKey.SerialNumber)) {
-
-            tapBluetoothManager.readSerialNumber(tapIdentifier);
-        } else if (!cache.has(tapIdentifier, TapCache.DataKey.HwVer) && cache.shouldHave(tapIdentifier, TapCache.DataKey.HwVer)) {
-            tapBluetoothManager.readHwVer(tapIdentifier);
-        } else if (!cache.has(tapIdentifier, TapCache.DataKey.FwVer) && cache.shouldHave(tapIdentifier, TapCache.DataKey.FwVer)) {
-            tapBluetoothManager.readFwVer(tapIdentifier);
-        } else if (!cache.has(tapIdentifier, TapCache.DataKey.BootloaderVer) && cache.shouldHave(tapIdentifier, TapCache.DataKey.BootloaderVer)) {
-
-            tapBluetoothManager.readBootloaderVer(tapIdentifier);
-        } else if (!cache.has(tapIdentifier, TapCache.DataKey.TapNotification) && cache.shouldHave(tapIdentifier, TapCache.DataKey.TapNotification)) {
-            tapBluetoothManager.setupTapNotification(tapIdentifier);
-        } else if (!cache.has(tapIdentifier, TapCache.DataKey.MouseNotification) && cache.shouldHave(tapIdentifier, TapCache.DataKey.MouseNotification)) {
-            tapBluetoothManager.setupMouseNotification(tapIdentifier);
-        } else if (!cache.has(tapIdentifier, TapCache.DataKey.AirMouseNotification) && cache.shouldHave(tapIdentifier, TapCache.DataKey.AirMouseNotification)) {
-
-            tapBluetoothManager.setupAirMouseNotification(tapIdentifier);
-        } else if (!cache.has(tapIdentifier, TapCache.DataKey.RawSensorNotification) && cache.shouldHave(tapIdentifier, TapCache.DataKey.RawSensorNotification)) {
-
-            tapBluetoothManager.setupRawSensorNotification(tapIdentifier);
-        } else if (!cache.has(tapIdentifier, TapCache.DataKey.DataRequestNotification) && cache.shouldHave(tapIdentifier, TapCache.DataKey.DataRequestNotification)) {
-            tapBluetoothManager.setupDataNotification(tapIdentifier);
-        } else {
-            return true;
-        }
-        return false;
+        return bootstrapPlanner.plan(tapIdentifier);
     }
 
     private boolean isTapConnected(@NonNull String tapIdentifier) {
@@ -1002,24 +1251,31 @@ public class TapSdk {
 
         log("startRawModeLoop");
 
-        rawModeHandler = new Handler(Looper.getMainLooper());
+        final Handler handler = new Handler(tapBluetoothManager.getEventLoop().getLooper());
+        rawModeHandler = handler;
         rawModeRunnable = new Runnable() {
             @Override
             public void run() {
                 log("In raw mode loop");
-                for (String tapIdentifier: modeSubscribers.keySet()) {
-                    tapBluetoothManager.startMode(tapIdentifier, modeSubscribers.get(tapIdentifier).getBytes());
+                for (TapSession session : sessions.values()) {
+                    TapInputMode mode = session.mode;
+                    if (mode != null) {
+                        tapBluetoothManager.startMode(session.tapIdentifier, mode.getBytes());
 //                    startControllerMode(tapIdentifier);
+                    }
                 }
 
-                for (String tapIdentifier : stateSubscribers.keySet()) {
-                    TapXRState state = stateSubscribers.get(tapIdentifier);
-                    tapBluetoothManager.startXRState(tapIdentifier, stateSubscribers.get(tapIdentifier).getBytes());
+                for (TapSession session : sessions.values()) {
+                    TapXRState state = session.xrState;
+                    if (state == null) {
+                        continue;
+                    }
+                    tapBluetoothManager.startXRState(session.tapIdentifier, state.getBytes());
                     if (state.type == TapXRState.USER_CONTROL) {
-                        stateSubscribers.put(tapIdentifier, TapXRState.none());
+                        session.xrState = TapXRState.none();
                     }
                 }
-                rawModeHandler.postDelayed(this, RAW_MODE_LOOP_DELAY);
+                handler.postDelayed(this, RAW_MODE_LOOP_DELAY);
             }
         };
 
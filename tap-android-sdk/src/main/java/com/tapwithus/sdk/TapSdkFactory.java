@@ -5,9 +5,14 @@ import android.content.Context;
 
 import com.tapwithus.sdk.bluetooth.BluetoothManager;
 import com.tapwithus.sdk.bluetooth.TapBluetoothManager;
+import com.tapwithus.sdk.tap.TapCacheStore;
+
+import java.io.File;
 
 public class TapSdkFactory {
 
+    private static final String CACHE_DIRECTORY = "tap_cache";
+
     private static TapSdk sdk;
 
     public static TapSdk getDefault(Context context) {
@@ -15,6 +20,7 @@ public class TapSdkFactory {
             BluetoothManager bluetoothManager = new BluetoothManager(context.getApplicationContext(),  BluetoothAdapter.getDefaultAdapter());
             TapBluetoothManager tapBluetoothManager = new TapBluetoothManager(bluetoothManager);
             sdk = new TapSdk(tapBluetoothManager);
+            sdk.setCacheStore(new TapCacheStore(new File(context.getApplicationContext().getNoBackupFilesDir(), CACHE_DIRECTORY)));
         }
         return sdk;
     }
@@ -0,0 +1,91 @@
+package com.tapwithus.sdk;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.tapwithus.sdk.mode.RawSensorBatch;
+import com.tapwithus.sdk.mode.RawSensorDataCollector;
+import com.tapwithus.sdk.mode.RawSensorStreamParser;
+import com.tapwithus.sdk.mode.TapInputMode;
+import com.tapwithus.sdk.mode.TapXRState;
+
+/**
+ * What {@link TapSdk} keeps for a single Tap, so a notification looks the Tap up once. The session outlives the
+ * connection: a disconnect drops the mode and XR state the Tap was set to, see {@link #onDisconnected()}, but it stays
+ * in air mouse state until the Tap reports otherwise.
+ * <p>
+ * Changed on the event loop, read from any thread.
+ */
+class TapSession {
+
+    /** See {@link TapSdk#getTapHandle(String)}. */
+    final int handle;
+    final String tapIdentifier;
+
+    /** The mode subscribed to, null until one was started. */
+    volatile @Nullable TapInputMode mode;
+    /** The XR state to apply, null until one was started. */
+    volatile @Nullable TapXRState xrState;
+    volatile boolean inAirMouseState = false;
+    /** The connection priority link the notifications are counted on, null while the Tap isn't connected. */
+    volatile @Nullable ConnectionParameterManager.Link link;
+
+    private volatile RawSensorBatch rawSensorBatch;
+    private volatile RawSensorStreamParser rawSensorParser;
+    private volatile RawSensorDataCollector rawSensorCollector;
+
+    TapSession(int handle, @NonNull String tapIdentifier) {
+        this.handle = handle;
+        this.tapIdentifier = tapIdentifier;
+    }
+
+    /**
+     * Called once the Tap disconnected while the SDK is not paused.
+     */
+    void onDisconnected() {
+        mode = null;
+        xrState = null;
+        RawSensorStreamParser parser = rawSensorParser;
+        if (parser != null) {
+            parser.reset();
+        }
+    }
+
+    void onDataReceived() {
+        ConnectionParameterManager.Link link = this.link;
+        if (link != null) {
+            link.onData();
+        }
+    }
+
+    @NonNull RawSensorBatch getRawSensorBatch() {
+        if (rawSensorBatch == null) {
+            rawSensorBatch = new RawSensorBatch();
+        }
+        return rawSensorBatch;
+    }
+
+    /**
+     * @return the collector, forwarding to {@link #getRawSensorBatch()}
+     */
+    @NonNull RawSensorDataCollector getRawSensorCollector() {
+        if (rawSensorCollector == null) {
+            rawSensorCollector = new RawSensorDataCollector(getRawSensorBatch());
+        }
+        return rawSensorCollector;
+    }
+
+    @NonNull RawSensorStreamParser getRawSensorParser() {
+        if (rawSensorParser == null) {
+            rawSensorParser = new RawSensorStreamParser();
+        }
+        return rawSensorParser;
+    }
+
+    /**
+     * @return the parser, or null if no raw sensor data was received yet
+     */
+    @Nullable RawSensorStreamParser findRawSensorParser() {
+        return rawSensorParser;
+    }
+}
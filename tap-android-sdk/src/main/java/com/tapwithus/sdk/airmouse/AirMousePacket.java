@@ -21,10 +21,30 @@ public class AirMousePacket extends Packet {
     public static final int XR_AIR_GESTURE_THUMB_INDEX = 101;
     public static final int XR_AIR_GESTURE_THUMB_MIDDLE = 102;
 
+    private static final int SIZE = 2;
+
     public AirMousePacket(byte[] data) {
-        super(data, 2);
+        super(data, SIZE);
+    }
+
+    /**
+     * Creates an empty packet, meant to be re-pointed at incoming notifications with {@link #wrap(byte[], int, int)}.
+     */
+    public AirMousePacket() {
+        this(new byte[0]);
     }
 
     public PacketValue gesture = new PacketValue(0, 8);
     public PacketValue state = new PacketValue(8,8);
+
+    @Override
+    public AirMousePacket wrap(byte[] data, int offset, int length) {
+        super.wrap(data, offset, length);
+        return this;
+    }
+
+    @Override
+    public AirMousePacket copy() {
+        return new AirMousePacket(getData());
+    }
 }
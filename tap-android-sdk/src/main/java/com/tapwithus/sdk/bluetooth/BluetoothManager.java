@@ -12,9 +12,11 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import android.util.Log;
 
 import com.tapwithus.sdk.ListenerManager;
@@ -23,21 +25,33 @@ import com.tapwithus.sdk.bluetooth.callbacks.OnCompletionListener;
 import com.tapwithus.sdk.bluetooth.callbacks.OnErrorListener;
 import com.tapwithus.sdk.bluetooth.callbacks.OnNotFoundListener;
 import com.tapwithus.sdk.bluetooth.operations.CharacteristicReadOperation;
+import com.tapwithus.sdk.bluetooth.operations.CharacteristicWriteNoResponseOperation;
 import com.tapwithus.sdk.bluetooth.operations.CharacteristicWriteOperation;
+import com.tapwithus.sdk.bluetooth.operations.ConnectionPriorityOperation;
 import com.tapwithus.sdk.bluetooth.operations.DiscoverServicesOperation;
+import com.tapwithus.sdk.bluetooth.operations.FailureStats;
 import com.tapwithus.sdk.bluetooth.operations.GattExecutor;
 import com.tapwithus.sdk.bluetooth.operations.GattOperation;
+import com.tapwithus.sdk.bluetooth.operations.GattWatchdog;
+import com.tapwithus.sdk.bluetooth.operations.MtuOperation;
+import com.tapwithus.sdk.bluetooth.operations.OperationPriority;
+import com.tapwithus.sdk.bluetooth.operations.OperationType;
+import com.tapwithus.sdk.bluetooth.operations.PhyOperation;
+import com.tapwithus.sdk.bluetooth.operations.QueueLimit;
 import com.tapwithus.sdk.bluetooth.operations.RefreshOperation;
+import com.tapwithus.sdk.bluetooth.operations.RetryPolicy;
 import com.tapwithus.sdk.bluetooth.operations.SetNotificationOperation;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 @SuppressWarnings({"WeakerAccess", "unused"})
 public class BluetoothManager {
@@ -45,14 +59,14 @@ public class BluetoothManager {
     private static final String TAG = "BluetoothManager";
 
     public static final String EMPTY_DEVICE_ADDRESS = "";
+    public static final int NO_HANDLE = -1;
 
-    private static final Map<String, BluetoothGatt> gatts = new ConcurrentHashMap<>();
-    private static final Map<String, GattExecutor> executors = new ConcurrentHashMap<>();
-    private static final List<String> establishConnectionSent = new CopyOnWriteArrayList<>();
-    private final List<String> connectionInProgress = new CopyOnWriteArrayList<>();
-    private static final Set<String> connectedDevices = new CopyOnWriteArraySet<>();
-    private static final Set<String> ignoredDevices = new CopyOnWriteArraySet<>();
-    private static final Set<String> ignoreInProgress = new CopyOnWriteArraySet<>();
+    // Everything known about each device, by address
+    private static final Map<String, DeviceSession> sessions = new ConcurrentHashMap<>();
+    // The same sessions by handle. Replaced, never changed, when a device is added.
+    private static volatile DeviceSession[] sessionsByHandle = new DeviceSession[0];
+    // Devices ignored before they had a session, applied once they get one
+    private static final Set<String> ignoredUnknownDevices = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
     public static final int ERR_C_BLUETOOTH_OFF = 1;
     public static final int ERR_C_BLUETOOTH_NOT_SUPPORTED = 2;
@@ -60,11 +74,23 @@ public class BluetoothManager {
     public static final int ERR_C_DEVICE_NOT_CONNECTED = 4;
     public static final int ERR_C_GATT_OP = 5;
 
+    public static final int DEFAULT_MTU = 23;
+    private static final int REQUESTED_MTU = 517;
+    /** Some stacks never report a PHY update that changes nothing, so the request is given up on quickly. */
+    private static final long PHY_TIMEOUT = 2000;
+
 
 
     private final Context context;
     private final BluetoothAdapter bluetoothAdapter;
     private final ListenerManager<BluetoothListener> bluetoothListeners = new ListenerManager<>();
+    private final ServiceTableStore serviceTables;
+    private final SdkEventLoop eventLoop = SdkEventLoop.getDefault();
+    private final GattWatchdog watchdog = new GattWatchdog(() -> getExecutors().iterator(), this::onExecutorStalled);
+    private int maxStallsBeforeReset = 0;
+    private final Map<OperationType, Long> timeoutOverrides = new ConcurrentHashMap<>();
+    private volatile RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+    private final Map<OperationPriority, QueueLimit> queueLimits = new ConcurrentHashMap<>();
 
     private boolean debug = true;
     private boolean restartBondRequested = false;
@@ -75,9 +101,18 @@ public class BluetoothManager {
     public BluetoothManager(Context context, BluetoothAdapter bluetoothAdapter) {
         this.context = context;
         this.bluetoothAdapter = bluetoothAdapter;
+        this.serviceTables = new ServiceTableStore(context);
+        GattOperation.setScheduler(eventLoop);
         registerBluetoothState();
     }
 
+    /**
+     * @return the thread GATT callbacks, operation timeouts and listeners run on
+     */
+    public @NonNull SdkEventLoop getEventLoop() {
+        return eventLoop;
+    }
+
     public void enableDebug() {
         debug = true;
     }
@@ -90,6 +125,111 @@ public class BluetoothManager {
         return isClosing;
     }
 
+    /**
+     * Stalled operation queues are restarted by a watchdog. If a device stalls this many times in a row without any
+     * operation completing in between, its GATT connection is reset as well.
+     * @param maxStallsBeforeReset 0 to never reset, the default
+     */
+    public void setMaxStallsBeforeReset(int maxStallsBeforeReset) {
+        this.maxStallsBeforeReset = Math.max(0, maxStallsBeforeReset);
+    }
+
+    /**
+     * @return how many times the operation queue of the device stalled during the current connection
+     */
+    public int getStallCount(@NonNull String deviceAddress) {
+        GattExecutor executor = getExecutor(deviceAddress);
+        return executor == null ? 0 : executor.getStallCount();
+    }
+
+    /**
+     * @return for how long, in milliseconds, the operation queue of the device was stalled during the current connection
+     */
+    public long getTotalStallTime(@NonNull String deviceAddress) {
+        GattExecutor executor = getExecutor(deviceAddress);
+        return executor == null ? 0 : executor.getTotalStallTime();
+    }
+
+    public long getLongestStall(@NonNull String deviceAddress) {
+        GattExecutor executor = getExecutor(deviceAddress);
+        return executor == null ? 0 : executor.getLongestStall();
+    }
+
+    /**
+     * Operation timeouts adapt to the latency observed on each device. This fixes the timeout of an operation type on
+     * all devices instead.
+     * @param timeout in milliseconds, 0 to adapt it again
+     */
+    public void setOperationTimeout(@NonNull OperationType type, long timeout) {
+        if (timeout > 0) {
+            timeoutOverrides.put(type, timeout);
+        } else {
+            timeoutOverrides.remove(type);
+        }
+        for (GattExecutor executor : getExecutors()) {
+            executor.getTimeouts().setOverride(type, timeout);
+        }
+    }
+
+    /**
+     * @return the timeout the next operation of the type will get on the device, in milliseconds
+     */
+    public long getOperationTimeout(@NonNull String deviceAddress, @NonNull OperationType type) {
+        GattExecutor executor = getExecutor(deviceAddress);
+        if (executor != null) {
+            return executor.getTimeouts().getTimeout(type);
+        }
+        Long timeout = timeoutOverrides.get(type);
+        return timeout != null ? timeout : GattOperation.OP_TIMEOUT;
+    }
+
+    /**
+     * Operations that fail with a transient status, like GATT_ERROR (133) or busy, are tried again with a backoff
+     * before their error is reported. Permanent failures are reported right away.
+     * @param retryPolicy {@link RetryPolicy#DEFAULT} by default, {@link RetryPolicy#NONE} to never retry
+     */
+    public void setRetryPolicy(@NonNull RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        for (GattExecutor executor : getExecutors()) {
+            executor.setRetryPolicy(retryPolicy);
+        }
+    }
+
+    /**
+     * @return the failed operation attempts of the device during the current connection, or null if it isn't
+     * connected
+     */
+    public @Nullable FailureStats getFailureStats(@NonNull String deviceAddress) {
+        GattExecutor executor = getExecutor(deviceAddress);
+        return executor == null ? null : executor.getFailureStats();
+    }
+
+    /**
+     * Bounds the operation queue of the priority on every device. Defaults to {@link OperationPriority#getDefaultLimit()}.
+     */
+    public void setQueueLimit(@NonNull OperationPriority priority, @NonNull QueueLimit limit) {
+        queueLimits.put(priority, limit);
+        for (GattExecutor executor : getExecutors()) {
+            executor.setQueueLimit(priority, limit);
+        }
+    }
+
+    /**
+     * @return the most operations of the priority queued at once on the device during the current connection
+     */
+    public int getQueueHighWaterMark(@NonNull String deviceAddress, @NonNull OperationPriority priority) {
+        GattExecutor executor = getExecutor(deviceAddress);
+        return executor == null ? 0 : executor.getHighWaterMark(priority);
+    }
+
+    /**
+     * @return operations dropped from or rejected by a full queue of the device during the current connection
+     */
+    public int getDroppedOperationCount(@NonNull String deviceAddress) {
+        GattExecutor executor = getExecutor(deviceAddress);
+        return executor == null ? 0 : executor.getDroppedCount() + executor.getRejectedCount();
+    }
+
     public void registerBluetoothListener(@NonNull BluetoothListener listener) {
         isClosed = false;
 
@@ -107,35 +247,63 @@ public class BluetoothManager {
     }
 
     public void ignoreDevice(@NonNull String deviceAddress) {
-        ignoreInProgress.add(deviceAddress);
+        DeviceSession session;
+        synchronized (sessions) {
+            session = findSession(deviceAddress);
+            if (session == null) {
+                // Nothing to disconnect. No handle is taken for an address that may never be a device
+                ignoredUnknownDevices.add(deviceAddress);
+                return;
+            }
+        }
+        session.ignoreInProgress = true;
         disconnectDevice(deviceAddress);
     }
 
     public void unignoreDevice(@NonNull String deviceAddress) {
-        ignoredDevices.remove(deviceAddress);
+        ignoredUnknownDevices.remove(deviceAddress);
+        DeviceSession session = findSession(deviceAddress);
+        if (session != null) {
+            session.ignored = false;
+        }
         establishConnection(deviceAddress);
     }
 
     public Set<String> getIgnoredDevices() {
+        Set<String> ignoredDevices = new HashSet<>(ignoredUnknownDevices);
+        for (DeviceSession session : sessions.values()) {
+            if (session.ignored) {
+                ignoredDevices.add(session.deviceAddress);
+            }
+        }
         return ignoredDevices;
     }
 
     public boolean isDeviceIgnored(@NonNull String deviceAddress) {
-        return ignoreInProgress.contains(deviceAddress) || ignoredDevices.contains(deviceAddress);
+        DeviceSession session = findSession(deviceAddress);
+        return session == null ? ignoredUnknownDevices.contains(deviceAddress) : session.isIgnored();
     }
 
     public boolean isConnectionInProgress() {
-        return connectionInProgress.size() > 0;
+        for (DeviceSession session : sessions.values()) {
+            if (session.state == DeviceSession.State.CONNECTING) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public boolean isConnectionInProgress(@NonNull String deviceAddress) {
-        return connectionInProgress.contains(deviceAddress);
+        DeviceSession session = findSession(deviceAddress);
+        return session != null && session.state == DeviceSession.State.CONNECTING;
     }
 
     public void refreshConnections() {
         isClosed = false;
-        establishConnectionSent.clear();
-        gatts.clear();
+        for (DeviceSession session : sessions.values()) {
+            session.establishConnectionSent = false;
+            session.gatt = null;
+        }
 
 //        executors.clear();
         establishConnections();
@@ -156,7 +324,7 @@ public class BluetoothManager {
     private void registerBluetoothState() {
         IntentFilter i = new IntentFilter(BluetoothAdapter.ACTION_STATE_CHANGED);
         i.addAction(BluetoothDevice.ACTION_BOND_STATE_CHANGED);
-        context.registerReceiver(broadcastReceiver, i);
+        context.registerReceiver(broadcastReceiver, i, null, eventLoop.getHandler());
     }
 
     private void unregisterBluetoothState() {
@@ -197,8 +365,9 @@ public class BluetoothManager {
             String deviceAddress = bondedDevice.getAddress();
             log("BONDED : " + deviceAddress);
 
-            if (!ignoredDevices.contains(deviceAddress) && !establishConnectionSent.contains(deviceAddress)) {
-                establishConnectionSent.add(deviceAddress);
+            DeviceSession session = getSession(deviceAddress);
+            if (!session.ignored && !session.establishConnectionSent) {
+                session.establishConnectionSent = true;
                 establishConnection(bondedDevice);
             }
 
@@ -206,12 +375,13 @@ public class BluetoothManager {
     }
 
     private void establishConnection(BluetoothDevice device) {
-        if (ignoredDevices.contains(device.getAddress())) {
+        DeviceSession session = findSession(device.getAddress());
+        if (session != null && session.ignored) {
             return;
         }
 
         // check if gatt connection already exists
-        if (gatts.containsKey(device.getAddress())) {
+        if (session != null && session.gatt != null) {
 //            log("Not connecting because we have it in gatts already");
             return;
         }
@@ -219,7 +389,7 @@ public class BluetoothManager {
         log("Trying to connect to gatt");
         try {
 
-            device.connectGatt(context, true, bluetoothGattCallback);
+            device.connectGatt(context, true, new GattCallback(getSession(device.getAddress())));
         } catch (SecurityException se) {
             log("No permission granted (Android 12)");
         }
@@ -255,18 +425,32 @@ public class BluetoothManager {
             String bondedDeviceAddress = bondedDevice.getAddress();
             log(bondedDeviceAddress + " " + deviceAddress);
             if (bondedDeviceAddress.equals(deviceAddress)) {
-                if (!establishConnectionSent.contains(bondedDeviceAddress)) {
-                    establishConnectionSent.add(bondedDeviceAddress);
+                DeviceSession session = getSession(bondedDeviceAddress);
+                if (!session.establishConnectionSent) {
+                    session.establishConnectionSent = true;
                     establishConnection(bondedDevice);
                 }
             }
         }
     }
 
-    private final BluetoothGattCallback bluetoothGattCallback = new BluetoothGattCallback() {
+    /**
+     * GATT callbacks of a single device. Bound to its session, so a callback doesn't look the device up.
+     */
+    private class GattCallback extends BluetoothGattCallback {
+
+        private final DeviceSession session;
+
+        GattCallback(@NonNull DeviceSession session) {
+            this.session = session;
+        }
 
         @Override
-        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
+        public void onConnectionStateChange(final BluetoothGatt gatt, final int status, final int newState) {
+            eventLoop.execute(() -> handleConnectionStateChange(gatt, status, newState));
+        }
+
+        private void handleConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
 
             /*
              * status -
@@ -286,23 +470,23 @@ public class BluetoothManager {
                 log("Connection state changed - No permission granted for device.getName() (Android 12)");
             }
 
-            if (ignoredDevices.contains(device.getAddress())) {
+            if (session.ignored) {
                 return;
             }
 
             if (status == 22) {
                 // will get here after calling 'removeBond'
-                handleDeviceUnpaired(gatt);
+                handleDeviceUnpaired(session, gatt);
                 return;
             }
 
             switch (newState) {
                 case BluetoothAdapter.STATE_CONNECTED:
-                    handleDeviceConnection(gatt);
+                    handleDeviceConnection(session, gatt);
                     break;
                 case BluetoothAdapter.STATE_DISCONNECTED:
 
-                    handleDeviceDisconnection(gatt);
+                    handleDeviceDisconnection(session, gatt);
 //                    if (connectedDevices.contains(device.getAddress())) {
 //                        handleDeviceDisconnection(gatt);
 //                    }
@@ -311,59 +495,142 @@ public class BluetoothManager {
         }
 
         @Override
-        public void onServicesDiscovered(BluetoothGatt gatt, int status) {
-            log("Services discovered - " + status);
-            GattExecutor executor = getExecutor(gatt);
-            if (executor != null) {
-                executor.onServicesDiscovered(status);
-            }
+        public void onServicesDiscovered(final BluetoothGatt gatt, final int status) {
+            eventLoop.execute(() -> {
+                log("Services discovered - " + status);
+                GattExecutor executor = session.executor;
+                if (executor != null) {
+                    executor.onServicesDiscovered(status);
+                }
+            });
         }
 
+        /*
+         * From API 33 the callbacks carrying the value are called instead of the older ones, and the value is not
+         * stored in the characteristic or descriptor. Before it, the value is only in the object, which the next
+         * callback overwrites, so the older callbacks copy it once before hopping onto the loop.
+         */
+
         @Override
-        public void onCharacteristicRead(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
-            GattExecutor executor = getExecutor(gatt);
-            if (executor != null) {
-                executor.onCharRead(characteristic, status);
-            }
+        public void onCharacteristicRead(final BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic, final int status) {
+            onCharacteristicRead(gatt, characteristic, copyValue(characteristic.getValue()), status);
         }
 
         @Override
-        public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
-            GattExecutor executor = getExecutor(gatt);
-            if (executor != null) {
-                executor.onCharWrite(characteristic, status);
-            }
+        public void onCharacteristicRead(@NonNull final BluetoothGatt gatt, @NonNull final BluetoothGattCharacteristic characteristic, @NonNull final byte[] value, final int status) {
+            eventLoop.execute(() -> {
+                GattExecutor executor = session.executor;
+                if (executor != null) {
+                    executor.onCharRead(characteristic, value, status);
+                }
+            });
         }
 
         @Override
-        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
-            if (ignoredDevices.contains(gatt.getDevice().getAddress())) {
-                return;
-            }
+        public void onCharacteristicWrite(final BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic, final int status) {
+            eventLoop.execute(() -> {
+                GattExecutor executor = session.executor;
+                if (executor != null) {
+                    executor.onCharWrite(characteristic, status);
+                }
+            });
+        }
 
-            GattExecutor executor = getExecutor(gatt);
-            if (executor != null) {
-                executor.onCharChange(characteristic);
-            }
+        @Override
+        public void onCharacteristicChanged(final BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic) {
+            onCharacteristicChanged(gatt, characteristic, copyValue(characteristic.getValue()));
+        }
+
+        @Override
+        public void onCharacteristicChanged(@NonNull final BluetoothGatt gatt, @NonNull final BluetoothGattCharacteristic characteristic, @NonNull final byte[] value) {
+            eventLoop.execute(() -> {
+                if (session.ignored) {
+                    return;
+                }
 
-            notifyOnNotificationReceived(gatt.getDevice().getAddress(),
-                    characteristic.getUuid(), characteristic.getValue());
+                GattExecutor executor = session.executor;
+                if (executor != null) {
+                    executor.onCharChange(characteristic, value);
+                }
+
+                notifyOnNotificationReceived(session, characteristic.getUuid(), value);
+            });
         }
 
         @Override
-        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
-            GattExecutor executor = getExecutor(gatt);
-            if (executor != null) {
-                executor.onDescWrite(descriptor, status);
-            }
+        public void onDescriptorRead(final BluetoothGatt gatt, final BluetoothGattDescriptor descriptor, final int status) {
+            onDescriptorRead(gatt, descriptor, status, copyValue(descriptor.getValue()));
+        }
+
+        @Override
+        public void onDescriptorRead(@NonNull final BluetoothGatt gatt, @NonNull final BluetoothGattDescriptor descriptor, final int status, @NonNull final byte[] value) {
+            eventLoop.execute(() -> {
+                GattExecutor executor = session.executor;
+                if (executor != null) {
+                    executor.onDescRead(descriptor, value, status);
+                }
+            });
+        }
+
+        @Override
+        public void onDescriptorWrite(final BluetoothGatt gatt, final BluetoothGattDescriptor descriptor, final int status) {
+            eventLoop.execute(() -> {
+                GattExecutor executor = session.executor;
+                if (executor != null) {
+                    executor.onDescWrite(descriptor, status);
+                }
+            });
         }
-    };
+
+        @Override
+        public void onMtuChanged(final BluetoothGatt gatt, final int mtu, final int status) {
+            eventLoop.execute(() -> {
+                log("MTU changed - " + mtu + ", status " + status);
+                // The peer may change the MTU as well, not only the MtuOperation
+                if (status == BluetoothGatt.GATT_SUCCESS) {
+                    session.mtu = mtu;
+                }
+                GattExecutor executor = session.executor;
+                if (executor != null) {
+                    executor.onMtuChanged(mtu, status);
+                }
+            });
+        }
+
+        @Override
+        public void onPhyUpdate(final BluetoothGatt gatt, final int txPhy, final int rxPhy, final int status) {
+            eventLoop.execute(() -> {
+                log("PHY updated - tx " + txPhy + ", rx " + rxPhy + ", status " + status);
+                GattExecutor executor = session.executor;
+                if (executor != null) {
+                    executor.onPhyUpdate(txPhy, status);
+                }
+            });
+        }
+    }
+
+    private static @NonNull byte[] copyValue(@Nullable byte[] value) {
+        return value == null ? new byte[0] : Arrays.copyOf(value, value.length);
+    }
 
     private void onDiscoverServicesCompleted(BluetoothGatt gatt, List<BluetoothGattService> services) {
             log("DISCOVER SERVICES COMPLETED FOR DEVICE ADDRESS: " + gatt.getDevice().getAddress());
 
             String deviceAddress = gatt.getDevice().getAddress();
-            gatts.put(deviceAddress, gatt);
+            DeviceSession session = getSession(deviceAddress);
+            session.gatt = gatt;
+
+            long fingerprint = ServiceTableStore.fingerprint(services);
+            if (session.refreshSkipped && (services.isEmpty() || fingerprint != serviceTables.getFingerprint(deviceAddress))) {
+                log(deviceAddress + " service table changed, refreshing");
+                session.refreshSkipped = false;
+                serviceTables.remove(deviceAddress);
+                queueRefresh(gatt, data -> onDiscoverServicesCompleted(gatt, data));
+                return;
+            }
+            if (!services.isEmpty()) {
+                serviceTables.putFingerprint(deviceAddress, fingerprint);
+            }
 
             if (services.isEmpty()) {
                 log(deviceAddress + " no services discovered");
@@ -374,25 +641,26 @@ public class BluetoothManager {
                 }
             }
 
-            connectionInProgress.remove(deviceAddress);
+            if (session.state == DeviceSession.State.CONNECTING) {
+                session.state = DeviceSession.State.CONNECTED;
+            }
+            releaseExecutor(gatt);
             notifyOnDeviceConnected(deviceAddress);
     }
 
-    private void handleDeviceConnection(final BluetoothGatt gatt) {
+    private void handleDeviceConnection(@NonNull final DeviceSession session, final BluetoothGatt gatt) {
 
-        final String deviceAddress = gatt.getDevice().getAddress();
+        final String deviceAddress = session.deviceAddress;
 
-        if (ignoredDevices.contains(deviceAddress)) {
+        if (session.ignored) {
             return;
         }
 
-        if (!connectionInProgress.contains(deviceAddress)) {
-            connectionInProgress.add(deviceAddress);
-        }
+        session.state = DeviceSession.State.CONNECTING;
 
         notifyOnDeviceStartConnecting(deviceAddress);
 
-        BluetoothGatt storedGatt = gatts.get(deviceAddress);
+        BluetoothGatt storedGatt = session.gatt;
 
         // If there is an already stored gatt for the same device and it's not the same connection,
         // it means that a new gatt connection opened for the same device, so clear the old one and
@@ -401,10 +669,49 @@ public class BluetoothManager {
             closeGatt(storedGatt);
         }
 
-        connectedDevices.add(deviceAddress);
-
         log(deviceAddress + " connected.");
 
+        // Link negotiation - larger notifications and a faster PHY, so raw sensor data can run at full rate.
+        // Failures are not fatal, the link just keeps its defaults.
+        final GattOperation<?> mtuOp = new MtuOperation(REQUESTED_MTU)
+                .addOnCompletionListener(mtu -> log(deviceAddress + " MTU " + mtu))
+                .addOnErrorListener(msg -> logError("mtuOperation - " + msg));
+
+        // Queued behind the subscriptions and mode writes, which the connection needs more than a faster PHY
+        final GattOperation<?> phyOp = new PhyOperation(BluetoothDevice.PHY_LE_2M_MASK)
+                .addOnCompletionListener(txPhy -> log(deviceAddress + " TX PHY " + txPhy))
+                .addOnErrorListener(msg -> logError("phyOperation - " + msg))
+                .setTimeout(PHY_TIMEOUT)
+                .setPriority(OperationPriority.BACKGROUND);
+
+        GattExecutor executor = CreateExecutor(gatt);
+        // Operations of the other lanes, like haptics, would otherwise go before the discovery they need
+        executor.hold();
+        // The refresh (and the delay it needs) is only required when the service table may have changed since the
+        // last connection. Without it Android serves the table it cached, so the fingerprint compared after discovery
+        // can't see a change. The guard is the firmware version check in validateServiceTable, backed by
+        // onCharacteristicMissing.
+        if (serviceTables.hasFingerprint(deviceAddress)) {
+            log(deviceAddress + " known service table, skipping refresh");
+            session.refreshSkipped = true;
+            executor.addOperation(createDiscoverServicesOperation(gatt, data -> onDiscoverServicesCompleted(gatt, data)));
+        } else {
+            session.refreshSkipped = false;
+            queueRefresh(gatt, data -> onDiscoverServicesCompleted(gatt, data));
+        }
+        executor.addOperation(mtuOp);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && bluetoothAdapter.isLe2MPhySupported()) {
+            executor.addOperation(phyOp);
+        }
+    }
+
+    private void queueRefresh(@NonNull final BluetoothGatt gatt, @NonNull OnCompletionListener<List<BluetoothGattService>> onDiscovered) {
+        final String deviceAddress = gatt.getDevice().getAddress();
+        GattExecutor executor = getExecutor(gatt);
+        if (executor == null) {
+            return;
+        }
+
         final GattOperation<?> refreshOp = new RefreshOperation()
                 .addOnCompletionListener(data -> log("Refresh finished successfully"))
                 .addOnErrorListener(msg -> {
@@ -412,33 +719,102 @@ public class BluetoothManager {
                     notifyOnError(deviceAddress, ERR_C_GATT_OP, msg);
                 });
 
-        final GattOperation<?> discoverServicesOp = new DiscoverServicesOperation()
+        executor.addOperation(refreshOp);
+        executor.addOperation(createDiscoverServicesOperation(gatt, onDiscovered));
+    }
+
+    private @NonNull GattOperation<?> createDiscoverServicesOperation(@NonNull BluetoothGatt gatt, @NonNull final OnCompletionListener<List<BluetoothGattService>> onDiscovered) {
+        final String deviceAddress = gatt.getDevice().getAddress();
+        return new DiscoverServicesOperation()
                 .addOnCompletionListener(data -> {
                     log("Discover services finished successfully");
-                    onDiscoverServicesCompleted(gatt, data);
+                    onDiscovered.onCompletion(data);
                 })
                 .addOnErrorListener(msg -> {
                     logError("discoverServicesOperation - " + msg);
+                    // Queued operations fail on their own then, rather than wait for the disconnection
+                    releaseExecutor(gatt);
                     notifyOnError(deviceAddress, ERR_C_GATT_OP, msg);
                 });
+    }
 
-        GattExecutor executor = CreateExecutor(gatt);
-        executor.addOperation(refreshOp);
-        executor.addOperation(discoverServicesOp);
+    private void releaseExecutor(@NonNull BluetoothGatt gatt) {
+        GattExecutor executor = getExecutor(gatt);
+        if (executor != null) {
+            executor.release();
+        }
+    }
+
+    /**
+     * Ties the stored service table of the device to its firmware version. If the firmware changed since the table was
+     * stored and this connection skipped the refresh, the table is refreshed and discovered again now.
+     */
+    public void validateServiceTable(@NonNull String deviceAddress, @NonNull String version) {
+        if (!serviceTables.hasFingerprint(deviceAddress)) {
+            return;
+        }
+
+        String storedVersion = serviceTables.getVersion(deviceAddress);
+        if (storedVersion == null || storedVersion.equals(version)) {
+            serviceTables.putVersion(deviceAddress, version);
+            return;
+        }
+
+        log(deviceAddress + " firmware changed from " + storedVersion + " to " + version);
+        serviceTables.remove(deviceAddress);
+        if (clearRefreshSkipped(deviceAddress)) {
+            refreshServiceTable(deviceAddress, version);
+        }
     }
 
-    private void handleDeviceDisconnection(BluetoothGatt gatt) {
+    /**
+     * A characteristic wasn't found. If this connection skipped the refresh the table may be stale, so it is dropped
+     * and refreshed right away. Otherwise the device really doesn't have it.
+     */
+    private void onCharacteristicMissing(@NonNull String deviceAddress) {
+        if (clearRefreshSkipped(deviceAddress)) {
+            log(deviceAddress + " characteristic missing from the known service table, refreshing");
+            serviceTables.remove(deviceAddress);
+            refreshServiceTable(deviceAddress, null);
+        }
+    }
+
+    /**
+     * @return whether the current connection of the device skipped the refresh
+     */
+    private boolean clearRefreshSkipped(@NonNull String deviceAddress) {
+        DeviceSession session = findSession(deviceAddress);
+        if (session == null || !session.refreshSkipped) {
+            return false;
+        }
+        session.refreshSkipped = false;
+        return true;
+    }
+
+    private void refreshServiceTable(@NonNull final String deviceAddress, @Nullable final String version) {
+        BluetoothGatt gatt = getGatt(deviceAddress);
+        if (gatt == null) {
+            return;
+        }
+        queueRefresh(gatt, data -> {
+            serviceTables.putFingerprint(deviceAddress, ServiceTableStore.fingerprint(data));
+            if (version != null) {
+                serviceTables.putVersion(deviceAddress, version);
+            }
+        });
+    }
+
+    private void handleDeviceDisconnection(@NonNull DeviceSession session, BluetoothGatt gatt) {
         Log.i("TAPSDK", "HandleDeviceDisconnection Call");
-        BluetoothDevice device = gatt.getDevice();
-        String deviceAddress = device.getAddress();
+        String deviceAddress = session.deviceAddress;
 
-        if (ignoredDevices.contains(deviceAddress)) {
+        if (session.ignored) {
             return;
         }
 
 
 
-        BluetoothGatt storedGatt = gatts.get(deviceAddress);
+        BluetoothGatt storedGatt = session.gatt;
 
         if (storedGatt == null) {
             log("while device disconnecting, unable to retrieve stored gatt, using the given gatt instead");
@@ -447,64 +823,83 @@ public class BluetoothManager {
 
         if (storedGatt != gatt) {
             log("while device disconnecting, stored gatt is different than the given gatt, get ready for another device disconnection handling call");
-            handleDeviceDisconnection(storedGatt);
+            handleDeviceDisconnection(session, storedGatt);
             storedGatt = gatt;
         }
 
-        GattExecutor executor = getExecutor(storedGatt);
+        GattExecutor executor = session.executor;
         if (executor == null) {
             log("While device disconnecting, unable to retrieve executor. Skipping executor clear");
         } else {
             executor.clear();
         }
 
-        connectedDevices.remove(deviceAddress);
+        session.onDisconnected();
 
         log(deviceAddress + " disconnected.");
 
 
         // FIX: Remove the executor is neccessary when the device is disconnected. There were scenarios when the executor kept running in the background.
-        GattExecutor e = getExecutor(gatt);
+        GattExecutor e = session.executor;
         if (e != null) {
             removeExecutor(e);
         }
 
-        if (ignoreInProgress.contains(deviceAddress) || isClosing || isBluetoothTurnedOff) {
+        if (session.ignoreInProgress || isClosing || isBluetoothTurnedOff) {
             closeGatt(gatt);
             removeFromLists(deviceAddress);
 
-            if (isClosing && gatts.isEmpty()) {
+            if (isClosing && numOfConnectedDevices() == 0) {
                 handleCloseAfterAllDevicesDisconnected();
             }
 
-            if (ignoreInProgress.contains(deviceAddress)) {
-                ignoredDevices.add(deviceAddress);
-                ignoreInProgress.remove(deviceAddress);
+            if (session.ignoreInProgress) {
+                session.ignored = true;
+                session.ignoreInProgress = false;
             }
         }
 
         notifyOnDeviceDisconnected(deviceAddress);
 
+        boolean resetRequested = session.resetRequested;
+        session.resetRequested = false;
+        if (resetRequested && !isClosing && !isBluetoothTurnedOff && session.gatt != null) {
+            log(deviceAddress + " reconnecting after reset");
+            try {
+                gatt.connect();
+            } catch (SecurityException se) {
+                log("Failed to call gatt.connect() - No permission granted (Android 12)");
+            }
+        }
+    }
+
+    private void onExecutorStalled(@NonNull String deviceAddress, long stalledFor, int consecutiveStalls) {
+        logError(deviceAddress + " operation queue stalled for " + stalledFor + "ms, " + consecutiveStalls + " in a row");
+        DeviceSession session = findSession(deviceAddress);
+        if (session != null && maxStallsBeforeReset > 0 && consecutiveStalls >= maxStallsBeforeReset && !session.resetRequested) {
+            session.resetRequested = true;
+            logError(deviceAddress + " resetting GATT connection after " + consecutiveStalls + " stalls");
+            disconnectDevice(deviceAddress);
+        }
     }
 
-    private void handleDeviceUnpaired(BluetoothGatt gatt) {
-        BluetoothDevice device = gatt.getDevice();
-        String deviceAddress = device.getAddress();
+    private void handleDeviceUnpaired(@NonNull DeviceSession session, BluetoothGatt gatt) {
+        String deviceAddress = session.deviceAddress;
 
-        BluetoothGatt storedGatt = gatts.get(deviceAddress);
+        BluetoothGatt storedGatt = session.gatt;
         if (storedGatt == null) {
             log("while trying to handle device unpaired, unable to retrieve stored gatt. Using the given gatt instead");
             storedGatt = gatt;
         }
 
-        GattExecutor executor = getExecutor(storedGatt);
+        GattExecutor executor = session.executor;
         if (executor == null) {
             log("while trying to handle device unpaired, unable to retrieve executor. Skipping executor clear");
         } else {
             executor.clear();
         }
 
-        connectedDevices.remove(deviceAddress);
+        session.onDisconnected();
 
         closeGatt(storedGatt);
         removeFromLists(deviceAddress);
@@ -513,7 +908,9 @@ public class BluetoothManager {
     }
 
     private void handleCloseAfterAllDevicesDisconnected() {
-        establishConnectionSent.clear();
+        for (DeviceSession session : sessions.values()) {
+            session.establishConnectionSent = false;
+        }
         isClosing = false;
         isClosed = true;
     }
@@ -533,84 +930,325 @@ public class BluetoothManager {
 
     private void removeFromLists(@NonNull String deviceAddress) {
         log("Removing " + deviceAddress + " from lists");
-        gatts.remove(deviceAddress);
-        establishConnectionSent.remove(deviceAddress);
+        DeviceSession session = findSession(deviceAddress);
+        if (session != null) {
+            session.gatt = null;
+            session.establishConnectionSent = false;
+        }
     }
 
     public void setupNotification(@NonNull final String deviceAddress, @NonNull UUID serviceUUID, @NonNull final UUID characteristicUUID) {
-        if (ignoredDevices.contains(deviceAddress)) {
-            return;
+        addNotificationOperation(deviceAddress, characteristicUUID, new SetNotificationOperation(serviceUUID, characteristicUUID), null);
+    }
+
+    /**
+     * Like {@link #setupNotification(String, UUID, UUID)}, the subscription is also reported to the listeners.
+     * @return a future that completes once notifications are enabled
+     */
+    public @NonNull GattFuture<Void> setupNotificationAsync(@NonNull final String deviceAddress, @NonNull UUID serviceUUID, @NonNull final UUID characteristicUUID) {
+        final GattFuture<Void> future = new GattFuture<>();
+        final SetNotificationOperation setNotificationOp = new SetNotificationOperation(serviceUUID, characteristicUUID);
+        setNotificationOp.addOnCompletionListener(data -> future.complete(null));
+        if (!addNotificationOperation(deviceAddress, characteristicUUID, setNotificationOp, future)) {
+            future.fail(new GattException(GattException.Reason.NOT_CONNECTED, ErrorStrings.SET_NOTIFICATION));
         }
+        return future;
+    }
 
-        final BluetoothGatt gatt = gatts.get(deviceAddress);
-        if (gatt == null) {
-            notifyOnError(deviceAddress, ERR_C_DEVICE_NOT_CONNECTED, ErrorStrings.SET_NOTIFICATION);
-            return;
+    /**
+     * @param future bound to the operation once the device's listeners are, so a missing characteristic refreshes a
+     * stale service table before the future fails
+     */
+    private boolean addNotificationOperation(@NonNull final String deviceAddress, @NonNull final UUID characteristicUUID, @NonNull SetNotificationOperation operation, @Nullable GattFuture<?> future) {
+        DeviceSession session = findSession(deviceAddress);
+        if (session != null && session.ignored) {
+            return false;
         }
 
-        GattOperation<?> setNotificationOp = new SetNotificationOperation(serviceUUID, characteristicUUID)
-                .addOnCompletionListener(data -> notifyOnNotificationSubscribed(deviceAddress, characteristicUUID))
-                .addOnErrorListener(msg -> notifyOnError(deviceAddress, ERR_C_DEVICE_NOT_CONNECTED, msg));
+        if (session == null || session.gatt == null) {
+            notifyOnError(deviceAddress, ERR_C_DEVICE_NOT_CONNECTED, ErrorStrings.SET_NOTIFICATION);
+            return false;
+        }
 
-        GattExecutor e = getExecutor(gatt);
-        if (e!= null) {
-            e.addOperation(setNotificationOp);
+        GattExecutor e = session.executor;
+        if (e == null) {
+            return false;
         }
 
+        GattOperation<?> setNotificationOp = operation
+                .addOnCompletionListener(data -> notifyOnNotificationSubscribed(deviceAddress, characteristicUUID))
+                .addOnErrorListener(msg -> notifyOnError(deviceAddress, ERR_C_DEVICE_NOT_CONNECTED, msg))
+                .addOnNotFoundListener(message -> {
+                    onCharacteristicMissing(deviceAddress);
+                    notifyOnError(deviceAddress, ERR_C_DEVICE_NOT_CONNECTED, message);
+                });
+        if (future != null) {
+            bindFuture(deviceAddress, setNotificationOp, future);
+        }
+        e.addOperation(setNotificationOp);
+        return true;
     }
 
-    public void readCharacteristic(@NonNull final String deviceAddress, @NonNull UUID serviceUUID, @NonNull final UUID characteristicUUID) {
-        if (ignoredDevices.contains(deviceAddress)) {
+    public void readCharacteristic(@NonNull final String deviceAddress, @NonNull final UUID serviceUUID, @NonNull final UUID characteristicUUID) {
+        DeviceSession session = findSession(deviceAddress);
+        if (session != null && session.ignored) {
             return;
         }
 
-        final BluetoothGatt gatt = gatts.get(deviceAddress);
-        if (gatt == null) {
+        if (session == null || session.gatt == null) {
             notifyOnError(deviceAddress, ERR_C_DEVICE_NOT_CONNECTED, ErrorStrings.READ_CHAR);
             return;
         }
 
-        GattOperation<?> characteristicReadOp = new CharacteristicReadOperation(serviceUUID, characteristicUUID)
+        eventLoop.execute(() -> queueRead(session, serviceUUID, characteristicUUID, null));
+    }
+
+    /**
+     * Like {@link #readCharacteristic(String, UUID, UUID)}, the value is also reported to the listeners. Overlapping
+     * requests share one read, cancelling the future only detaches it from that read.
+     * @return a future with the value read
+     */
+    public @NonNull GattFuture<byte[]> readCharacteristicAsync(@NonNull final String deviceAddress, @NonNull final UUID serviceUUID, @NonNull final UUID characteristicUUID) {
+        final GattFuture<byte[]> future = new GattFuture<>();
+        eventLoop.execute(() -> {
+            DeviceSession session = findSession(deviceAddress);
+            if (session == null || session.ignored || session.gatt == null || queueRead(session, serviceUUID, characteristicUUID, future) == null) {
+                future.fail(new GattException(GattException.Reason.NOT_CONNECTED, ErrorStrings.READ_CHAR));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Queues a read, unless the same read is already queued or running. Its result is reported to all listeners, so
+     * every request that overlaps with it gets that result. Called on the loop, which owns the in-flight reads.
+     * @param future if not null, completed with the result of the read
+     * @return the queued or running read, or null if the device has no executor
+     */
+    private @Nullable GattOperation<byte[]> queueRead(@NonNull DeviceSession session, @NonNull UUID serviceUUID, @NonNull final UUID characteristicUUID, @Nullable final GattFuture<byte[]> future) {
+        final String deviceAddress = session.deviceAddress;
+        GattExecutor e = session.executor;
+        if (e == null) {
+            return null;
+        }
+
+        final String key = serviceUUID.toString() + "/" + characteristicUUID.toString();
+        final Map<String, InFlightRead> deviceReads = session.inFlightReads;
+        InFlightRead inFlight = deviceReads.get(key);
+        if (inFlight != null) {
+            log("Read of " + characteristicUUID.toString() + " already in flight");
+            inFlight.attach(future);
+            return inFlight.operation;
+        }
+
+        final InFlightRead inFlightRead = new InFlightRead(new CharacteristicReadOperation(serviceUUID, characteristicUUID));
+        inFlightRead.attach(future);
+        deviceReads.put(key, inFlightRead);
+
+        // The registry entry goes first, so a read requested from one of the callbacks is queued again
+        GattOperation<byte[]> characteristicReadOp = inFlightRead.operation;
+        characteristicReadOp
+                .setPriority(OperationPriority.BACKGROUND)
+                .addOnCompletionListener(data -> {
+                    for (GattFuture<byte[]> f : removeInFlightRead(deviceReads, key, inFlightRead)) {
+                        f.complete(data);
+                    }
+                })
+                .addOnErrorListener(msg -> {
+                    for (GattFuture<byte[]> f : removeInFlightRead(deviceReads, key, inFlightRead)) {
+                        f.fail(new GattException(GattException.Reason.FAILED, msg));
+                    }
+                })
+                .addOnNotFoundListener(message -> {
+                    for (GattFuture<byte[]> f : removeInFlightRead(deviceReads, key, inFlightRead)) {
+                        f.fail(new GattException(GattException.Reason.NOT_FOUND, message));
+                    }
+                });
+        characteristicReadOp
                 .addOnCompletionListener(data -> notifyOnCharacteristicRead(deviceAddress, characteristicUUID, data))
                 .addOnErrorListener(msg -> notifyOnError(deviceAddress, ERR_C_DEVICE_NOT_CONNECTED, msg))
-                .addOnNotFoundListener(message -> notifyOnCharacteristicNotFound(deviceAddress, characteristicUUID));
+                .addOnNotFoundListener(message -> {
+                    onCharacteristicMissing(deviceAddress);
+                    notifyOnCharacteristicNotFound(deviceAddress, characteristicUUID);
+                });
 
-        GattExecutor e = getExecutor(gatt);
-        if (e!= null) {
-            e.addOperation(characteristicReadOp);
+        e.addOperation(characteristicReadOp);
+        return characteristicReadOp;
+    }
+
+    /**
+     * @return the futures waiting for the read
+     */
+    private @NonNull List<GattFuture<byte[]>> removeInFlightRead(@NonNull Map<String, InFlightRead> deviceReads, @NonNull String key, @NonNull InFlightRead inFlightRead) {
+        if (deviceReads.get(key) == inFlightRead) {
+            deviceReads.remove(key);
         }
+        return inFlightRead.detachAll();
+    }
+
+    /**
+     * Completes the future from the operation's callbacks, and drops the operation from the queue if the future is
+     * cancelled before it started.
+     */
+    private <T> void bindFuture(@NonNull final String deviceAddress, @NonNull final GattOperation<T> operation, @NonNull final GattFuture<?> future) {
+        operation
+                .addOnErrorListener(msg -> future.fail(new GattException(GattException.Reason.FAILED, msg)))
+                .addOnNotFoundListener(message -> future.fail(new GattException(GattException.Reason.NOT_FOUND, message)))
+                .addOnSupersededListener(message -> future.fail(new GattException(GattException.Reason.SUPERSEDED, message)));
+        future.addOnCancelListener(() -> {
+            GattExecutor e = getExecutor(deviceAddress);
+            if (e != null && e.cancel(operation)) {
+                log(operation.type().toString() + " operation cancelled");
+            }
+        });
 
+        // Registered on the loop, which owns the pending futures, before the operation gets there
+        eventLoop.execute(() -> {
+            DeviceSession session = findSession(deviceAddress);
+            if (session == null) {
+                return;
+            }
+            final Set<GattFuture<?>> futures = session.pendingFutures;
+            futures.add(future);
+            future.addCallback((v, e) -> eventLoop.execute(() -> futures.remove(future)));
+        });
     }
 
-    public void writeCharacteristic(@NonNull final String deviceAddress, @NonNull UUID serviceUUID, @NonNull final UUID characteristicUUID, @NonNull byte[] data) {
-        if (ignoredDevices.contains(deviceAddress)) {
+    /**
+     * The executor of the device was cleared, so its operations will never complete.
+     */
+    private void failPendingFutures(@NonNull String deviceAddress) {
+        DeviceSession session = findSession(deviceAddress);
+        if (session == null) {
             return;
         }
 
-        final BluetoothGatt gatt = gatts.get(deviceAddress);
-        if (gatt == null) {
+        for (GattFuture<?> future : session.detachFutures()) {
+            future.fail(new GattException(GattException.Reason.NOT_CONNECTED, ErrorStrings.DEVICE_DISCONNECTED));
+        }
+    }
+
+    public void writeCharacteristic(@NonNull final String deviceAddress, @NonNull UUID serviceUUID, @NonNull final UUID characteristicUUID, @NonNull byte[] data) {
+        writeCharacteristic(deviceAddress, serviceUUID, characteristicUUID, data, null, OperationPriority.CONTROL);
+    }
+
+    /**
+     * @param coalesceKey if not null, a queued write to the same characteristic with the same key is dropped in favor of this one
+     */
+    public void writeCharacteristic(@NonNull final String deviceAddress, @NonNull UUID serviceUUID, @NonNull final UUID characteristicUUID, @NonNull byte[] data, @Nullable String coalesceKey, @NonNull OperationPriority priority) {
+        writeCharacteristic(deviceAddress, serviceUUID, characteristicUUID, data, coalesceKey, priority, true);
+    }
+
+    /**
+     * @param retryable false for a command the device must not receive twice, see {@link GattOperation#setRetryable(boolean)}
+     */
+    public void writeCharacteristic(@NonNull final String deviceAddress, @NonNull UUID serviceUUID, @NonNull final UUID characteristicUUID, @NonNull byte[] data, @Nullable String coalesceKey, @NonNull OperationPriority priority, boolean retryable) {
+        CharacteristicWriteOperation operation = new CharacteristicWriteOperation(serviceUUID, characteristicUUID, data);
+        operation.setRetryable(retryable);
+        addWriteOperation(deviceAddress, characteristicUUID, operation, coalesceKey, priority);
+    }
+
+    /**
+     * Fire-and-forget write. Falls back to an acknowledged write if the characteristic doesn't support writes without response.
+     * @param coalesceKey if not null, a queued write to the same characteristic with the same key is dropped in favor of this one
+     */
+    public void writeCharacteristicWithoutResponse(@NonNull final String deviceAddress, @NonNull UUID serviceUUID, @NonNull final UUID characteristicUUID, @NonNull byte[] data, @Nullable String coalesceKey, @NonNull OperationPriority priority) {
+        writeCharacteristicWithoutResponse(deviceAddress, serviceUUID, characteristicUUID, data, coalesceKey, priority, true);
+    }
+
+    /**
+     * @param retryable false for a command the device must not receive twice, see {@link GattOperation#setRetryable(boolean)}
+     */
+    public void writeCharacteristicWithoutResponse(@NonNull final String deviceAddress, @NonNull UUID serviceUUID, @NonNull final UUID characteristicUUID, @NonNull byte[] data, @Nullable String coalesceKey, @NonNull OperationPriority priority, boolean retryable) {
+        CharacteristicWriteOperation operation = new CharacteristicWriteNoResponseOperation(serviceUUID, characteristicUUID, data);
+        operation.setRetryable(retryable);
+        addWriteOperation(deviceAddress, characteristicUUID, operation, coalesceKey, priority);
+    }
+
+    /**
+     * Like {@link #writeCharacteristic(String, UUID, UUID, byte[], String, OperationPriority)}, the write is also
+     * reported to the listeners. Cancelling the future drops the write if it was not started yet.
+     * @return a future with the value written. Fails with {@link GattException.Reason#SUPERSEDED} if a newer write with
+     * the same coalesce key replaced it.
+     */
+    public @NonNull GattFuture<byte[]> writeCharacteristicAsync(@NonNull final String deviceAddress, @NonNull UUID serviceUUID, @NonNull final UUID characteristicUUID, @NonNull byte[] data, @Nullable String coalesceKey, @NonNull OperationPriority priority) {
+        final GattFuture<byte[]> future = new GattFuture<>();
+        CharacteristicWriteOperation characteristicWriteOp = new CharacteristicWriteOperation(serviceUUID, characteristicUUID, data);
+        characteristicWriteOp.addOnCompletionListener(future::complete);
+        bindFuture(deviceAddress, characteristicWriteOp, future);
+        if (!addWriteOperation(deviceAddress, characteristicUUID, characteristicWriteOp, coalesceKey, priority)) {
+            future.fail(new GattException(GattException.Reason.NOT_CONNECTED, ErrorStrings.WRITE_CHAR));
+        }
+        return future;
+    }
+
+    /**
+     * @return false if the device is not connected
+     */
+    private boolean addWriteOperation(@NonNull final String deviceAddress, @NonNull final UUID characteristicUUID, @NonNull CharacteristicWriteOperation operation, @Nullable String coalesceKey, @NonNull OperationPriority priority) {
+        DeviceSession session = findSession(deviceAddress);
+        if (session != null && session.ignored) {
+            return false;
+        }
+
+        if (session == null || session.gatt == null) {
             notifyOnError(deviceAddress, ERR_C_DEVICE_NOT_CONNECTED, ErrorStrings.WRITE_CHAR);
-            return;
+            return false;
         }
 
-        GattOperation<?> characteristicWriteOp = new CharacteristicWriteOperation(serviceUUID, characteristicUUID, data)
+        GattOperation<?> characteristicWriteOp = operation
+                .setCoalesceKey(coalesceKey)
+                .setPriority(priority)
                 .addOnCompletionListener(data1 -> notifyOnCharacteristicWrite(deviceAddress, characteristicUUID, data1))
-                .addOnErrorListener(msg -> notifyOnError(deviceAddress, ERR_C_DEVICE_NOT_CONNECTED, msg));
+                .addOnErrorListener(msg -> notifyOnError(deviceAddress, ERR_C_DEVICE_NOT_CONNECTED, msg))
+                .addOnSupersededListener(message -> log("Write to " + characteristicUUID.toString() + " dropped - " + message));
 
-        GattExecutor e = getExecutor(gatt);
+        GattExecutor e = session.executor;
+        if (e == null) {
+            return false;
+        }
+        e.addOperation(characteristicWriteOp);
+        return true;
+    }
+
+    /**
+     * @param connectionPriority one of {@link BluetoothGatt#CONNECTION_PRIORITY_BALANCED}, {@link BluetoothGatt#CONNECTION_PRIORITY_HIGH}
+     *                           or {@link BluetoothGatt#CONNECTION_PRIORITY_LOW_POWER}
+     */
+    public void requestConnectionPriority(@NonNull final String deviceAddress, final int connectionPriority) {
+        DeviceSession session = findSession(deviceAddress);
+        if (session == null || session.ignored || session.gatt == null) {
+            return;
+        }
+
+        GattOperation<?> connectionPriorityOp = new ConnectionPriorityOperation(connectionPriority)
+                .addOnCompletionListener(data -> log(deviceAddress + " connection priority " + data))
+                .addOnErrorListener(msg -> logError("connectionPriorityOperation - " + msg));
+
+        GattExecutor e = session.executor;
         if (e!= null) {
-            e.addOperation(characteristicWriteOp);
+            e.addOperation(connectionPriorityOp);
         }
     }
 
+    /**
+     * @return the ATT MTU negotiated with the device, or {@link #DEFAULT_MTU} if none was negotiated
+     */
+    public int getMtu(@NonNull String deviceAddress) {
+        DeviceSession session = findSession(deviceAddress);
+        return session == null ? DEFAULT_MTU : session.mtu;
+    }
+
     private void disconnectAllDevices() {
-        for (String s : gatts.keySet()) {
-            disconnectDevice(s);
+        for (DeviceSession session : sessions.values()) {
+            if (session.gatt != null) {
+                disconnectDevice(session.deviceAddress);
+            }
         }
     }
 
     private void disconnectDevice(String deviceAddress) {
-        BluetoothGatt gatt = gatts.get(deviceAddress);
+        BluetoothGatt gatt = getGatt(deviceAddress);
         if (gatt == null) {
             return;
         }
@@ -621,13 +1259,46 @@ public class BluetoothManager {
         }
     }
 
+    /**
+     * A device gets its handle when it is first seen and keeps it until the process ends, even across connections.
+     * Handles are small and dense, starting at 0, so per-device state can be kept in arrays indexed by them.
+     * @return the handle of the device, or {@link #NO_HANDLE} if it isn't known
+     */
+    public int getDeviceHandle(@NonNull String deviceAddress) {
+        DeviceSession session = findSession(deviceAddress);
+        return session == null ? NO_HANDLE : session.handle;
+    }
+
+    /**
+     * @return the address of the device with the handle, or null if there is no such device
+     */
+    public @Nullable String getDeviceAddress(int deviceHandle) {
+        DeviceSession[] byHandle = sessionsByHandle;
+        return deviceHandle >= 0 && deviceHandle < byHandle.length ? byHandle[deviceHandle].deviceAddress : null;
+    }
+
     @NonNull
     public Set<String> getConnectedDevices() {
+        Set<String> connectedDevices = new HashSet<>();
+        for (DeviceSession session : sessions.values()) {
+            if (session.isConnected()) {
+                connectedDevices.add(session.deviceAddress);
+            }
+        }
         return connectedDevices;
     }
 
+    /**
+     * @return the devices with a GATT client, connecting ones included. {@link #close()} completes once none is left.
+     */
     public int numOfConnectedDevices() {
-        return gatts.size();
+        int count = 0;
+        for (DeviceSession session : sessions.values()) {
+            if (session.gatt != null) {
+                count++;
+            }
+        }
+        return count;
     }
 
     public boolean setBluetooth(boolean enable) {
@@ -647,11 +1318,12 @@ public class BluetoothManager {
     }
 
     public void refreshBond(String deviceAddress) {
-        if (ignoredDevices.contains(deviceAddress)) {
+        DeviceSession session = findSession(deviceAddress);
+        if (session == null || session.ignored) {
             return;
         }
 
-        BluetoothGatt gatt = gatts.get(deviceAddress);
+        BluetoothGatt gatt = session.gatt;
         if (gatt == null) {
             return;
         }
@@ -722,11 +1394,12 @@ public class BluetoothManager {
                 if (state == BluetoothDevice.BOND_NONE && prevState == BluetoothDevice.BOND_BONDED) {
                     log("Unpaired - " + device.toString());
 
-                    BluetoothGatt storedGatt = gatts.get(device.toString());
+                    DeviceSession session = findSession(device.toString());
+                    BluetoothGatt storedGatt = session == null ? null : session.gatt;
                     if (storedGatt == null) {
                         log("while trying to handle device unpaired, unable to retrieve stored gatt.");
                     } else {
-                        GattExecutor executor = getExecutor(storedGatt);
+                        GattExecutor executor = session.executor;
                         if (executor == null) {
                             log("while trying to handle device unpaired, unable to retrieve executor. Skipping executor clear");
                         } else {
@@ -734,7 +1407,9 @@ public class BluetoothManager {
                         }
                         closeGatt(storedGatt);
                     }
-                    connectedDevices.remove(device.toString());
+                    if (session != null) {
+                        session.onDisconnected();
+                    }
                     removeFromLists(device.toString());
 
                     if (restartBondRequested) {
@@ -746,14 +1421,17 @@ public class BluetoothManager {
     };
 
     private void handleBluetoothOff() {
-        establishConnectionSent.clear();
-        for (BluetoothGatt gatt: gatts.values()) {
-            handleDeviceDisconnection(gatt);
+        for (DeviceSession session : sessions.values()) {
+            session.establishConnectionSent = false;
+            BluetoothGatt gatt = session.gatt;
+            if (gatt != null) {
+                handleDeviceDisconnection(session, gatt);
+            }
         }
     }
 
     private void createBond(final BluetoothDevice device) {
-        if (ignoredDevices.contains(device.getAddress())) {
+        if (isIgnored(device.getAddress())) {
             return;
         }
 
@@ -781,7 +1459,7 @@ public class BluetoothManager {
     }
 
     private void removeBond(final BluetoothDevice device) {
-        if (ignoredDevices.contains(device.getAddress())) {
+        if (isIgnored(device.getAddress())) {
             return;
         }
 
@@ -811,23 +1489,26 @@ public class BluetoothManager {
     }
 
     private GattExecutor CreateExecutor(BluetoothGatt gatt) {
-        String deviceAddress = gatt.getDevice().getAddress();
-        if (executors.containsKey(deviceAddress)) {
-            return executors.get(deviceAddress);
+        DeviceSession session = getSession(gatt.getDevice().getAddress());
+        if (session.executor != null) {
+            return session.executor;
         }
-        GattExecutor executor = new GattExecutor(gatt);
-        executors.put(deviceAddress, executor);
+        GattExecutor executor = new GattExecutor(gatt, eventLoop);
+        executor.setRetryPolicy(retryPolicy);
+        for (Map.Entry<OperationPriority, QueueLimit> entry : queueLimits.entrySet()) {
+            executor.setQueueLimit(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<OperationType, Long> entry : timeoutOverrides.entrySet()) {
+            executor.getTimeouts().setOverride(entry.getKey(), entry.getValue());
+        }
+        session.executor = executor;
+        watchdog.start();
         return executor;
     }
 
     private GattExecutor getExecutor(BluetoothGatt gatt) {
-        String deviceAddress = gatt.getDevice().getAddress();
-        if (executors.containsKey(deviceAddress)) {
-            return executors.get(deviceAddress);
-        }
-
         // Fix: Don't create a new executor . Creation of the executor should happen once - when the gatt is connecting.
-        return null;
+        return getExecutor(gatt.getDevice().getAddress());
 //        if (createNewIfNull) {
 //            log("Creating new executor");
 //            GattExecutor executor = new GattExecutor(gatt);
@@ -839,15 +1520,34 @@ public class BluetoothManager {
 //        return new GattExecutor(gatt);
     }
 
+    private static @Nullable GattExecutor getExecutor(@NonNull String deviceAddress) {
+        DeviceSession session = sessions.get(deviceAddress);
+        return session == null ? null : session.executor;
+    }
+
+    /**
+     * @return the executors of all devices, a copy
+     */
+    private static @NonNull List<GattExecutor> getExecutors() {
+        List<GattExecutor> executors = new ArrayList<>();
+        for (DeviceSession session : sessions.values()) {
+            GattExecutor executor = session.executor;
+            if (executor != null) {
+                executors.add(executor);
+            }
+        }
+        return executors;
+    }
+
     private void addExecutor(GattExecutor executor) {
-        String deviceAddress = executor.getDeviceAddress();
-        if (executors.containsKey(deviceAddress)) {
+        DeviceSession session = getSession(executor.getDeviceAddress());
+        if (session.executor != null) {
             log("Executor already exists...");
-            if (executors.get(deviceAddress) != executor) {
+            if (session.executor != executor) {
                 logError("Did you just create a different executor?");
             }
         } else {
-            executors.put(deviceAddress, executor);
+            session.executor = executor;
         }
     }
 
@@ -855,10 +1555,54 @@ public class BluetoothManager {
     private void removeExecutor(GattExecutor executor) {
         if (executor != null) {
             executor.clear();
-            executors.remove(executor.getDeviceAddress());
+            DeviceSession session = findSession(executor.getDeviceAddress());
+            if (session != null) {
+                session.executor = null;
+            }
+            failPendingFutures(executor.getDeviceAddress());
+            if (getExecutors().isEmpty()) {
+                watchdog.stop();
+            }
         }
     }
 
+    /**
+     * @return the session of the device, created if the device is new
+     */
+    private static @NonNull DeviceSession getSession(@NonNull String deviceAddress) {
+        DeviceSession session = sessions.get(deviceAddress);
+        if (session != null) {
+            return session;
+        }
+        synchronized (sessions) {
+            session = sessions.get(deviceAddress);
+            if (session == null) {
+                int handle = sessionsByHandle.length;
+                session = new DeviceSession(handle, deviceAddress);
+                session.ignored = ignoredUnknownDevices.remove(deviceAddress);
+                DeviceSession[] byHandle = Arrays.copyOf(sessionsByHandle, handle + 1);
+                byHandle[handle] = session;
+                sessionsByHandle = byHandle;
+                sessions.put(deviceAddress, session);
+            }
+            return session;
+        }
+    }
+
+    private static @Nullable DeviceSession findSession(@NonNull String deviceAddress) {
+        return sessions.get(deviceAddress);
+    }
+
+    private static @Nullable BluetoothGatt getGatt(@NonNull String deviceAddress) {
+        DeviceSession session = sessions.get(deviceAddress);
+        return session == null ? null : session.gatt;
+    }
+
+    private static boolean isIgnored(@NonNull String deviceAddress) {
+        DeviceSession session = sessions.get(deviceAddress);
+        return session == null ? ignoredUnknownDevices.contains(deviceAddress) : session.ignored;
+    }
+
     private void notifyOnBluetoothTurnedOn() {
         bluetoothListeners.notifyAll(BluetoothListener::onBluetoothTurnedOn);
     }
@@ -899,12 +1643,22 @@ public class BluetoothManager {
         bluetoothListeners.notifyAll(listener -> listener.onNotificationSubscribed(deviceAddress, characteristic));
     }
 
-    private void notifyOnNotificationReceived(@NonNull final String deviceAddress, @NonNull final UUID characteristic, @NonNull final byte[] data) {
-        bluetoothListeners.notifyAll(listener -> listener.onNotificationReceived(deviceAddress, characteristic, data));
+    private void notifyOnNotificationReceived(@NonNull final DeviceSession session, @NonNull final UUID characteristic, @NonNull final byte[] data) {
+        bluetoothListeners.notifyAll(listener -> {
+            if (listener instanceof DeviceHandleListener) {
+                ((DeviceHandleListener) listener).onNotificationReceived(session.handle, characteristic, data);
+            } else {
+                listener.onNotificationReceived(session.deviceAddress, characteristic, data);
+            }
+        });
     }
 
     private void notifyOnError(@NonNull final String deviceAddress, final int code, @NonNull final String description) {
-        connectionInProgress.clear();
+        for (DeviceSession session : sessions.values()) {
+            if (session.state == DeviceSession.State.CONNECTING) {
+                session.state = DeviceSession.State.CONNECTED;
+            }
+        }
         bluetoothListeners.notifyAll(listener -> listener.onError(deviceAddress, code, description));
     }
 
@@ -917,4 +1671,32 @@ public class BluetoothManager {
     protected void logError(String message) {
         Log.e(TAG, message);
     }
+
+    /**
+     * A queued or running read, and the futures waiting for it. Only touched on the loop.
+     */
+    static class InFlightRead {
+
+        final GattOperation<byte[]> operation;
+        private final List<GattFuture<byte[]>> futures = new ArrayList<>();
+
+        InFlightRead(@NonNull GattOperation<byte[]> operation) {
+            this.operation = operation;
+        }
+
+        void attach(@Nullable final GattFuture<byte[]> future) {
+            if (future == null) {
+                return;
+            }
+            // A cancelled future stays attached until the read ends, completing it then does nothing. The read
+            // itself may be shared, so it is not cancelled.
+            futures.add(future);
+        }
+
+        @NonNull List<GattFuture<byte[]>> detachAll() {
+            List<GattFuture<byte[]>> detached = new ArrayList<>(futures);
+            futures.clear();
+            return detached;
+        }
+    }
 }
@@ -0,0 +1,112 @@
+package com.tapwithus.sdk.bluetooth;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * What to do with the events of each characteristic, so an event is dispatched with a single lookup instead of
+ * comparing its characteristic against every known one. Filled once, read only afterwards.
+ */
+class CharacteristicRegistry {
+
+    interface OnValue {
+        void onValue(@NonNull String deviceAddress, @NonNull byte[] data);
+    }
+
+    interface OnEvent {
+        void onEvent(@NonNull String deviceAddress);
+    }
+
+    interface OnNotification {
+        void onNotification(int deviceHandle, @NonNull byte[] data);
+    }
+
+    /**
+     * The handlers of one characteristic, events without a handler are ignored.
+     */
+    static class Entry {
+
+        private OnValue onRead;
+        private OnEvent onNotFound;
+        private OnValue onWrite;
+        private OnEvent onSubscribed;
+        private OnNotification onNotification;
+
+        @NonNull Entry onRead(@NonNull OnValue onRead) {
+            this.onRead = onRead;
+            return this;
+        }
+
+        @NonNull Entry onNotFound(@NonNull OnEvent onNotFound) {
+            this.onNotFound = onNotFound;
+            return this;
+        }
+
+        @NonNull Entry onWrite(@NonNull OnValue onWrite) {
+            this.onWrite = onWrite;
+            return this;
+        }
+
+        @NonNull Entry onSubscribed(@NonNull OnEvent onSubscribed) {
+            this.onSubscribed = onSubscribed;
+            return this;
+        }
+
+        @NonNull Entry onNotification(@NonNull OnNotification onNotification) {
+            this.onNotification = onNotification;
+            return this;
+        }
+    }
+
+    private final Map<UUID, Entry> entries = new HashMap<>();
+
+    /**
+     * @return the entry of the characteristic, to set its handlers on
+     */
+    @NonNull Entry register(@NonNull UUID characteristic) {
+        Entry entry = entries.get(characteristic);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(characteristic, entry);
+        }
+        return entry;
+    }
+
+    void dispatchRead(@NonNull UUID characteristic, @NonNull String deviceAddress, @NonNull byte[] data) {
+        Entry entry = entries.get(characteristic);
+        if (entry != null && entry.onRead != null) {
+            entry.onRead.onValue(deviceAddress, data);
+        }
+    }
+
+    void dispatchNotFound(@NonNull UUID characteristic, @NonNull String deviceAddress) {
+        Entry entry = entries.get(characteristic);
+        if (entry != null && entry.onNotFound != null) {
+            entry.onNotFound.onEvent(deviceAddress);
+        }
+    }
+
+    void dispatchWrite(@NonNull UUID characteristic, @NonNull String deviceAddress, @NonNull byte[] data) {
+        Entry entry = entries.get(characteristic);
+        if (entry != null && entry.onWrite != null) {
+            entry.onWrite.onValue(deviceAddress, data);
+        }
+    }
+
+    void dispatchSubscribed(@NonNull UUID characteristic, @NonNull String deviceAddress) {
+        Entry entry = entries.get(characteristic);
+        if (entry != null && entry.onSubscribed != null) {
+            entry.onSubscribed.onEvent(deviceAddress);
+        }
+    }
+
+    void dispatchNotification(@NonNull UUID characteristic, int deviceHandle, @NonNull byte[] data) {
+        Entry entry = entries.get(characteristic);
+        if (entry != null && entry.onNotification != null) {
+            entry.onNotification.onNotification(deviceHandle, data);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.tapwithus.sdk.bluetooth;
+
+import androidx.annotation.NonNull;
+
+import java.util.UUID;
+
+/**
+ * Optional interface for a {@link BluetoothListener} that wants notifications by device handle instead of by address,
+ * see {@link BluetoothManager#getDeviceHandle(String)}. Listeners implementing it don't get
+ * {@link BluetoothListener#onNotificationReceived} calls.
+ */
+public interface DeviceHandleListener {
+
+    void onNotificationReceived(int deviceHandle, @NonNull UUID characteristic, @NonNull byte[] data);
+}
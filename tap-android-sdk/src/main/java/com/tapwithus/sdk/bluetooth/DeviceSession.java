@@ -0,0 +1,91 @@
+package com.tapwithus.sdk.bluetooth;
+
+import android.bluetooth.BluetoothGatt;
+
+import androidx.annotation.NonNull;
+
+import com.tapwithus.sdk.bluetooth.operations.GattExecutor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Everything {@link BluetoothManager} knows about a single device, so a callback looks the device up once instead of
+ * once per piece of state. A session lives as long as the device is known to the manager, its connection comes and
+ * goes.
+ * <p>
+ * Written on the {@link SdkEventLoop} only. The connection fields are volatile, as public methods like
+ * {@link BluetoothManager#getMtu(String)} read them from app threads. The in-flight reads and pending futures are only
+ * touched on the loop, so they are plain collections.
+ */
+class DeviceSession {
+
+    enum State {
+        DISCONNECTED,
+        /** The GATT connection is up, its services are being discovered. */
+        CONNECTING,
+        CONNECTED
+    }
+
+    /** See {@link BluetoothManager#getDeviceHandle(String)}. */
+    final int handle;
+    final String deviceAddress;
+
+    volatile BluetoothGatt gatt;
+    volatile GattExecutor executor;
+    volatile State state = State.DISCONNECTED;
+    volatile int mtu = BluetoothManager.DEFAULT_MTU;
+
+    volatile boolean establishConnectionSent = false;
+    volatile boolean ignored = false;
+    volatile boolean ignoreInProgress = false;
+    // The GATT connection is being reset after stalls
+    volatile boolean resetRequested = false;
+    // The current connection skipped the GATT refresh
+    volatile boolean refreshSkipped = false;
+
+    // Reads that are queued or running, by service and characteristic
+    final Map<String, BluetoothManager.InFlightRead> inFlightReads = new HashMap<>();
+    // Futures of queued or running writes and subscriptions
+    final Set<GattFuture<?>> pendingFutures = new HashSet<>();
+
+    DeviceSession(int handle, @NonNull String deviceAddress) {
+        this.handle = handle;
+        this.deviceAddress = deviceAddress;
+    }
+
+    boolean isConnected() {
+        return state != State.DISCONNECTED;
+    }
+
+    boolean isIgnored() {
+        return ignored || ignoreInProgress;
+    }
+
+    /**
+     * Called once the connection went down, the session itself stays.
+     */
+    void onDisconnected() {
+        state = State.DISCONNECTED;
+        mtu = BluetoothManager.DEFAULT_MTU;
+        refreshSkipped = false;
+    }
+
+    /**
+     * @return the futures of the reads and writes of the device, which will never complete now
+     */
+    @NonNull List<GattFuture<?>> detachFutures() {
+        List<GattFuture<?>> futures = new ArrayList<>();
+        for (BluetoothManager.InFlightRead inFlightRead : inFlightReads.values()) {
+            futures.addAll(inFlightRead.detachAll());
+        }
+        inFlightReads.clear();
+        futures.addAll(pendingFutures);
+        pendingFutures.clear();
+        return futures;
+    }
+}
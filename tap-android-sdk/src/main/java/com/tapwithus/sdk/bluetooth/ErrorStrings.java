@@ -18,6 +18,11 @@ public class ErrorStrings {
     public static final String REFRESH_OP_INIT_FAIL = "Failed clearing the internal cache of the remote device";
     public static final String LACKING_PERMISSION_FAIL = "Operation prevented by not having permissions (Android 12)";
     public static final String GATT_FAILURE = "GATT operation failure";
+    public static final String MTU_OP_INIT_FAIL = "The MTU exchange was not initiated successfully";
+    public static final String MTU_OP_FAIL = "The MTU exchange failed";
+    public static final String CONNECTION_PRIORITY_OP_INIT_FAIL = "The connection priority request was not accepted";
+    public static final String PHY_OP_FAIL = "The preferred PHY could not be set";
+    public static final String QUEUE_FULL = "The operation queue of the device is full";
 
     public static final String BLUETOOTH_OFF = "Bluetooth is turned OFF";
     public static final String BLUETOOTH_NOT_SUPPORTED = "Bluetooth is not supported on this hardware platform";
@@ -25,4 +30,5 @@ public class ErrorStrings {
     public static final String SET_NOTIFICATION = "Device is not connected to set notification";
     public static final String READ_CHAR = "Device is not connected to read characteristic";
     public static final String WRITE_CHAR = "Device is not connected to write characteristic";
+    public static final String DEVICE_DISCONNECTED = "Device disconnected before the operation completed";
 }
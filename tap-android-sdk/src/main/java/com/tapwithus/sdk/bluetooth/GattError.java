@@ -9,6 +9,46 @@ import android.bluetooth.BluetoothGatt;
  */
 public class GattError {
 
+    /** Pseudo status of a failure that has no GATT status, e.g. a missing characteristic or permission. */
+    public static final int NO_STATUS = -1;
+    /** Pseudo status of an operation the stack refused to start, usually because it was busy. */
+    public static final int INIT_FAILED = -2;
+    /** Pseudo status of an operation that got no callback before its timeout. */
+    public static final int TIMEOUT = -3;
+    /** Pseudo status of an operation the executor rejected because its queue was full. */
+    public static final int QUEUE_FULL = -4;
+
+    /**
+     * Whether an operation that failed with the status may succeed if it is tried again: the stack or the link was
+     * busy, congested or briefly lost. Anything else, like a missing attribute or insufficient authentication, fails
+     * the same way every time.
+     * <p>
+     * Only for the status of an operation callback. Connection statuses share some numbers with a different meaning,
+     * e.g. 8 is a connection timeout but an insufficient authorization for an operation.
+     * @param status a GATT status, or one of the pseudo statuses of this class
+     */
+    public static boolean isTransient(final int status) {
+        switch (status) {
+            case INIT_FAILED:
+            case TIMEOUT:
+            case 0x0011: // GATT INSUF RESOURCE
+            case 0x0022: // GATT CONN LMP TIMEOUT
+            case 0x002A: // HCI ERROR DIFF TRANSACTION COLLISION
+            case 0x003A: // GATT CONTROLLER BUSY
+            case 0x0080: // GATT NO RESOURCES
+            case 0x0081: // GATT INTERNAL ERROR
+            case 0x0084: // GATT BUSY
+            case 0x0085: // GATT ERROR
+            case 0x0086: // GATT CMD STARTED
+            case 0x0088: // GATT PENDING
+            case 0x008f: // GATT CONGESTED
+            case 0x00FE: // GATT PROCEDURE IN PROGRESS
+                return true;
+            default:
+                return false;
+        }
+    }
+
     /**
      * Converts the connection status given by the {@link android.bluetooth.BluetoothGattCallback#onConnectionStateChange(android.bluetooth.BluetoothGatt, int, int)} to error name.
      * @param error the status number
@@ -46,6 +86,14 @@ public class GattError {
      */
     public static String parse(final int error) {
         switch (error) {
+            case NO_STATUS:
+                return "NO STATUS";
+            case INIT_FAILED:
+                return "INIT FAILED";
+            case TIMEOUT:
+                return "TIMEOUT";
+            case QUEUE_FULL:
+                return "QUEUE FULL";
             case 0x0001:
                 return "GATT INVALID HANDLE";
             case 0x0002:
@@ -0,0 +1,38 @@
+package com.tapwithus.sdk.bluetooth;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The reason a {@link GattFuture} failed.
+ */
+public class GattException extends Exception {
+
+    public enum Reason {
+        /** The operation failed, see the message for the GATT error. */
+        FAILED,
+        /** The service, characteristic or descriptor was not found. */
+        NOT_FOUND,
+        /** A newer operation made the queued one redundant. */
+        SUPERSEDED,
+        /** The future timed out before the operation finished. */
+        TIMEOUT,
+        /** The device is not connected. */
+        NOT_CONNECTED,
+    }
+
+    private final Reason reason;
+
+    public GattException(@NonNull Reason reason, @NonNull String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public GattException(@NonNull Reason reason, @NonNull String message, @NonNull Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+    }
+
+    public @NonNull Reason getReason() {
+        return reason;
+    }
+}
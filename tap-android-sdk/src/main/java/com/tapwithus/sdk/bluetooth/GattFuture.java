@@ -0,0 +1,294 @@
+package com.tapwithus.sdk.bluetooth;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.tapwithus.sdk.bluetooth.operations.GattOperation;
+import com.tapwithus.sdk.bluetooth.operations.GattScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Result of an asynchronous GATT operation - a small stand-in for {@code CompletableFuture}, which needs API 24.
+ * <p>
+ * Callbacks run on the thread that completes the future, the {@link SdkEventLoop} for the futures of the SDK, or right
+ * away if the future is already done. They should not block. As the loop is also the thread listeners are notified on,
+ * waiting for a pending future with {@link #get()} from a callback or a listener would never return, so it throws
+ * instead. A failed future holds a {@link GattException}, unless a chained function threw something else.
+ */
+public class GattFuture<T> implements Future<T> {
+
+    public interface Callback<T> {
+        /**
+         * @param value the result, if the future succeeded
+         * @param error the failure, or a {@link CancellationException} if the future was cancelled
+         */
+        void onComplete(@Nullable T value, @Nullable Exception error);
+    }
+
+    public interface Function<T, R> {
+        R apply(T value) throws Exception;
+    }
+
+    private static final int PENDING = 0;
+    private static final int SUCCEEDED = 1;
+    private static final int FAILED = 2;
+    private static final int CANCELLED = 3;
+    // Failed with GattException.Reason.TIMEOUT by withTimeout, which counts as cancelled for the cancel listeners
+    private static final int TIMED_OUT = 4;
+
+    private int state = PENDING;
+    private T value;
+    private Exception error;
+    private final List<Callback<T>> callbacks = new ArrayList<>();
+    private final List<Runnable> cancelListeners = new ArrayList<>();
+
+    @NonNull
+    public static <T> GattFuture<T> completed(@Nullable T value) {
+        GattFuture<T> future = new GattFuture<>();
+        future.complete(value);
+        return future;
+    }
+
+    @NonNull
+    public static <T> GattFuture<T> failed(@NonNull Exception error) {
+        GattFuture<T> future = new GattFuture<>();
+        future.fail(error);
+        return future;
+    }
+
+    /**
+     * @return false if the future was already done
+     */
+    public boolean complete(@Nullable T value) {
+        return finish(SUCCEEDED, value, null);
+    }
+
+    /**
+     * @return false if the future was already done
+     */
+    public boolean fail(@NonNull Exception error) {
+        return finish(FAILED, null, error);
+    }
+
+    /**
+     * Cancels the future and, if it was not started yet, the operation behind it.
+     * @param mayInterruptIfRunning ignored, a running GATT operation can't be interrupted
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!finish(CANCELLED, null, new CancellationException())) {
+            return false;
+        }
+        runCancelListeners();
+        return true;
+    }
+
+    /**
+     * Fails the future with {@link GattException.Reason#TIMEOUT} if it isn't done within the given time. The operation
+     * behind it is cancelled if it was not started yet.
+     * @return this
+     */
+    public @NonNull GattFuture<T> withTimeout(long timeoutMillis) {
+        final GattScheduler.Task task = GattOperation.getScheduler().schedule(() -> {
+            if (finish(TIMED_OUT, null, new GattException(GattException.Reason.TIMEOUT, "Timed out after " + timeoutMillis + "ms"))) {
+                runCancelListeners();
+            }
+        }, timeoutMillis);
+        addCallback((v, e) -> task.cancel());
+        return this;
+    }
+
+    /**
+     * @return this
+     */
+    public @NonNull GattFuture<T> addCallback(@NonNull Callback<T> callback) {
+        synchronized (this) {
+            if (state == PENDING) {
+                callbacks.add(callback);
+                return this;
+            }
+        }
+        callback.onComplete(value, error);
+        return this;
+    }
+
+    /**
+     * Runs when the future is cancelled or times out, e.g. to drop the operation behind it from the queue. Runs right
+     * away if the future already was.
+     * @return this
+     */
+    public @NonNull GattFuture<T> addOnCancelListener(@NonNull Runnable listener) {
+        synchronized (this) {
+            if (state == PENDING) {
+                cancelListeners.add(listener);
+                return this;
+            }
+            if (state != CANCELLED && state != TIMED_OUT) {
+                return this;
+            }
+        }
+        listener.run();
+        return this;
+    }
+
+    /**
+     * @return a future with the result of the function applied to the result of this one. Cancelling it cancels this
+     * one.
+     */
+    @NonNull
+    public <R> GattFuture<R> thenApply(@NonNull final Function<? super T, ? extends R> function) {
+        final GattFuture<R> next = new GattFuture<>();
+        next.addOnCancelListener(() -> cancel(false));
+        addCallback((v, e) -> {
+            if (e != null) {
+                next.propagate(e);
+                return;
+            }
+            try {
+                next.complete(function.apply(v));
+            } catch (Exception ex) {
+                next.fail(ex);
+            }
+        });
+        return next;
+    }
+
+    /**
+     * Chains a dependent operation.
+     * @return a future with the result of the future returned by the function. Cancelling it cancels this one, or
+     * the dependent one once it was started.
+     */
+    @NonNull
+    public <R> GattFuture<R> thenCompose(@NonNull final Function<? super T, GattFuture<R>> function) {
+        final GattFuture<R> next = new GattFuture<>();
+        next.addOnCancelListener(() -> cancel(false));
+        addCallback((v, e) -> {
+            if (e != null) {
+                next.propagate(e);
+                return;
+            }
+            final GattFuture<R> dependent;
+            try {
+                dependent = function.apply(v);
+            } catch (Exception ex) {
+                next.fail(ex);
+                return;
+            }
+            next.addOnCancelListener(() -> dependent.cancel(false));
+            dependent.addCallback((r, e2) -> {
+                if (e2 != null) {
+                    next.propagate(e2);
+                } else {
+                    next.complete(r);
+                }
+            });
+        });
+        return next;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return state != PENDING;
+    }
+
+    /**
+     * @throws IllegalStateException if the future is pending and this is called on the {@link SdkEventLoop}, which
+     * would have to complete it
+     */
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        checkNotBlockingLoop();
+        while (state == PENDING) {
+            wait();
+        }
+        return getResult();
+    }
+
+    /**
+     * @throws IllegalStateException if the future is pending and this is called on the {@link SdkEventLoop}, which
+     * would have to complete it
+     */
+    @Override
+    public synchronized T get(long timeout, @NonNull TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        checkNotBlockingLoop();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (state == PENDING) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return getResult();
+    }
+
+    private void checkNotBlockingLoop() {
+        if (state == PENDING && SdkEventLoop.isDefaultLoopThread()) {
+            throw new IllegalStateException("Waiting for a pending GattFuture on the SDK event loop, use addCallback instead");
+        }
+    }
+
+    private T getResult() throws ExecutionException {
+        if (state == CANCELLED) {
+            throw new CancellationException();
+        }
+        if (state == FAILED || state == TIMED_OUT) {
+            throw new ExecutionException(error);
+        }
+        return value;
+    }
+
+    private void propagate(@NonNull Exception e) {
+        if (e instanceof CancellationException) {
+            cancel(false);
+        } else {
+            fail(e);
+        }
+    }
+
+    private boolean finish(int state, @Nullable T value, @Nullable Exception error) {
+        List<Callback<T>> toNotify;
+        synchronized (this) {
+            if (this.state != PENDING) {
+                return false;
+            }
+            this.state = state;
+            this.value = value;
+            this.error = error;
+            toNotify = new ArrayList<>(callbacks);
+            callbacks.clear();
+            if (state == SUCCEEDED || state == FAILED) {
+                cancelListeners.clear();
+            }
+            notifyAll();
+        }
+
+        for (Callback<T> callback : toNotify) {
+            callback.onComplete(value, error);
+        }
+        return true;
+    }
+
+    private void runCancelListeners() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            toRun = new ArrayList<>(cancelListeners);
+            cancelListeners.clear();
+        }
+        for (Runnable listener : toRun) {
+            listener.run();
+        }
+    }
+}
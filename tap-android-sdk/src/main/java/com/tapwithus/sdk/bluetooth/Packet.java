@@ -10,46 +10,83 @@ public class Packet {
     private static final int BYTE_SIZE = 8;
 
     private byte[] data;
+    private int offset;
+    private int length;
+    private final int size;
     private boolean lsb;
-
-    private StringBuilder binaryDataStringBuilder = new StringBuilder();
+    private boolean wrapping = false;
 
     public Packet(byte[] data, int size) {
         this(data, size, true);
     }
 
     public Packet(byte[] data, int size, boolean lsb) {
+        this.size = size;
         initData(data, size);
         this.lsb = lsb;
     }
 
+    /**
+     * Returns the packet payload. For a packet that {@link #wrap(byte[], int, int) wraps} an external buffer,
+     * a copy of the wrapped window is returned.
+     */
     public byte[] getData() {
+        if (wrapping) {
+            byte[] d = new byte[size];
+            System.arraycopy(data, offset, d, 0, length);
+            return d;
+        }
         return data;
     }
 
-    private void initData(byte[] data, int size) {
-        byte[] d = data.clone();
-        if (d.length > size) {
-            d = Arrays.copyOfRange(d, 0, size);
-        }
-        if (d.length < size) {
-            d = concat(d, new byte[size - d.length]);
-        }
-        setData(d);
+    public int getSize() {
+        return size;
     }
 
-    public String getBinaryDataString() {
-        return binaryDataStringBuilder.toString();
+    /**
+     * Re-points this packet at {@code length} bytes of {@code data} starting at {@code offset}, without copying.
+     * Bytes missing from the window (when {@code length} is smaller than the packet size) read as zero.
+     * <p>
+     * A wrapping packet is a flyweight - it is only valid as long as the wrapped buffer is not reused,
+     * which for notification packets means during the listener callback. Use {@link #copy()} to keep the data.
+     * @return this
+     */
+    public Packet wrap(byte[] data, int offset, int length) {
+        this.data = data;
+        this.offset = offset;
+        this.length = Math.max(0, Math.min(length, size));
+        this.wrapping = true;
+        return this;
+    }
+
+    /**
+     * @return a packet owning a copy of this packet's data, which stays valid after a flyweight is re-pointed
+     */
+    public Packet copy() {
+        return new Packet(getData(), size, lsb);
+    }
+
+    private void initData(byte[] data, int size) {
+        // Copies, truncates or zero pads the given data to the packet size
+        this.data = Arrays.copyOf(data, size);
+        this.offset = 0;
+        this.length = size;
     }
 
     private void setData(byte[] data) {
-        // Set the binaryDataStringBuilder based on the given data
-        binaryDataStringBuilder.setLength(0);
-        for (byte b: data) {
-            String binaryString = byteToBinaryString(b);
-            binaryDataStringBuilder.append(binaryString);
+        if (wrapping) {
+            System.arraycopy(data, 0, this.data, offset, Math.min(length, data.length));
+        } else {
+            this.data = Arrays.copyOf(data, size);
         }
-        this.data = data;
+    }
+
+    public String getBinaryDataString() {
+        StringBuilder binaryDataStringBuilder = new StringBuilder();
+        for (byte b: getData()) {
+            binaryDataStringBuilder.append(byteToBinaryString(b));
+        }
+        return binaryDataStringBuilder.toString();
     }
 
     private String byteToBinaryString(byte b) {
@@ -74,7 +111,7 @@ public class Packet {
     }
 
     private String getMsbString(int start, int size) {
-        return binaryDataStringBuilder.substring(start, start + size);
+        return getBinaryDataString().substring(start, start + size);
     }
 
     public void set(int startIndex, int size, String data) {
@@ -92,13 +129,13 @@ public class Packet {
         String binaryString = getBinaryDataString();
         binaryString = setL(binaryString, startIndex, size, data);
 
-        this.binaryDataStringBuilder = new StringBuilder(binaryString);
-        this.data = binaryStringToByteArray(binaryString);
+        setData(binaryStringToByteArray(binaryString));
     }
 
     private void updateMsbData(int startIndex, int size, String data) {
+        StringBuilder binaryDataStringBuilder = new StringBuilder(getBinaryDataString());
         binaryDataStringBuilder.replace(startIndex, startIndex + size, data);
-        this.data = binaryStringToByteArray(binaryDataStringBuilder.toString());
+        setData(binaryStringToByteArray(binaryDataStringBuilder.toString()));
     }
 
     private String substring(String s, int startIndex, int size) {
@@ -126,18 +163,6 @@ public class Packet {
         return b & 0xFF;
     }
 
-    private byte[] concat(byte[] a, byte[] b) {
-        int aLen = a.length;
-        int bLen = b.length;
-
-        byte[] c = new byte[aLen + bLen];
-
-        System.arraycopy(a, 0, c, 0, aLen);
-        System.arraycopy(b, 0, c, aLen, bLen);
-
-        return c;
-    }
-
     public String reverseBinaryString(String binaryString) {
         String[] chunks = chunk(binaryString);
         String[] reversedChunks = reverseBytes(chunks);
@@ -326,6 +351,36 @@ public class Packet {
         return bitIndex % BYTE_SIZE;
     }
 
+    private long read(int startIndex, int size) {
+        if (lsb) {
+            return PacketCodec.readLsb(data, offset, length, startIndex, size);
+        }
+        return PacketCodec.readMsb(data, offset, length, startIndex, size);
+    }
+
+    private byte[] readBytes(int startIndex, int size) {
+        if (lsb) {
+            return PacketCodec.readLsbBytes(data, offset, length, startIndex, size);
+        }
+        return PacketCodec.readMsbBytes(data, offset, length, startIndex, size);
+    }
+
+    private void write(int startIndex, int size, long value) {
+        if (lsb) {
+            PacketCodec.writeLsb(data, offset, length, startIndex, size, value);
+        } else {
+            PacketCodec.writeMsb(data, offset, length, startIndex, size, value);
+        }
+    }
+
+    private void writeBytes(int startIndex, int size, byte[] value) {
+        if (lsb) {
+            PacketCodec.writeLsbBytes(data, offset, length, startIndex, size, value);
+        } else {
+            PacketCodec.writeMsbBytes(data, offset, length, startIndex, size, value);
+        }
+    }
+
     public class PacketValue {
 
         private int startIndex;
@@ -337,74 +392,55 @@ public class Packet {
         }
 
         public String getString() {
-            String binaryString = Packet.this.getString(startIndex, size);
-            String reversedData = new String(binaryStringToByteArray(binaryString)).trim();
+            String reversedData = new String(readBytes(startIndex, size)).trim();
             return reverse(reversedData);
         }
 
         public boolean getBoolean() {
-            String binaryString = Packet.this.getString(startIndex, size);
-            return Integer.parseInt(binaryString, 2) == 1;
+            return read(startIndex, size) == 1;
         }
 
         public int getInt() {
-            String binaryString = Packet.this.getString(startIndex, size);
-            return (int) (byte) Integer.parseInt(binaryString, 2);
+            return (int) (byte) read(startIndex, size);
         }
 
         public int getUnsignedInt() {
-            String binaryString = Packet.this.getString(startIndex, size);
-            return Integer.parseInt(binaryString, 2);
+            return (int) read(startIndex, size);
         }
 
         public long getLong() {
-            String binaryString = Packet.this.getString(startIndex, size);
-            return (long) (byte) Long.parseLong(binaryString, 2);
+            return (long) (byte) read(startIndex, size);
         }
 
         public long getUnsignedLong() {
-            String binaryString = Packet.this.getString(startIndex, size);
-            return Long.parseLong(binaryString, 2);
+            return read(startIndex, size);
         }
 
         public void set(boolean data) {
-            Packet.this.set(startIndex, size, toNumericalString(data));
+            write(startIndex, size, data ? 1 : 0);
         }
 
+        /**
+         * @param data a negative value is taken as a byte
+         * @throws IllegalArgumentException if the value doesn't fit in the field
+         */
         public void set(int data) {
-            String binaryString = toBinaryString(data, size);
-
-            Packet.this.set(startIndex, size, binaryString);
+            int intValue = data;
+            if (intValue < 0) {
+                intValue += 256;
+            }
+            write(startIndex, size, intValue & 0xFFFFFFFFL);
         }
 
         public void set(String data) {
             byte[] dataBytes = reverse(data).getBytes();
 
-            StringBuilder sb = new StringBuilder();
-            for (byte b: dataBytes) {
-                sb.append(byteToBinaryString(b));
-            }
-
             // Add leading zeros
-            for (int i = dataBytes.length; i < (size / BYTE_SIZE); ++i) {
-                sb.insert(0, byteToBinaryString((byte) 0x0));
-            }
+            int numOfBytes = Math.max(dataBytes.length, size / BYTE_SIZE);
+            byte[] value = new byte[numOfBytes];
+            System.arraycopy(dataBytes, 0, value, numOfBytes - dataBytes.length, dataBytes.length);
 
-            Packet.this.set(startIndex, size, sb.toString());
-        }
-
-        private String toNumericalString(boolean data) {
-            return data ? "1" : "0";
-        }
-
-        private String toBinaryString(int num, int size) {
-            int intValue = num;
-            if (intValue < 0) {
-                intValue += 256;
-            }
-            return String
-                    .format("%" + size + "s", Integer.toBinaryString(intValue))
-                    .replace(' ', '0');
+            writeBytes(startIndex, size, value);
         }
     }
 }
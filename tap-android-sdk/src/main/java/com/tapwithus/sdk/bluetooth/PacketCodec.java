@@ -0,0 +1,317 @@
+package com.tapwithus.sdk.bluetooth;
+
+/**
+ * Reads and writes {@link Packet} bit fields straight from a byte array, using shifts and masks
+ * instead of binary strings.
+ * <p>
+ * The LSB layout is bit for bit compatible with the string based {@link Packet#getL(String, int, int)}
+ * / {@link Packet#setL(String, int, int, String)} implementation, including its byte chunk reversal.
+ * In practice this means byte aligned fields are little-endian integers and fields that fit in a single
+ * byte are read as {@code (b >>> bit) & mask}. Fields that are neither keep the legacy bit ordering.
+ * <p>
+ * Every method works on the window {@code [offset, offset + length)} of the given array. Bits outside
+ * of the window are read as zero and are never written.
+ * <p>
+ * Numeric values must fit their field. The legacy implementation wrote the binary string of a wider value
+ * as it was, which could change bits outside of the field, so such values are rejected instead.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class PacketCodec {
+
+    private static final int BYTE_SIZE = 8;
+
+    private PacketCodec() {
+
+    }
+
+    public static long readLsb(byte[] data, int offset, int length, int startBit, int size) {
+        if (size <= 0) {
+            return 0;
+        }
+
+        int byteIndex = startBit / BYTE_SIZE;
+        int bitIndex = startBit % BYTE_SIZE;
+
+        // Field is contained in a single byte
+        if (bitIndex + size <= BYTE_SIZE) {
+            return (byteAt(data, offset, length, byteIndex) >>> bitIndex) & mask(size);
+        }
+
+        // Byte aligned field, little-endian
+        if (bitIndex == 0 && size % BYTE_SIZE == 0) {
+            long value = 0;
+            for (int i = size / BYTE_SIZE - 1; i >= 0; i--) {
+                value = (value << BYTE_SIZE) | byteAt(data, offset, length, byteIndex + i);
+            }
+            return value;
+        }
+
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            if (lsbFieldBit(data, offset, length, startBit, size, i) != 0) {
+                int resultBit = lsbResultBit(startBit, size, i);
+                if (resultBit < Long.SIZE) {
+                    value |= 1L << resultBit;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Reads an LSB field as the sequence of bytes the legacy implementation produced from its binary string,
+     * most significant byte first.
+     */
+    public static byte[] readLsbBytes(byte[] data, int offset, int length, int startBit, int size) {
+        if (size <= 0) {
+            return new byte[0];
+        }
+
+        int byteIndex = startBit / BYTE_SIZE;
+        int bitIndex = startBit % BYTE_SIZE;
+
+        if (bitIndex + size <= BYTE_SIZE) {
+            return new byte[] { (byte) readLsb(data, offset, length, startBit, size) };
+        }
+
+        if (bitIndex == 0 && size % BYTE_SIZE == 0) {
+            int numOfBytes = size / BYTE_SIZE;
+            byte[] bytes = new byte[numOfBytes];
+            for (int i = 0; i < numOfBytes; i++) {
+                bytes[i] = (byte) byteAt(data, offset, length, byteIndex + numOfBytes - 1 - i);
+            }
+            return bytes;
+        }
+
+        byte[] bytes = new byte[lsbResultSize(startBit, size) / BYTE_SIZE];
+        for (int i = 0; i < size; i++) {
+            if (lsbFieldBit(data, offset, length, startBit, size, i) != 0) {
+                int resultBit = lsbResultBit(startBit, size, i);
+                bytes[bytes.length - 1 - resultBit / BYTE_SIZE] |= (byte) (1 << (resultBit % BYTE_SIZE));
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @param value the unsigned bits of the value
+     * @throws IllegalArgumentException if the value doesn't fit in {@code size} bits
+     */
+    public static void writeLsb(byte[] data, int offset, int length, int startBit, int size, long value) {
+        if (size <= 0) {
+            return;
+        }
+        checkFits(size, value);
+
+        int byteIndex = startBit / BYTE_SIZE;
+        int bitIndex = startBit % BYTE_SIZE;
+
+        if (bitIndex + size <= BYTE_SIZE) {
+            int m = (int) mask(size) << bitIndex;
+            int b = (byteAt(data, offset, length, byteIndex) & ~m) | (((int) value << bitIndex) & m);
+            setByteAt(data, offset, length, byteIndex, b);
+            return;
+        }
+
+        if (bitIndex == 0 && size % BYTE_SIZE == 0) {
+            for (int i = 0; i < size / BYTE_SIZE; i++) {
+                setByteAt(data, offset, length, byteIndex + i, (int) (value >>> (i * BYTE_SIZE)));
+            }
+            return;
+        }
+
+        // The legacy implementation formatted the value as a binary string of 'size' characters and reversed
+        // its byte chunks
+        int lastChunk = (size - 1) / BYTE_SIZE;
+        int lastChunkSize = size - lastChunk * BYTE_SIZE;
+        for (int i = 0; i < size; i++) {
+            int valueBit;
+            if (i < lastChunkSize) {
+                valueBit = lastChunkSize - 1 - i;
+            } else {
+                int chunk = lastChunk - 1 - (i - lastChunkSize) / BYTE_SIZE;
+                valueBit = size - 1 - chunk * BYTE_SIZE - (i - lastChunkSize) % BYTE_SIZE;
+            }
+            int bit = valueBit < Long.SIZE ? (int) (value >>> valueBit) & 1 : 0;
+            setLsbFieldBit(data, offset, length, startBit, size, i, bit);
+        }
+    }
+
+    /**
+     * Writes an LSB field from a byte sequence, most significant byte first. If the sequence is longer
+     * than the field only its last {@code size} bits are kept, and if it is shorter it is zero padded.
+     */
+    public static void writeLsbBytes(byte[] data, int offset, int length, int startBit, int size, byte[] value) {
+        if (size <= 0) {
+            return;
+        }
+
+        int valueSize = value.length * BYTE_SIZE;
+        for (int i = 0; i < size; i++) {
+            // Byte chunks are reversed before being written, so read the value from its last byte
+            int w = i + valueSize - size;
+            int bit = 0;
+            if (w >= 0) {
+                bit = (value[value.length - 1 - w / BYTE_SIZE] >>> (BYTE_SIZE - 1 - w % BYTE_SIZE)) & 1;
+            }
+            setLsbFieldBit(data, offset, length, startBit, size, i, bit);
+        }
+    }
+
+    public static long readMsb(byte[] data, int offset, int length, int startBit, int size) {
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            value = (value << 1) | msbBit(data, offset, length, startBit + i);
+        }
+        return value;
+    }
+
+    /**
+     * Reads an MSB field as bytes of 8 bits, most significant byte first. If the size is not a multiple
+     * of 8, the last byte holds the remaining bits.
+     */
+    public static byte[] readMsbBytes(byte[] data, int offset, int length, int startBit, int size) {
+        if (size <= 0) {
+            return new byte[0];
+        }
+
+        byte[] bytes = new byte[(size + BYTE_SIZE - 1) / BYTE_SIZE];
+        for (int i = 0; i < bytes.length; i++) {
+            int chunkSize = Math.min(BYTE_SIZE, size - i * BYTE_SIZE);
+            bytes[i] = (byte) readMsb(data, offset, length, startBit + i * BYTE_SIZE, chunkSize);
+        }
+        return bytes;
+    }
+
+    /**
+     * @param value the unsigned bits of the value
+     * @throws IllegalArgumentException if the value doesn't fit in {@code size} bits
+     */
+    public static void writeMsb(byte[] data, int offset, int length, int startBit, int size, long value) {
+        checkFits(size, value);
+        for (int i = 0; i < size; i++) {
+            int valueBit = size - 1 - i;
+            int bit = valueBit < Long.SIZE ? (int) (value >>> valueBit) & 1 : 0;
+            setMsbBit(data, offset, length, startBit + i, bit);
+        }
+    }
+
+    public static void writeMsbBytes(byte[] data, int offset, int length, int startBit, int size, byte[] value) {
+        int valueSize = value.length * BYTE_SIZE;
+        for (int i = 0; i < size; i++) {
+            int w = i + valueSize - size;
+            int bit = 0;
+            if (w >= 0) {
+                bit = (value[w / BYTE_SIZE] >>> (BYTE_SIZE - 1 - w % BYTE_SIZE)) & 1;
+            }
+            setMsbBit(data, offset, length, startBit + i, bit);
+        }
+    }
+
+    /*
+     * LSB layout.
+     *
+     * The legacy getL walks the field starting at bit (startBit % 8) of its first byte, taking the bits of
+     * every byte from the highest one used down to the lowest. Call the i-th bit of that walk the i-th field bit.
+     * The walk is split into one segment per byte, and getL left pads the last two segments together and then
+     * the whole walk with zeros to whole bytes. The padded string is then read with its byte chunks reversed.
+     */
+
+    private static int lsbFieldBitAddress(int startBit, int size, int i) {
+        int byteIndex = startBit / BYTE_SIZE;
+        int bitIndex = startBit % BYTE_SIZE;
+        int firstSegmentSize = Math.min(BYTE_SIZE - bitIndex, size);
+        if (i < firstSegmentSize) {
+            return byteIndex * BYTE_SIZE + bitIndex + firstSegmentSize - 1 - i;
+        }
+
+        int j = i - firstSegmentSize;
+        int segment = j / BYTE_SIZE;
+        int segmentSize = Math.min(BYTE_SIZE, size - firstSegmentSize - segment * BYTE_SIZE);
+        return (byteIndex + 1 + segment) * BYTE_SIZE + segmentSize - 1 - j % BYTE_SIZE;
+    }
+
+    private static int lsbFieldBit(byte[] data, int offset, int length, int startBit, int size, int i) {
+        int address = lsbFieldBitAddress(startBit, size, i);
+        return (byteAt(data, offset, length, address / BYTE_SIZE) >>> (address % BYTE_SIZE)) & 1;
+    }
+
+    private static void setLsbFieldBit(byte[] data, int offset, int length, int startBit, int size, int i, int bit) {
+        int address = lsbFieldBitAddress(startBit, size, i);
+        int byteIndex = address / BYTE_SIZE;
+        int m = 1 << (address % BYTE_SIZE);
+        int b = byteAt(data, offset, length, byteIndex);
+        setByteAt(data, offset, length, byteIndex, bit != 0 ? b | m : b & ~m);
+    }
+
+    /**
+     * Position of the i-th field bit in the value read back, for fields spanning more than one byte.
+     */
+    private static int lsbResultBit(int startBit, int size, int i) {
+        int bitIndex = startBit % BYTE_SIZE;
+        int firstSegmentSize = BYTE_SIZE - bitIndex;
+        int remaining = size - firstSegmentSize;
+        int numOfSegments = (remaining + BYTE_SIZE - 1) / BYTE_SIZE;
+        int lastSegmentSize = remaining - (numOfSegments - 1) * BYTE_SIZE;
+
+        int leadingZeros;
+        int middleZeros;
+        if (numOfSegments == 1) {
+            leadingZeros = (bitIndex - lastSegmentSize + BYTE_SIZE) % BYTE_SIZE;
+            middleZeros = 0;
+        } else {
+            leadingZeros = bitIndex;
+            middleZeros = (BYTE_SIZE - lastSegmentSize) % BYTE_SIZE;
+        }
+
+        // The middle zeros pad the last two segments, which getL joins first
+        int middleStart = firstSegmentSize + (numOfSegments - 2) * BYTE_SIZE;
+        int p = i < middleStart ? leadingZeros + i : leadingZeros + middleZeros + i;
+        return (p / BYTE_SIZE) * BYTE_SIZE + BYTE_SIZE - 1 - p % BYTE_SIZE;
+    }
+
+    private static int lsbResultSize(int startBit, int size) {
+        int bitIndex = startBit % BYTE_SIZE;
+        int remaining = size - (BYTE_SIZE - bitIndex);
+        int numOfSegments = (remaining + BYTE_SIZE - 1) / BYTE_SIZE;
+        return numOfSegments == 1 ? (remaining <= bitIndex ? BYTE_SIZE : 2 * BYTE_SIZE) : numOfSegments * BYTE_SIZE + BYTE_SIZE;
+    }
+
+    /*
+     * MSB layout - bit 0 is the most significant bit of the first byte.
+     */
+
+    private static int msbBit(byte[] data, int offset, int length, int bit) {
+        return (byteAt(data, offset, length, bit / BYTE_SIZE) >>> (BYTE_SIZE - 1 - bit % BYTE_SIZE)) & 1;
+    }
+
+    private static void setMsbBit(byte[] data, int offset, int length, int bit, int value) {
+        int byteIndex = bit / BYTE_SIZE;
+        int m = 1 << (BYTE_SIZE - 1 - bit % BYTE_SIZE);
+        int b = byteAt(data, offset, length, byteIndex);
+        setByteAt(data, offset, length, byteIndex, value != 0 ? b | m : b & ~m);
+    }
+
+    private static int byteAt(byte[] data, int offset, int length, int index) {
+        if (index < 0 || index >= length) {
+            return 0;
+        }
+        return data[offset + index] & 0xFF;
+    }
+
+    private static void setByteAt(byte[] data, int offset, int length, int index, int value) {
+        if (index >= 0 && index < length) {
+            data[offset + index] = (byte) value;
+        }
+    }
+
+    private static void checkFits(int size, long value) {
+        if (size < Long.SIZE && (value >>> size) != 0) {
+            throw new IllegalArgumentException("Value " + value + " doesn't fit in " + size + " bits");
+        }
+    }
+
+    private static long mask(int size) {
+        return size >= Long.SIZE ? -1L : (1L << size) - 1;
+    }
+}
@@ -0,0 +1,114 @@
+package com.tapwithus.sdk.bluetooth;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.tapwithus.sdk.bluetooth.operations.GattScheduler;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The single thread the SDK runs its Bluetooth work on. GATT callbacks, broadcasts, operation timeouts and delays and
+ * the raw sensor mode loop all hop onto it, so state they share is only touched from one thread, in order.
+ * <p>
+ * Listeners of the SDK are notified on this thread. They should not block it.
+ * <p>
+ * The default loop is never quit, its thread lives as long as the process. Closing a {@link BluetoothManager} leaves it
+ * running, as the next manager, or a timeout or callback still in flight, may use it. An idle loop only blocks on its
+ * queue.
+ */
+public class SdkEventLoop implements Executor, GattScheduler {
+
+    private static final String THREAD_NAME = "TapSdkEventLoop";
+
+    private static SdkEventLoop defaultLoop;
+
+    private final HandlerThread thread;
+    private final Handler handler;
+
+    /**
+     * @return the loop shared by the SDK, started on first use and never quit
+     */
+    public static synchronized @NonNull SdkEventLoop getDefault() {
+        if (defaultLoop == null) {
+            defaultLoop = new SdkEventLoop();
+        }
+        return defaultLoop;
+    }
+
+    /**
+     * @return true if called on the loop shared by the SDK, false if it wasn't created yet
+     */
+    static synchronized boolean isDefaultLoopThread() {
+        return defaultLoop != null && defaultLoop.isCurrentThread();
+    }
+
+    @VisibleForTesting
+    static synchronized void setDefault(@Nullable SdkEventLoop loop) {
+        defaultLoop = loop;
+    }
+
+    public SdkEventLoop() {
+        this(startThread());
+    }
+
+    /**
+     * @param thread the thread of the loop, started by the caller
+     */
+    @VisibleForTesting
+    SdkEventLoop(@NonNull HandlerThread thread) {
+        this.thread = thread;
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    private static @NonNull HandlerThread startThread() {
+        HandlerThread thread = new HandlerThread(THREAD_NAME);
+        thread.start();
+        return thread;
+    }
+
+    public @NonNull Looper getLooper() {
+        return thread.getLooper();
+    }
+
+    public @NonNull Handler getHandler() {
+        return handler;
+    }
+
+    public boolean isCurrentThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Runs the runnable right away if called on the loop, otherwise posts it.
+     */
+    @Override
+    public void execute(@NonNull Runnable runnable) {
+        if (isCurrentThread()) {
+            runnable.run();
+        } else {
+            handler.post(runnable);
+        }
+    }
+
+    /**
+     * Posts the runnable, even if called on the loop.
+     */
+    public void post(@NonNull Runnable runnable) {
+        handler.post(runnable);
+    }
+
+    @NonNull
+    @Override
+    public Task schedule(@NonNull final Runnable runnable, long delayMillis) {
+        // A wrapper per call, so cancelling doesn't remove other posts of the same runnable
+        final Runnable task = () -> runnable.run();
+        handler.postDelayed(task, delayMillis);
+        return () -> handler.removeCallbacks(task);
+    }
+}
@@ -0,0 +1,104 @@
+package com.tapwithus.sdk.bluetooth;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Remembers a fingerprint of the service table of every device, together with the firmware version it was seen with,
+ * so a reconnecting device with an unchanged table can skip the GATT refresh.
+ */
+class ServiceTableStore {
+
+    private static final String PREFERENCES_NAME = "com.tapwithus.sdk.service_tables";
+    private static final String FINGERPRINT_SUFFIX = ".fingerprint";
+    private static final String VERSION_SUFFIX = ".version";
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final SharedPreferences preferences;
+
+    ServiceTableStore(@NonNull Context context) {
+        this.preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    boolean hasFingerprint(@NonNull String deviceAddress) {
+        return preferences.contains(deviceAddress + FINGERPRINT_SUFFIX);
+    }
+
+    long getFingerprint(@NonNull String deviceAddress) {
+        return preferences.getLong(deviceAddress + FINGERPRINT_SUFFIX, 0);
+    }
+
+    @Nullable String getVersion(@NonNull String deviceAddress) {
+        return preferences.getString(deviceAddress + VERSION_SUFFIX, null);
+    }
+
+    /**
+     * Stores the fingerprint. The version is kept if the fingerprint didn't change.
+     */
+    void putFingerprint(@NonNull String deviceAddress, long fingerprint) {
+        if (hasFingerprint(deviceAddress) && getFingerprint(deviceAddress) == fingerprint) {
+            return;
+        }
+        preferences.edit()
+                .putLong(deviceAddress + FINGERPRINT_SUFFIX, fingerprint)
+                .remove(deviceAddress + VERSION_SUFFIX)
+                .apply();
+    }
+
+    void putVersion(@NonNull String deviceAddress, @NonNull String version) {
+        preferences.edit().putString(deviceAddress + VERSION_SUFFIX, version).apply();
+    }
+
+    void remove(@NonNull String deviceAddress) {
+        preferences.edit()
+                .remove(deviceAddress + FINGERPRINT_SUFFIX)
+                .remove(deviceAddress + VERSION_SUFFIX)
+                .apply();
+    }
+
+    /**
+     * FNV-1a over the service UUIDs, and the UUIDs and properties of their characteristics, in UUID order.
+     */
+    static long fingerprint(@NonNull List<BluetoothGattService> services) {
+        List<BluetoothGattService> sortedServices = new ArrayList<>(services);
+        Collections.sort(sortedServices, (s1, s2) -> s1.getUuid().compareTo(s2.getUuid()));
+
+        long hash = FNV_OFFSET_BASIS;
+        for (BluetoothGattService service : sortedServices) {
+            hash = hash(hash, service.getUuid());
+
+            List<BluetoothGattCharacteristic> characteristics = new ArrayList<>(service.getCharacteristics());
+            Collections.sort(characteristics, (c1, c2) -> c1.getUuid().compareTo(c2.getUuid()));
+            for (BluetoothGattCharacteristic characteristic : characteristics) {
+                hash = hash(hash, characteristic.getUuid());
+                hash = hash(hash, characteristic.getProperties());
+            }
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, @NonNull UUID uuid) {
+        hash = hash(hash, uuid.getMostSignificantBits());
+        return hash(hash, uuid.getLeastSignificantBits());
+    }
+
+    private static long hash(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,30 @@
+package com.tapwithus.sdk.bluetooth;
+
+import androidx.annotation.NonNull;
+
+import com.tapwithus.sdk.airmouse.AirMousePacket;
+import com.tapwithus.sdk.mouse.MousePacket;
+
+/**
+ * Optional interface for a {@link TapBluetoothListener} that wants the input of a Tap by its handle instead of by its
+ * address, see {@link TapBluetoothManager#getTapHandle(String)}. Listeners implementing it don't get the matching
+ * {@link TapBluetoothListener} calls.
+ */
+public interface TapBluetoothHandleListener {
+    void onTapInputReceived(int tapHandle, int data, int repeatData);
+    void onTapShiftSwitchReceived(int tapHandle, int data);
+
+    /**
+     * The packet wraps the notification buffer and is reused for the next notification of the same Tap,
+     * so it is only valid during this callback. Use {@link MousePacket#copy()} to keep it.
+     */
+    void onMouseInputReceived(int tapHandle, @NonNull MousePacket data);
+
+    /**
+     * The packet wraps the notification buffer and is reused for the next notification of the same Tap,
+     * so it is only valid during this callback. Use {@link AirMousePacket#copy()} to keep it.
+     */
+    void onAirMouseInputReceived(int tapHandle, @NonNull AirMousePacket data);
+
+    void onRawSensorDataReceived(int tapHandle, @NonNull byte[] data);
+}
@@ -30,8 +30,19 @@ public interface TapBluetoothListener {
     void onDataRequestSubscribed(@NonNull String tapAddress);
     void onTapInputReceived(@NonNull String tapAddress, int data, int repeatData);
     void onTapShiftSwitchReceived(@NonNull String tapAddress, int data);
+
+    /**
+     * The packet wraps the notification buffer and is reused for the next notification of the same Tap,
+     * so it is only valid during this callback. Use {@link MousePacket#copy()} to keep it.
+     */
     void onMouseInputReceived(@NonNull String tapAddress, @NonNull MousePacket data);
+
+    /**
+     * The packet wraps the notification buffer and is reused for the next notification of the same Tap,
+     * so it is only valid during this callback. Use {@link AirMousePacket#copy()} to keep it.
+     */
     void onAirMouseInputReceived(@NonNull String tapAddress, @NonNull AirMousePacket data);
+
     void onRawSensorInputSubscribed(@NonNull String tapAddress);
     void onTapChangedState(@NonNull String tapIdentifier, int state);
     void onError(@NonNull String tapAddress, int code, @NonNull String description);
@@ -3,10 +3,12 @@ package com.tapwithus.sdk.bluetooth;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.tapwithus.sdk.ListenerManager;
 import com.tapwithus.sdk.NotifyAction;
 import com.tapwithus.sdk.airmouse.AirMousePacket;
+import com.tapwithus.sdk.bluetooth.operations.OperationPriority;
 import com.tapwithus.sdk.haptic.HapticPacket;
 import com.tapwithus.sdk.mouse.MousePacket;
 
@@ -25,6 +27,9 @@ public class TapBluetoothManager {
     // the value '-15' given here is equivalent to byte value of 241 in ones' complement
     private static final byte[] REQUEST_SHIFT_SWITCH_STATE = new byte[] { -15, 0 };
 
+    private static final String COALESCE_KEY_MODE = "mode";
+    private static final String COALESCE_KEY_XR_STATE = "xr_state";
+
     protected static final UUID TAP = UUID.fromString("C3FF0001-1D8B-40FD-A56F-C7BD5D0F3370");
     protected static final UUID DEVICE_INFORMATION = UUID.fromString("0000180A-0000-1000-8000-00805F9B34FB");
     protected static final UUID BATTERY = UUID.fromString("0000180F-0000-1000-8000-00805F9B34FB");
@@ -46,15 +51,128 @@ public class TapBluetoothManager {
 
     protected BluetoothManager bluetoothManager;
     private ListenerManager<TapBluetoothListener> tapBluetoothListeners = new ListenerManager<>();
+    private final CharacteristicRegistry characteristics = new CharacteristicRegistry();
+
+    // Flyweight packets by Tap handle, re-pointed at every incoming notification of the matching device.
+    // Only touched on the event loop.
+    private MousePacket[] mousePackets = new MousePacket[0];
+    private AirMousePacket[] airMousePackets = new AirMousePacket[0];
 
     private boolean debug = true;
 
     private boolean modesEnabled = true;
     public TapBluetoothManager(@NonNull BluetoothManager bluetoothManager) {
         this.bluetoothManager = bluetoothManager;
+        registerCharacteristics();
         this.bluetoothManager.registerBluetoothListener(bluetoothListener);
     }
 
+    private void registerCharacteristics() {
+        characteristics.register(NAME)
+                .onRead((tapAddress, data) -> notifyOnNameRead(tapAddress, new String(data, StandardCharsets.UTF_8)))
+                .onNotFound(tapAddress -> notifyOnNameRead(tapAddress, "Unavailable"))
+                .onWrite((tapAddress, data) -> {
+                    log("Name Changed");
+                    notifyOnNameWrite(tapAddress, new String(data, StandardCharsets.UTF_8));
+                });
+        characteristics.register(BATTERY_LEVEL)
+                .onRead((tapAddress, data) -> notifyOnBatteryRead(tapAddress, data[0] & 0xFF))
+                .onNotFound(tapAddress -> notifyOnBatteryRead(tapAddress, -2));
+        characteristics.register(SERIAL_NAME_STRING)
+                .onRead((tapAddress, data) -> notifyOnSerialNumberRead(tapAddress, new String(data)))
+                .onNotFound(tapAddress -> notifyOnSerialNumberRead(tapAddress, "Unavailable"));
+        characteristics.register(HARDWARE_REVISION_STRING)
+                .onRead((tapAddress, data) -> notifyOnHwVerRead(tapAddress, new String(data)))
+                .onNotFound(tapAddress -> notifyOnHwVerRead(tapAddress, "Unavailable"));
+        characteristics.register(FIRMWARE_REVISION_STRING)
+                .onRead((tapAddress, data) -> {
+                    String fwVer = new String(data);
+                    bluetoothManager.validateServiceTable(tapAddress, fwVer);
+                    notifyOnFwVerRead(tapAddress, fwVer);
+                })
+                .onNotFound(tapAddress -> notifyOnFwVerRead(tapAddress, "Unavailable"));
+        characteristics.register(SOFTWARE_REVISION_STRING)
+                .onRead((tapAddress, data) -> notifyOnBootloaderVerRead(tapAddress, new String(data)))
+                .onNotFound(tapAddress -> notifyOnBootloaderVerRead(tapAddress, "Unavailable"));
+
+        characteristics.register(TAP_DATA)
+                .onNotification(this::onTapData)
+                .onSubscribed(tapAddress -> {
+                    log("Tap notification subscribed");
+                    notifyOnTapInputSubscribed(tapAddress);
+                });
+        characteristics.register(MOUSE_DATA)
+                .onNotification(this::onMouseData)
+                .onSubscribed(tapAddress -> {
+                    log("Mouse notification subscribed");
+                    notifyOnMouseInputSubscribed(tapAddress);
+                });
+        characteristics.register(AIR_MOUSE_DATA)
+                .onNotification(this::onAirMouseData)
+                .onRead(readAsNotification(this::onAirMouseData))
+                .onSubscribed(tapAddress -> {
+                    log("Air mouse notification subscribed");
+//                    requestReadTapState(tapAddress);
+                    notifyOnAirMouseDataSubscribed(tapAddress);
+                });
+        characteristics.register(TX)
+                .onNotification(this::notifyOnRawSensorInputReceived)
+                .onRead(readAsNotification(this::notifyOnRawSensorInputReceived))
+                .onSubscribed(tapAddress -> {
+                    log("Raw sensor notification subscribed");
+                    notifyOnRawSensorDataSubscribed(tapAddress);
+                });
+        characteristics.register(DATA_REQUEST)
+                .onNotification(this::onDataRequest)
+                .onRead(readAsNotification(this::onDataRequest))
+                .onSubscribed(tapAddress -> {
+                    log("DataRequest notification subscribed");
+                    notifyOnDataRequestSubscribed(tapAddress);
+                });
+    }
+
+    private @NonNull CharacteristicRegistry.OnValue readAsNotification(@NonNull final CharacteristicRegistry.OnNotification onNotification) {
+        return (tapAddress, data) -> {
+            int tapHandle = getTapHandle(tapAddress);
+            if (tapHandle != BluetoothManager.NO_HANDLE) {
+                onNotification.onNotification(tapHandle, data);
+            }
+        };
+    }
+
+    private void onTapData(int tapHandle, @NonNull byte[] data) {
+        int byte3 = 0;
+        if (data.length > 3) {
+            byte3 = data[3];
+        }
+        if (data[0] != 0) {
+            // we are now going to send byte [3] into the same function to decide single/double/triple
+            notifyOnTapInputReceived(tapHandle, data[0], byte3);
+        }
+        notifyOnTapShiftSWitchReceived(tapHandle, byte3);
+    }
+
+    private void onMouseData(int tapHandle, @NonNull byte[] data) {
+        // The first byte is not part of the mouse packet
+        MousePacket mousePacket = getMousePacket(tapHandle).wrap(data, 1, data.length - 1);
+        notifyOnMouseInputReceived(tapHandle, mousePacket);
+    }
+
+    private void onAirMouseData(int tapHandle, @NonNull byte[] data) {
+        AirMousePacket airMousePacket = getAirMousePacket(tapHandle).wrap(data, 0, data.length);
+        if (airMousePacket.gesture.getInt() == 20) {
+            notifyOnTapChangedState(getTapAddress(tapHandle), airMousePacket.state.getInt());
+        } else {
+            notifyOnAirMouseInputReceived(tapHandle, airMousePacket);
+        }
+    }
+
+    private void onDataRequest(int tapHandle, @NonNull byte[] data) {
+        // should deal with this like a character which has come in - nothing should come here
+        // so if something comes in let's give an error
+        logError("!!! Notification Received  on DATA REQUEST channel" + Arrays.toString(data));
+    }
+
     public void enableModes() {
         this.modesEnabled = true;
     }
@@ -107,6 +225,21 @@ public class TapBluetoothManager {
 
 
 
+    /**
+     * @return the handle of the Tap, or {@link BluetoothManager#NO_HANDLE} if it isn't known
+     * @see BluetoothManager#getDeviceHandle(String)
+     */
+    public int getTapHandle(@NonNull String tapAddress) {
+        return bluetoothManager.getDeviceHandle(tapAddress);
+    }
+
+    /**
+     * @return the address of the Tap with the handle, or null if there is no such Tap
+     */
+    public @Nullable String getTapAddress(int tapHandle) {
+        return bluetoothManager.getDeviceAddress(tapHandle);
+    }
+
     @NonNull
     public Set<String> getConnectedTaps() {
         return bluetoothManager.getConnectedDevices();
@@ -118,13 +251,13 @@ public class TapBluetoothManager {
 
     public void startMode(@NonNull String tapAddress, byte[] data) {
         if (this.modesEnabled) {
-            bluetoothManager.writeCharacteristic(tapAddress, NUS, RX, data);
+            bluetoothManager.writeCharacteristicWithoutResponse(tapAddress, NUS, RX, data, COALESCE_KEY_MODE, OperationPriority.CONTROL);
         }
     }
 
     public void startXRState(@NonNull String tapAddress, byte[] data) {
         if (this.modesEnabled && data.length > 0 ) {
-            bluetoothManager.writeCharacteristic(tapAddress, NUS, RX, data);
+            bluetoothManager.writeCharacteristic(tapAddress, NUS, RX, data, COALESCE_KEY_XR_STATE, OperationPriority.CONTROL);
         }
     }
 
@@ -149,7 +282,7 @@ public class TapBluetoothManager {
         p.vOn9.set(durations[16]);
         p.vOff9.set(durations[17]);
         log("Sending Haptic packet - " + Arrays.toString(p.getData()));
-        bluetoothManager.writeCharacteristic(tapAddress, TAP, HAPTIC, p.getData());
+        bluetoothManager.writeCharacteristicWithoutResponse(tapAddress, TAP, HAPTIC, p.getData(), null, OperationPriority.INTERACTIVE, false);
     }
 
 //    public void startControllerMode(@NonNull String tapAddress) {
@@ -170,20 +303,32 @@ public class TapBluetoothManager {
 //        bluetoothManager.readCharacteristic(tapAddress, TAP, AIR_MOUSE_DATA);
 //    }
 
+    public void requestConnectionPriority(@NonNull String tapAddress, int connectionPriority) {
+        bluetoothManager.requestConnectionPriority(tapAddress, connectionPriority);
+    }
+
+    public int getMtu(@NonNull String tapAddress) {
+        return bluetoothManager.getMtu(tapAddress);
+    }
+
+    public @NonNull SdkEventLoop getEventLoop() {
+        return bluetoothManager.getEventLoop();
+    }
+
     public void requestReadTapState(@NonNull String tapAddress) {
         log("request read tap state");
-        bluetoothManager.writeCharacteristic(tapAddress, TAP, AIR_MOUSE_DATA, READ_TAP_STATE_DATA);
+        bluetoothManager.writeCharacteristic(tapAddress, TAP, AIR_MOUSE_DATA, READ_TAP_STATE_DATA, null, OperationPriority.CONTROL, false);
     }
 
     public void requestShiftSwitchState(@NonNull String tapAddress) {
         log("request shift/switch state");
-        bluetoothManager.writeCharacteristic(tapAddress, TAP, DATA_REQUEST, REQUEST_SHIFT_SWITCH_STATE);
+        bluetoothManager.writeCharacteristic(tapAddress, TAP, DATA_REQUEST, REQUEST_SHIFT_SWITCH_STATE, null, OperationPriority.CONTROL, false);
     }
 
     public void requestTap(@NonNull String tapAddress, byte combination) {
         log("request tap with " + combination);
         byte[] request_array = new byte[] { combination, 0 };
-        bluetoothManager.writeCharacteristic(tapAddress, TAP, DATA_REQUEST, request_array);
+        bluetoothManager.writeCharacteristicWithoutResponse(tapAddress, TAP, DATA_REQUEST, request_array, null, OperationPriority.INTERACTIVE, false);
     }
 
     public void readName(@NonNull String tapAddress) {
@@ -193,7 +338,7 @@ public class TapBluetoothManager {
 
     public void writeName(@NonNull String tapAddress, @NonNull String name) {
         log("Writing name");
-        bluetoothManager.writeCharacteristic(tapAddress, TAP, NAME, name.getBytes(StandardCharsets.UTF_8));
+        bluetoothManager.writeCharacteristic(tapAddress, TAP, NAME, name.getBytes(StandardCharsets.UTF_8), null, OperationPriority.BACKGROUND);
     }
 
     public void readBattery(@NonNull String tapAddress) {
@@ -221,6 +366,59 @@ public class TapBluetoothManager {
         bluetoothManager.readCharacteristic(tapAddress, DEVICE_INFORMATION, SOFTWARE_REVISION_STRING);
     }
 
+    /**
+     * Reads the name, the value is also reported through {@link TapBluetoothListener#onNameRead(String, String)}.
+     */
+    public @NonNull GattFuture<String> readNameAsync(@NonNull String tapAddress) {
+        log("Reading name async");
+        return bluetoothManager.readCharacteristicAsync(tapAddress, TAP, NAME)
+                .thenApply(data -> new String(data, StandardCharsets.UTF_8));
+    }
+
+    public @NonNull GattFuture<byte[]> writeNameAsync(@NonNull String tapAddress, @NonNull String name) {
+        log("Writing name async");
+        return bluetoothManager.writeCharacteristicAsync(tapAddress, TAP, NAME, name.getBytes(StandardCharsets.UTF_8), null, OperationPriority.BACKGROUND);
+    }
+
+    public @NonNull GattFuture<Integer> readBatteryAsync(@NonNull String tapAddress) {
+        log("Reading battery async");
+        return bluetoothManager.readCharacteristicAsync(tapAddress, BATTERY, BATTERY_LEVEL)
+                .thenApply(data -> data[0] & 0xFF);
+    }
+
+    public @NonNull GattFuture<String> readSerialNumberAsync(@NonNull String tapAddress) {
+        log("Reading serial number async");
+        return bluetoothManager.readCharacteristicAsync(tapAddress, DEVICE_INFORMATION, SERIAL_NAME_STRING)
+                .thenApply(String::new);
+    }
+
+    public @NonNull GattFuture<String> readHwVerAsync(@NonNull String tapAddress) {
+        log("Reading hw ver async");
+        return bluetoothManager.readCharacteristicAsync(tapAddress, DEVICE_INFORMATION, HARDWARE_REVISION_STRING)
+                .thenApply(String::new);
+    }
+
+    public @NonNull GattFuture<String> readFwVerAsync(@NonNull String tapAddress) {
+        log("Reading fw ver async");
+        return bluetoothManager.readCharacteristicAsync(tapAddress, DEVICE_INFORMATION, FIRMWARE_REVISION_STRING)
+                .thenApply(String::new);
+    }
+
+    public @NonNull GattFuture<String> readBootloaderVerAsync(@NonNull String tapAddress) {
+        log("Reading bootloader ver async");
+        return bluetoothManager.readCharacteristicAsync(tapAddress, DEVICE_INFORMATION, SOFTWARE_REVISION_STRING)
+                .thenApply(String::new);
+    }
+
+    /**
+     * Subscribes to tap notifications, the subscription is also reported through
+     * {@link TapBluetoothListener#onTapInputSubscribed(String)}.
+     */
+    public @NonNull GattFuture<Void> setupTapNotificationAsync(@NonNull String tapAddress) {
+        log("Setting up tap notifications async");
+        return bluetoothManager.setupNotificationAsync(tapAddress, TAP, TAP_DATA);
+    }
+
     public void setupTapNotification(@NonNull String tapAddress) {
         log("Setting up tap notifications");
         bluetoothManager.setupNotification(tapAddress, TAP, TAP_DATA);
@@ -247,6 +445,26 @@ public class TapBluetoothManager {
         bluetoothManager.setupNotification(tapAddress, TAP, DATA_REQUEST);
     }
 
+    public @NonNull GattFuture<Void> setupMouseNotificationAsync(@NonNull String tapAddress) {
+        log("Setting up mouse notifications async");
+        return bluetoothManager.setupNotificationAsync(tapAddress, TAP, MOUSE_DATA);
+    }
+
+    public @NonNull GattFuture<Void> setupAirMouseNotificationAsync(@NonNull String tapAddress) {
+        log("Setting up air mouse notifications async");
+        return bluetoothManager.setupNotificationAsync(tapAddress, TAP, AIR_MOUSE_DATA);
+    }
+
+    public @NonNull GattFuture<Void> setupRawSensorNotificationAsync(@NonNull String tapAddress) {
+        log("Setting up raw sensor notifications async");
+        return bluetoothManager.setupNotificationAsync(tapAddress, NUS, TX);
+    }
+
+    public @NonNull GattFuture<Void> setupDataNotificationAsync(@NonNull String tapAddress) {
+        log("Setting up data notifications async");
+        return bluetoothManager.setupNotificationAsync(tapAddress, TAP, DATA_REQUEST);
+    }
+
     public boolean isConnectionInProgress() {
         return bluetoothManager.isConnectionInProgress();
     }
@@ -264,7 +482,9 @@ public class TapBluetoothManager {
     }
 
     @SuppressWarnings("FieldCanBeLocal")
-    private BluetoothListener bluetoothListener = new BluetoothListener() {
+    private BluetoothListener bluetoothListener = new DeviceListener();
+
+    private class DeviceListener implements BluetoothListener, DeviceHandleListener {
 
         @Override
         public void onBluetoothTurnedOn() {
@@ -299,6 +519,13 @@ public class TapBluetoothManager {
         @Override
         public void onDeviceDisconnected(@NonNull String deviceAddress) {
             log("Device Disconnected");
+            int tapHandle = bluetoothManager.getDeviceHandle(deviceAddress);
+            if (tapHandle >= 0 && tapHandle < mousePackets.length) {
+                mousePackets[tapHandle] = null;
+            }
+            if (tapHandle >= 0 && tapHandle < airMousePackets.length) {
+                airMousePackets[tapHandle] = null;
+            }
             notifyOnTapDisconnected(deviceAddress);
 
 //            if (bluetoothManager.isClosing() && bluetoothManager.numOfConnectedDevices() == 0) {
@@ -309,45 +536,13 @@ public class TapBluetoothManager {
         @Override
         public void onCharacteristicRead(@NonNull String deviceAddress, @NonNull UUID characteristic, @NonNull byte[] data) {
             log("Characteristic Read");
-            if (characteristic.equals(NAME)) {
-                notifyOnNameRead(deviceAddress, new String(data, StandardCharsets.UTF_8));
-            } else if (characteristic.equals(BATTERY_LEVEL)) {
-                notifyOnBatteryRead(deviceAddress, data[0] & 0xFF);
-            } else if (characteristic.equals(SERIAL_NAME_STRING)) {
-                notifyOnSerialNumberRead(deviceAddress, new String(data));
-            } else if (characteristic.equals(HARDWARE_REVISION_STRING)) {
-                notifyOnHwVerRead(deviceAddress, new String(data));
-            } else if (characteristic.equals(FIRMWARE_REVISION_STRING)) {
-                notifyOnFwVerRead(deviceAddress, new String((data)));
-            } else if (characteristic.equals(SOFTWARE_REVISION_STRING)) {
-                notifyOnBootloaderVerRead(deviceAddress, new String((data)));
-            } else if (characteristic.equals(AIR_MOUSE_DATA)) {
-                onNotificationReceived(deviceAddress, characteristic, data);
-            } else if (characteristic.equals(TX)) {
-                onNotificationReceived(deviceAddress, characteristic, data);
-            } else if (characteristic.equals(DATA_REQUEST)) {
-                onNotificationReceived(deviceAddress, characteristic, data);
-            }
-
+            characteristics.dispatchRead(characteristic, deviceAddress, data);
         }
 
         @Override
         public void onCharacteristicNotFound(@NonNull String deviceAddress, @NonNull UUID characteristic) {
             log("Characteristic Not Found");
-            if (characteristic.equals(NAME)) {
-                notifyOnNameRead(deviceAddress, "Unavailable");
-            } else if (characteristic.equals(BATTERY_LEVEL)) {
-                notifyOnBatteryRead(deviceAddress, -2);
-            } else if (characteristic.equals(SERIAL_NAME_STRING)) {
-                notifyOnSerialNumberRead(deviceAddress, "Unavailable");
-            } else if (characteristic.equals(HARDWARE_REVISION_STRING)) {
-                notifyOnHwVerRead(deviceAddress, "Unavailable");
-            } else if (characteristic.equals(FIRMWARE_REVISION_STRING)) {
-                notifyOnFwVerRead(deviceAddress,"Unavailable");
-            } else if (characteristic.equals(SOFTWARE_REVISION_STRING)) {
-                notifyOnBootloaderVerRead(deviceAddress, "Unavailable");
-            }
-
+            characteristics.dispatchNotFound(characteristic, deviceAddress);
         }
 
         @Override
@@ -364,74 +559,60 @@ public class TapBluetoothManager {
 ////                    notifyOnControllerWithMouseHIDModeStarted(deviceAddress);
 //                }
 //            } else
-            if (characteristic.equals(NAME)) {
-                log("Name Changed");
-                notifyOnNameWrite(deviceAddress, new String(data, StandardCharsets.UTF_8));
-            }
+            characteristics.dispatchWrite(characteristic, deviceAddress, data);
         }
 
         @Override
         public void onNotificationSubscribed(@NonNull String deviceAddress, @NonNull UUID characteristic) {
-            if (characteristic.equals(TAP_DATA)) {
-                log("Tap notification subscribed");
-                notifyOnTapInputSubscribed(deviceAddress);
-            } else if (characteristic.equals(MOUSE_DATA)) {
-                log("Mouse notification subscribed");
-                notifyOnMouseInputSubscribed(deviceAddress);
-            } else if (characteristic.equals(AIR_MOUSE_DATA)) {
-                log("Air mouse notification subscribed");
-//                requestReadTapState(deviceAddress);
-                notifyOnAirMouseDataSubscribed(deviceAddress);
-            } else if (characteristic.equals(TX)) {
-                log("Raw sensor notification subscribed");
-                notifyOnRawSensorDataSubscribed(deviceAddress);
-            } else if (characteristic.equals(DATA_REQUEST)) {
-                log("DataRequest notification subscribed");
-                notifyOnDataRequestSubscribed(deviceAddress);
-            }
+            characteristics.dispatchSubscribed(characteristic, deviceAddress);
         }
 
 
         @Override
         public void onNotificationReceived(@NonNull String deviceAddress, @NonNull UUID characteristic, @NonNull byte[] data) {
-//            log("Notification Received " + Arrays.toString(data));
-
-            if (characteristic.equals(TAP_DATA)) {
-                int byte3 = 0;
-                if (data.length > 3) {
-                    byte3 = data[3];
-                }
-                if (data[0] != 0) {
-                    // we are now going to send byte [3] into the same function to decide single/double/triple
-                    notifyOnTapInputReceived(deviceAddress, data[0], byte3);
-                }
-                notifyOnTapShiftSWitchReceived(deviceAddress, byte3);
-            } else if (characteristic.equals(MOUSE_DATA)) {
-
-                data = Arrays.copyOfRange(data, 1, data.length);
-                MousePacket mousePacket = new MousePacket(data);
-                notifyOnMouseInputReceived(deviceAddress, mousePacket);
-            } else if (characteristic.equals(AIR_MOUSE_DATA)) {
-                AirMousePacket airMousePacket = new AirMousePacket(data);
-                if (airMousePacket.gesture.getInt() == 20) {
-                    notifyOnTapChangedState(deviceAddress, airMousePacket.state.getInt());
-                } else {
-                    notifyOnAirMouseInputReceived(deviceAddress, airMousePacket);
-                }
-            } else if (characteristic.equals(TX)) {
-                notifyOnRawSensorInputReceived(deviceAddress, data);
-            } else if (characteristic.equals(DATA_REQUEST)) {
-                // should deal with this like a character which has come in - nothing should come here
-                // so if something comes in let's give an error
-                logError("!!! Notification Received  on DATA REQUEST channel" + Arrays.toString(data));
+            int deviceHandle = bluetoothManager.getDeviceHandle(deviceAddress);
+            if (deviceHandle != BluetoothManager.NO_HANDLE) {
+                onNotificationReceived(deviceHandle, characteristic, data);
             }
         }
 
+        @Override
+        public void onNotificationReceived(int deviceHandle, @NonNull UUID characteristic, @NonNull byte[] data) {
+//            log("Notification Received " + Arrays.toString(data));
+            characteristics.dispatchNotification(characteristic, deviceHandle, data);
+        }
+
         @Override
         public void onError(@NonNull String deviceAddress, int code, @NonNull String description) {
             notifyOnError(deviceAddress, code, description);
         }
-    };
+    }
+
+    @NonNull
+    private MousePacket getMousePacket(int tapHandle) {
+        if (tapHandle >= mousePackets.length) {
+            mousePackets = Arrays.copyOf(mousePackets, tapHandle + 1);
+        }
+        MousePacket packet = mousePackets[tapHandle];
+        if (packet == null) {
+            packet = new MousePacket();
+            mousePackets[tapHandle] = packet;
+        }
+        return packet;
+    }
+
+    @NonNull
+    private AirMousePacket getAirMousePacket(int tapHandle) {
+        if (tapHandle >= airMousePackets.length) {
+            airMousePackets = Arrays.copyOf(airMousePackets, tapHandle + 1);
+        }
+        AirMousePacket packet = airMousePackets[tapHandle];
+        if (packet == null) {
+            packet = new AirMousePacket();
+            airMousePackets[tapHandle] = packet;
+        }
+        return packet;
+    }
 
     private void notifyOnBluetoothTurnedOn() {
         tapBluetoothListeners.notifyAll(new NotifyAction<TapBluetoothListener>() {
@@ -623,47 +804,72 @@ public class TapBluetoothManager {
         });
     }
 
-    private void notifyOnTapInputReceived(@NonNull final String tapAddress, final int data, final int repeatData) {
+    private void notifyOnTapInputReceived(final int tapHandle, final int data, final int repeatData) {
+        final String tapAddress = getTapAddress(tapHandle);
         tapBluetoothListeners.notifyAll(new NotifyAction<TapBluetoothListener>() {
             @Override
             public void onNotify(TapBluetoothListener listener) {
-                listener.onTapInputReceived(tapAddress, data, repeatData);
+                if (listener instanceof TapBluetoothHandleListener) {
+                    ((TapBluetoothHandleListener) listener).onTapInputReceived(tapHandle, data, repeatData);
+                } else {
+                    listener.onTapInputReceived(tapAddress, data, repeatData);
+                }
             }
         });
     }
 
-    private void notifyOnTapShiftSWitchReceived(@NonNull final String tapAddress, final int data) {
+    private void notifyOnTapShiftSWitchReceived(final int tapHandle, final int data) {
+        final String tapAddress = getTapAddress(tapHandle);
         tapBluetoothListeners.notifyAll(new NotifyAction<TapBluetoothListener>() {
             @Override
             public void onNotify(TapBluetoothListener listener) {
-                listener.onTapShiftSwitchReceived(tapAddress, data);
+                if (listener instanceof TapBluetoothHandleListener) {
+                    ((TapBluetoothHandleListener) listener).onTapShiftSwitchReceived(tapHandle, data);
+                } else {
+                    listener.onTapShiftSwitchReceived(tapAddress, data);
+                }
             }
         });
     }
 
-    private void notifyOnMouseInputReceived(@NonNull final String tapAddress, @NonNull final MousePacket data) {
+    private void notifyOnMouseInputReceived(final int tapHandle, @NonNull final MousePacket data) {
+        final String tapAddress = getTapAddress(tapHandle);
         tapBluetoothListeners.notifyAll(new NotifyAction<TapBluetoothListener>() {
             @Override
             public void onNotify(TapBluetoothListener listener) {
-                listener.onMouseInputReceived(tapAddress, data);
+                if (listener instanceof TapBluetoothHandleListener) {
+                    ((TapBluetoothHandleListener) listener).onMouseInputReceived(tapHandle, data);
+                } else {
+                    listener.onMouseInputReceived(tapAddress, data);
+                }
             }
         });
     }
 
-    private void notifyOnAirMouseInputReceived(@NonNull final String tapAddress, @NonNull final AirMousePacket data) {
+    private void notifyOnAirMouseInputReceived(final int tapHandle, @NonNull final AirMousePacket data) {
+        final String tapAddress = getTapAddress(tapHandle);
         tapBluetoothListeners.notifyAll(new NotifyAction<TapBluetoothListener>() {
             @Override
             public void onNotify(TapBluetoothListener listener) {
-                listener.onAirMouseInputReceived(tapAddress, data);
+                if (listener instanceof TapBluetoothHandleListener) {
+                    ((TapBluetoothHandleListener) listener).onAirMouseInputReceived(tapHandle, data);
+                } else {
+                    listener.onAirMouseInputReceived(tapAddress, data);
+                }
             }
         });
     }
 
-    private void notifyOnRawSensorInputReceived(@NonNull final String tapAddress, @NonNull final byte[] data) {
+    private void notifyOnRawSensorInputReceived(final int tapHandle, @NonNull final byte[] data) {
+        final String tapAddress = getTapAddress(tapHandle);
         tapBluetoothListeners.notifyAll(new NotifyAction<TapBluetoothListener>() {
             @Override
             public void onNotify(TapBluetoothListener listener) {
-                listener.onRawSensorDataReceieved(tapAddress, data);
+                if (listener instanceof TapBluetoothHandleListener) {
+                    ((TapBluetoothHandleListener) listener).onRawSensorDataReceived(tapHandle, data);
+                } else {
+                    listener.onRawSensorDataReceieved(tapAddress, data);
+                }
             }
         });
     }
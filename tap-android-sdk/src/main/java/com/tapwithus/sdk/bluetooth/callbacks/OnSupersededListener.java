@@ -0,0 +1,5 @@
+package com.tapwithus.sdk.bluetooth.callbacks;
+
+public interface OnSupersededListener {
+    void onSuperseded(String message);
+}
@@ -2,6 +2,8 @@ package com.tapwithus.sdk.bluetooth.operations;
 
 import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattCharacteristic;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.tapwithus.sdk.bluetooth.ErrorStrings;
 
@@ -14,10 +16,17 @@ public abstract class CharacteristicOperation extends BaseCharacteristicOperatio
     }
 
     protected void onOperationCompleted(BluetoothGattCharacteristic characteristic, int status) {
+        onOperationCompleted(characteristic, characteristic.getValue(), status);
+    }
+
+    /**
+     * @param value the value the callback carried, see {@link GattOperation#gattCallback(Object, byte[], int)}
+     */
+    protected void onOperationCompleted(BluetoothGattCharacteristic characteristic, @Nullable byte[] value, int status) {
         if (status == BluetoothGatt.GATT_SUCCESS) {
-            postOnCompletion(characteristic.getValue());
+            postOnCompletion(value);
         } else {
-            postOnError(ErrorStrings.CHAR_OP_FAIL + " " + status);
+            postOnError(status, ErrorStrings.CHAR_OP_FAIL + " " + status);
         }
     }
 
@@ -30,4 +39,14 @@ public abstract class CharacteristicOperation extends BaseCharacteristicOperatio
 
         postOnError(ErrorStrings.GATT_CALLBACK_MISMATCH);
     }
+
+    @Override
+    public void gattCallback(@NonNull Object gattOrCharOrDesc, @Nullable byte[] value, int status) {
+        if (gattOrCharOrDesc instanceof BluetoothGattCharacteristic) {
+            onOperationCompleted((BluetoothGattCharacteristic) gattOrCharOrDesc, value, status);
+            return;
+        }
+
+        postOnError(ErrorStrings.GATT_CALLBACK_MISMATCH);
+    }
 }
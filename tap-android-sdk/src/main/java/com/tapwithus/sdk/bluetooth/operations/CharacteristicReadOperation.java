@@ -5,6 +5,7 @@ import android.bluetooth.BluetoothGattCharacteristic;
 import androidx.annotation.NonNull;
 
 import com.tapwithus.sdk.bluetooth.ErrorStrings;
+import com.tapwithus.sdk.bluetooth.GattError;
 
 import java.util.UUID;
 
@@ -29,7 +30,7 @@ public class CharacteristicReadOperation extends CharacteristicOperation {
         }
 
         if (!gatt.readCharacteristic(c)) {
-            postOnError(ErrorStrings.WRITE_OP_INIT_FAIL);
+            postOnError(GattError.INIT_FAILED, ErrorStrings.READ_OP_INIT_FAIL);
         }
     }
 }
@@ -0,0 +1,38 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import androidx.annotation.NonNull;
+
+import java.util.UUID;
+
+/**
+ * Fire-and-forget variant of {@link CharacteristicWriteOperation}, using {@link BluetoothGattCharacteristic#WRITE_TYPE_NO_RESPONSE}.
+ * The stack reports such a write as soon as it is handed to the controller, so the queue moves on without waiting for the peer.
+ * <p>
+ * Falls back to an acknowledged write when the characteristic doesn't support writes without response, or when the
+ * executor asks for one, see {@link GattExecutor#MAX_NO_RESPONSE_CREDITS}.
+ */
+public class CharacteristicWriteNoResponseOperation extends CharacteristicWriteOperation {
+
+    private boolean acknowledged = false;
+
+    public CharacteristicWriteNoResponseOperation(UUID service, UUID characteristic, byte[] data) {
+        super(service, characteristic, data);
+    }
+
+    void setAcknowledged(boolean acknowledged) {
+        this.acknowledged = acknowledged;
+    }
+
+    public boolean isAcknowledged() {
+        return acknowledged;
+    }
+
+    @Override
+    protected int getWriteType(@NonNull BluetoothGattCharacteristic c) {
+        if ((c.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) == 0) {
+            acknowledged = true;
+        }
+        return acknowledged ? BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT : BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE;
+    }
+}
@@ -3,20 +3,63 @@ package com.tapwithus.sdk.bluetooth.operations;
 import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattCharacteristic;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.tapwithus.sdk.bluetooth.ErrorStrings;
+import com.tapwithus.sdk.bluetooth.GattError;
 
 import java.util.UUID;
 
 public class CharacteristicWriteOperation extends CharacteristicOperation {
 
     protected byte[] data;
+    private @Nullable String coalesceKey;
 
     public CharacteristicWriteOperation(UUID service, UUID characteristic, byte[] data) {
         super(service, characteristic);
         this.data = data;
     }
 
+    /**
+     * Marks the write as safe to coalesce - a queued write to the same characteristic with the same key is dropped
+     * when this one is added, as only the last value matters.
+     * @param coalesceKey null to never coalesce
+     * @return this
+     */
+    public CharacteristicWriteOperation setCoalesceKey(@Nullable String coalesceKey) {
+        this.coalesceKey = coalesceKey;
+        return this;
+    }
+
+    public @Nullable String getCoalesceKey() {
+        return coalesceKey;
+    }
+
+    @Override
+    public boolean supersedes(@NonNull GattOperation<?> queued) {
+        if (coalesceKey == null || queued == this || !(queued instanceof CharacteristicWriteOperation)) {
+            return false;
+        }
+        CharacteristicWriteOperation other = (CharacteristicWriteOperation) queued;
+        return coalesceKey.equals(other.coalesceKey) && service.equals(other.service) && characteristic.equals(other.characteristic);
+    }
+
+    /**
+     * The characteristic object is shared by all operations, so the write type must be set on every write.
+     */
+    protected int getWriteType(@NonNull BluetoothGattCharacteristic c) {
+        return BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT;
+    }
+
+    /**
+     * The write callback carries no value, so the write completes with the data it wrote rather than with the value
+     * of the shared characteristic.
+     */
+    @Override
+    protected void onOperationCompleted(BluetoothGattCharacteristic characteristic, int status) {
+        onOperationCompleted(characteristic, data, status);
+    }
+
     @Override
     public OperationType type() {
         return OperationType.CHAR_WRITE;
@@ -35,9 +78,11 @@ public class CharacteristicWriteOperation extends CharacteristicOperation {
             return;
         }
 
+        c.setWriteType(getWriteType(c));
+
         try {
             if (!gatt.writeCharacteristic(c)) {
-                postOnError(ErrorStrings.WRITE_OP_INIT_FAIL);
+                postOnError(GattError.INIT_FAILED, ErrorStrings.WRITE_OP_INIT_FAIL);
             }
         } catch (SecurityException se) {
             postOnError(ErrorStrings.WRITE_OP_INIT_FAIL);
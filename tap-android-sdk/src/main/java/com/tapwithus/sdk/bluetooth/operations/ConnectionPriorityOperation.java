@@ -0,0 +1,48 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import android.bluetooth.BluetoothGatt;
+import androidx.annotation.NonNull;
+
+import com.tapwithus.sdk.bluetooth.ErrorStrings;
+
+/**
+ * Requests a connection interval class - one of {@link BluetoothGatt#CONNECTION_PRIORITY_BALANCED},
+ * {@link BluetoothGatt#CONNECTION_PRIORITY_HIGH} or {@link BluetoothGatt#CONNECTION_PRIORITY_LOW_POWER}.
+ * There is no public callback for the connection update, so the operation completes as soon as the request was accepted.
+ */
+public class ConnectionPriorityOperation extends GattOperation<Integer> {
+
+    private final int connectionPriority;
+
+    public ConnectionPriorityOperation(int connectionPriority) {
+        this.connectionPriority = connectionPriority;
+    }
+
+    public int getConnectionPriority() {
+        return connectionPriority;
+    }
+
+    @Override
+    public OperationType type() {
+        return OperationType.CONNECTION_PRIORITY;
+    }
+
+    @Override
+    public void onExecute(@NonNull BluetoothGatt gatt) {
+        try {
+            if (!gatt.requestConnectionPriority(connectionPriority)) {
+                postOnError(ErrorStrings.CONNECTION_PRIORITY_OP_INIT_FAIL);
+                return;
+            }
+            gattCallback(GATT_SUCCESS);
+        } catch (SecurityException se) {
+            postOnError(ErrorStrings.CONNECTION_PRIORITY_OP_INIT_FAIL);
+            postOnError(ErrorStrings.LACKING_PERMISSION_FAIL);
+        }
+    }
+
+    @Override
+    public void gattCallback(Object gattOrCharOrDesc, int status) {
+        postOnCompletion(connectionPriority);
+    }
+}
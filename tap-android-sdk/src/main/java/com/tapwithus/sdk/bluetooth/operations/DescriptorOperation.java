@@ -4,6 +4,7 @@ import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothGattDescriptor;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.tapwithus.sdk.bluetooth.ErrorStrings;
 
@@ -19,10 +20,17 @@ public abstract class DescriptorOperation extends BaseCharacteristicOperation {
     }
 
     protected void onOperationCompleted(BluetoothGattDescriptor descriptor, int status) {
+        onOperationCompleted(descriptor, descriptor.getValue(), status);
+    }
+
+    /**
+     * @param value the value the callback carried, see {@link GattOperation#gattCallback(Object, byte[], int)}
+     */
+    protected void onOperationCompleted(BluetoothGattDescriptor descriptor, @Nullable byte[] value, int status) {
         if (status == BluetoothGatt.GATT_SUCCESS) {
-            postOnCompletion(descriptor.getValue());
+            postOnCompletion(value);
         } else {
-            postOnError(ErrorStrings.DESC_OP_FAIL + status);
+            postOnError(status, ErrorStrings.DESC_OP_FAIL + status);
         }
     }
 
@@ -46,4 +54,14 @@ public abstract class DescriptorOperation extends BaseCharacteristicOperation {
 
         postOnError(ErrorStrings.GATT_CALLBACK_MISMATCH);
     }
+
+    @Override
+    public void gattCallback(@NonNull Object gattOrCharOrDesc, @Nullable byte[] value, int status) {
+        if (gattOrCharOrDesc instanceof BluetoothGattDescriptor) {
+            onOperationCompleted((BluetoothGattDescriptor) gattOrCharOrDesc, value, status);
+            return;
+        }
+
+        postOnError(ErrorStrings.GATT_CALLBACK_MISMATCH);
+    }
 }
@@ -5,6 +5,7 @@ import android.bluetooth.BluetoothGattDescriptor;
 import androidx.annotation.NonNull;
 
 import com.tapwithus.sdk.bluetooth.ErrorStrings;
+import com.tapwithus.sdk.bluetooth.GattError;
 
 import java.util.UUID;
 
@@ -29,7 +30,7 @@ public class DescriptorReadOperation extends DescriptorOperation {
 
         try {
             if (!gatt.readDescriptor(d)) {
-                postOnError(ErrorStrings.READ_OP_INIT_FAIL);
+                postOnError(GattError.INIT_FAILED, ErrorStrings.READ_OP_INIT_FAIL);
             }
         } catch (SecurityException se) {
                 postOnError(ErrorStrings.READ_OP_INIT_FAIL);
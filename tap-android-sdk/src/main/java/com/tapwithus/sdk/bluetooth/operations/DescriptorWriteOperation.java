@@ -5,6 +5,7 @@ import android.bluetooth.BluetoothGattDescriptor;
 import androidx.annotation.NonNull;
 
 import com.tapwithus.sdk.bluetooth.ErrorStrings;
+import com.tapwithus.sdk.bluetooth.GattError;
 
 import java.util.UUID;
 
@@ -37,7 +38,7 @@ public class DescriptorWriteOperation extends DescriptorOperation {
 
         try {
             if (!gatt.writeDescriptor(d)) {
-                postOnError(ErrorStrings.WRITE_OP_INIT_FAIL);
+                postOnError(GattError.INIT_FAILED, ErrorStrings.WRITE_OP_INIT_FAIL);
             }
         } catch (SecurityException se) {
             postOnError(ErrorStrings.WRITE_OP_INIT_FAIL);
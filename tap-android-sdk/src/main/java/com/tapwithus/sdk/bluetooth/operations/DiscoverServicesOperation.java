@@ -5,6 +5,7 @@ import android.bluetooth.BluetoothGattService;
 import androidx.annotation.NonNull;
 
 import com.tapwithus.sdk.bluetooth.ErrorStrings;
+import com.tapwithus.sdk.bluetooth.GattError;
 
 import java.util.List;
 
@@ -19,7 +20,7 @@ public class DiscoverServicesOperation extends GattOperation<List<BluetoothGattS
     public void onExecute(@NonNull BluetoothGatt gatt) {
         try {
             if (!gatt.discoverServices()) {
-                postOnError(ErrorStrings.DISCOVER_SERVICES_OP_INIT_FAIL);
+                postOnError(GattError.INIT_FAILED, ErrorStrings.DISCOVER_SERVICES_OP_INIT_FAIL);
             }
         } catch (SecurityException se) {
             postOnError(ErrorStrings.DISCOVER_SERVICES_OP_INIT_FAIL);
@@ -0,0 +1,13 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import com.tapwithus.sdk.bluetooth.GattError;
+
+/**
+ * What a {@link GattExecutor} does with an operation added to a full queue, see {@link QueueLimit}.
+ */
+public enum DropPolicy {
+    /** The oldest queued operation fails with {@link GattError#QUEUE_FULL}. For commands that go stale, like haptics. */
+    DROP_OLDEST,
+    /** The new operation fails right away. For reads and anything else whose caller waits for a result. */
+    REJECT,
+}
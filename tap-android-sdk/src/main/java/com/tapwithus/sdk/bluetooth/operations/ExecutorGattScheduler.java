@@ -0,0 +1,33 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Default {@link GattScheduler}, backed by a single daemon thread.
+ */
+public class ExecutorGattScheduler implements GattScheduler {
+
+    private static final String THREAD_NAME = "GattScheduler";
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    public ExecutorGattScheduler() {
+        executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @NonNull
+    @Override
+    public Task schedule(@NonNull Runnable runnable, long delayMillis) {
+        final ScheduledFuture<?> future = executor.schedule(runnable, delayMillis, TimeUnit.MILLISECONDS);
+        return () -> future.cancel(false);
+    }
+}
@@ -0,0 +1,89 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import androidx.annotation.NonNull;
+
+import com.tapwithus.sdk.bluetooth.GattError;
+
+/**
+ * Failed operation attempts of a single device, counted by the {@link GattExecutor}.
+ */
+public class FailureStats {
+
+    private int transientFailures = 0;
+    private int permanentFailures = 0;
+    private int retries = 0;
+    private int recovered = 0;
+    private int exhausted = 0;
+    private int lastStatus = GattError.NO_STATUS;
+
+    synchronized void onFailure(int status, boolean isTransient) {
+        if (isTransient) {
+            transientFailures++;
+        } else {
+            permanentFailures++;
+        }
+        lastStatus = status;
+    }
+
+    synchronized void onRetry() {
+        retries++;
+    }
+
+    synchronized void onRecovered() {
+        recovered++;
+    }
+
+    synchronized void onExhausted() {
+        exhausted++;
+    }
+
+    /**
+     * @return failed attempts with a status that may succeed when tried again
+     */
+    public synchronized int getTransientFailures() {
+        return transientFailures;
+    }
+
+    /**
+     * @return failed attempts with a status that fails the same way every time
+     */
+    public synchronized int getPermanentFailures() {
+        return permanentFailures;
+    }
+
+    public synchronized int getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return operations that succeeded after a retry
+     */
+    public synchronized int getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * @return operations that failed with a transient status on every attempt
+     */
+    public synchronized int getExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * @return the status of the last failed attempt, see {@link GattError#parse(int)}
+     */
+    public synchronized int getLastStatus() {
+        return lastStatus;
+    }
+
+    @Override
+    public synchronized @NonNull String toString() {
+        return "FailureStats{transient=" + transientFailures +
+                ", permanent=" + permanentFailures +
+                ", retries=" + retries +
+                ", recovered=" + recovered +
+                ", exhausted=" + exhausted +
+                ", lastStatus=" + GattError.parse(lastStatus) +
+                "}";
+    }
+}
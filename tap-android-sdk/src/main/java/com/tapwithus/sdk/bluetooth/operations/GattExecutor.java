@@ -4,18 +4,24 @@ import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothGattDescriptor;
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
+import com.tapwithus.sdk.bluetooth.ErrorStrings;
+import com.tapwithus.sdk.bluetooth.GattError;
 import com.tapwithus.sdk.bluetooth.callbacks.OnCompletionListener;
 import com.tapwithus.sdk.bluetooth.callbacks.OnErrorListener;
 import com.tapwithus.sdk.bluetooth.callbacks.OnNotFoundListener;
 
+import java.util.Arrays;
 import java.util.Queue;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingDeque;
 
 public class GattExecutor implements OnCompletionListener<Object>, OnErrorListener, OnNotFoundListener {
@@ -24,34 +30,222 @@ public class GattExecutor implements OnCompletionListener<Object>, OnErrorListen
 
     private final BluetoothGatt gatt;
     private final String deviceAddress;
-    private Queue<GattOperation> operations = new LinkedBlockingDeque<>();
-    private GattOperation currentOperation;
+    // Once a lane was passed over this many times in a row, its head runs next
+    private static final int MAX_SKIPS = 4;
 
+    /**
+     * Number of writes without response allowed in a row. The next one is sent as an acknowledged write, so a peer that
+     * silently dropped data gets a sync point, and the credits are restored.
+     */
+    public static final int MAX_NO_RESPONSE_CREDITS = 8;
+
+    private int noResponseCredits = MAX_NO_RESPONSE_CREDITS;
+
+    private final OperationPriority[] priorities = OperationPriority.values();
+    private final Queue<GattOperation>[] lanes = createLanes(priorities.length);
+    private final int[] skips = new int[priorities.length];
+    private final QueueLimit[] limits = createLimits(priorities);
+    private final int[] highWaterMarks = new int[priorities.length];
+    private int droppedCount = 0;
+    private int rejectedCount = 0;
+    // While set only the CONTROL lane runs, see hold()
+    private boolean isHeld = false;
+    private volatile GattOperation currentOperation;
+
+    // Only touched on the loop
     private boolean isRunning = false;
+    private long currentStartTime = 0;
+    private final OperationTimeouts timeouts = new OperationTimeouts();
+    private final FailureStats failureStats = new FailureStats();
+    private volatile RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+
+    // Stall tracking, see checkStall
+    private long idleSince = 0;
+    private int stallCount = 0;
+    private int consecutiveStalls = 0;
+    private long totalStallTime = 0;
+    private long longestStall = 0;
 
+    private final Executor loop;
+
+    /**
+     * Runs operations on the calling thread. All calls must then come from a single thread, see
+     * {@link #GattExecutor(BluetoothGatt, Executor)}.
+     */
     public GattExecutor(@NonNull BluetoothGatt gatt) {
+        this(gatt, Runnable::run);
+    }
+
+    /**
+     * @param loop the thread the executor runs on. Operations added from other threads hop onto it. GATT callbacks,
+     * {@link #clear()}, {@link #checkStall(long)} and the scheduler of the operations must run on it as well.
+     */
+    public GattExecutor(@NonNull BluetoothGatt gatt, @NonNull Executor loop) {
+        this(gatt.getDevice().getAddress(), gatt, loop);
+    }
+
+    @VisibleForTesting
+    GattExecutor(@NonNull String deviceAddress, BluetoothGatt gatt, @NonNull Executor loop) {
         this.gatt = gatt;
-        this.deviceAddress = gatt.getDevice().getAddress();
+        this.deviceAddress = deviceAddress;
+        this.loop = loop;
     }
 
     public String getDeviceAddress() {
         return deviceAddress;
     }
 
-    public GattExecutor addOperation(GattOperation operation) {
+    /**
+     * @return the timeouts of the operations of this device
+     */
+    public @NonNull OperationTimeouts getTimeouts() {
+        return timeouts;
+    }
+
+    public @NonNull FailureStats getFailureStats() {
+        return failureStats;
+    }
+
+    /**
+     * @param retryPolicy for operations that fail with a transient status, {@link RetryPolicy#DEFAULT} by default
+     */
+    public void setRetryPolicy(@NonNull RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Queues the operation. If the queue of its priority is full, either the oldest queued operation or this one fails
+     * with {@link GattError#QUEUE_FULL}, see {@link #setQueueLimit(OperationPriority, QueueLimit)}.
+     * Called off the loop, the operation is queued once it got there.
+     */
+    public GattExecutor addOperation(final GattOperation operation) {
+        loop.execute(() -> enqueue(operation));
+        return this;
+    }
+
+    private void enqueue(GattOperation operation) {
+        if (operation.isCancelled()) {
+            return;
+        }
         operation.addOnCompletionListener(this);
         operation.addOnErrorListener(this);
         operation.addOnNotFoundListener(this);
+        operation.setRetryHandler(this::onFailure);
+
+        OperationPriority priority = operation.getPriority();
+        GattOperation dropped = null;
+        boolean rejected = false;
+        synchronized (lanes) {
+            coalesce(operation);
+            int i = priority.ordinal();
+            Queue<GattOperation> lane = lanes[i];
+            QueueLimit limit = limits[i];
+            if (lane.size() >= limit.getCapacity()) {
+                if (limit.getDropPolicy() == DropPolicy.DROP_OLDEST) {
+                    dropped = lane.poll();
+                    droppedCount++;
+                } else {
+                    rejected = true;
+                    rejectedCount++;
+                }
+            }
+            if (!rejected) {
+                lane.add(operation);
+                highWaterMarks[i] = Math.max(highWaterMarks[i], lane.size());
+            }
+        }
 
-        operations.add(operation);
+        if (rejected) {
+            logError("GattExecutor " + deviceAddress + " rejected " + operation.type() + ", the " + priority + " queue is full");
+            failQueueFull(operation);
+            return;
+        }
+        if (dropped != null) {
+            logError("GattExecutor " + deviceAddress + " dropped " + dropped.type() + ", the " + priority + " queue is full");
+            failQueueFull(dropped);
+        }
         run();
+    }
 
-        return this;
+    /**
+     * Fails an operation that never got to run, without it reaching the executor callbacks.
+     */
+    private void failQueueFull(@NonNull GattOperation operation) {
+        operation.removeOnCompletionListener(this);
+        operation.removeOnErrorListener(this);
+        operation.removeOnNotFoundListener(this);
+        operation.postOnError(GattError.QUEUE_FULL, ErrorStrings.QUEUE_FULL);
     }
 
-    public void onCharRead(@NonNull BluetoothGattCharacteristic characteristic, int status) {
+    /**
+     * Runs only {@link OperationPriority#CONTROL} operations until {@link #release()}. The connection setup, like the
+     * service discovery, is queued there, and the operations of the other lanes need it, whatever their priority.
+     */
+    public void hold() {
+        synchronized (lanes) {
+            isHeld = true;
+        }
+    }
+
+    /**
+     * Runs the operations of all lanes again, see {@link #hold()}. Must be called on the loop.
+     */
+    public void release() {
+        synchronized (lanes) {
+            if (!isHeld) {
+                return;
+            }
+            isHeld = false;
+        }
+        run();
+    }
+
+    public boolean isHeld() {
+        synchronized (lanes) {
+            return isHeld;
+        }
+    }
+
+    /**
+     * @param limit replaces {@link OperationPriority#getDefaultLimit()}. Operations queued beyond a lowered capacity
+     * stay queued.
+     */
+    public void setQueueLimit(@NonNull OperationPriority priority, @NonNull QueueLimit limit) {
+        synchronized (lanes) {
+            limits[priority.ordinal()] = limit;
+        }
+    }
+
+    /**
+     * @return the most operations queued at once with the priority, the running one excluded
+     */
+    public int getHighWaterMark(@NonNull OperationPriority priority) {
+        synchronized (lanes) {
+            return highWaterMarks[priority.ordinal()];
+        }
+    }
+
+    /**
+     * @return operations dropped from a full queue
+     */
+    public int getDroppedCount() {
+        synchronized (lanes) {
+            return droppedCount;
+        }
+    }
+
+    /**
+     * @return operations rejected by a full queue
+     */
+    public int getRejectedCount() {
+        synchronized (lanes) {
+            return rejectedCount;
+        }
+    }
+
+    public void onCharRead(@NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] value, int status) {
         if (currentOperation != null && currentOperation.type() == OperationType.CHAR_READ) {
-            currentOperation.gattCallback(characteristic, status);
+            currentOperation.gattCallback(characteristic, value, status);
         }
     }
 
@@ -61,15 +255,15 @@ public class GattExecutor implements OnCompletionListener<Object>, OnErrorListen
         }
     }
 
-    public void onCharChange(@NonNull BluetoothGattCharacteristic characteristic) {
+    public void onCharChange(@NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] value) {
         if (currentOperation != null && currentOperation.type() == OperationType.CHAR_CHANGE) {
-            currentOperation.gattCallback(characteristic);
+            currentOperation.gattCallback(characteristic, value, BluetoothGatt.GATT_SUCCESS);
         }
     }
 
-    public void onDescRead(@NonNull BluetoothGattDescriptor descriptor, int status) {
+    public void onDescRead(@NonNull BluetoothGattDescriptor descriptor, @NonNull byte[] value, int status) {
         if (currentOperation != null && currentOperation.type() == OperationType.DESC_READ) {
-            currentOperation.gattCallback(descriptor, status);
+            currentOperation.gattCallback(descriptor, value, status);
         }
     }
 
@@ -85,9 +279,26 @@ public class GattExecutor implements OnCompletionListener<Object>, OnErrorListen
         }
     }
 
+    public void onMtuChanged(int mtu, int status) {
+        if (currentOperation != null && currentOperation.type() == OperationType.MTU) {
+            currentOperation.gattCallback(mtu, status);
+        }
+    }
+
+    public void onPhyUpdate(int txPhy, int status) {
+        if (currentOperation != null && currentOperation.type() == OperationType.PHY) {
+            currentOperation.gattCallback(txPhy, status);
+        }
+    }
+
     @Override
     public void onCompletion(Object data) {
         currentOperation.removeOnCompletionListener(this);
+        timeouts.onCompleted(currentOperation.type(), currentOperation.getLatency());
+        if (currentOperation.getAttempt() > 1) {
+            failureStats.onRecovered();
+        }
+        consecutiveStalls = 0;
         isRunning = false;
         run();
     }
@@ -100,6 +311,7 @@ public class GattExecutor implements OnCompletionListener<Object>, OnErrorListen
             currentOperation.removeOnErrorListener(this);
         }
         isRunning = false;
+        run();
     }
 
     @Override
@@ -109,9 +321,159 @@ public class GattExecutor implements OnCompletionListener<Object>, OnErrorListen
         run();
     }
 
+    /**
+     * Drops the operation if it is still queued, or once it gets to the loop if it was added off the loop. A running
+     * or finished operation can't be cancelled.
+     * @return true if the operation was dropped
+     */
+    public boolean cancel(@NonNull GattOperation<?> operation) {
+        synchronized (lanes) {
+            if (operation == currentOperation || operation.isRunning() || operation.isCompleted()) {
+                return false;
+            }
+            operation.markCancelled();
+            lanes[operation.getPriority().ordinal()].remove(operation);
+            return true;
+        }
+    }
+
     public void clear() {
         isRunning = false;
-        operations.clear();
+        synchronized (lanes) {
+            for (Queue<GattOperation> lane : lanes) {
+                lane.clear();
+            }
+            Arrays.fill(skips, 0);
+            isHeld = false;
+        }
+    }
+
+    /**
+     * Checks whether the queue is stalled: operations are pending but nothing runs, or the running operation is past
+     * the time it may take at most. An idle queue is drained again, a stuck operation is failed, which starts the next one.
+     * <p>
+     * Called periodically by the {@link GattWatchdog}. A queue only counts as stalled if it was idle with pending
+     * operations on two checks in a row, so it isn't caught between an operation finishing and the next one starting.
+     * @return for how long the queue was stalled, or 0 if it is fine
+     */
+    public long checkStall(long now) {
+        GattOperation operation = currentOperation;
+        if (isRunning && operation != null && !operation.isCompleted()) {
+            idleSince = 0;
+            long runningFor = now - currentStartTime;
+            if (runningFor <= operation.getMaxDuration() + GattWatchdog.GRACE_PERIOD) {
+                return 0;
+            }
+            onStall(runningFor);
+            // Failing the operation moves the queue on through onError, draining it again here would leave the
+            // next operation running while the queue counts as idle
+            operation.postOnStalled("Operation stalled (" + operation.type().toString() + ") for " + runningFor + "ms");
+            return runningFor;
+        }
+
+        if (!hasPendingOperations()) {
+            idleSince = 0;
+            return 0;
+        }
+        if (idleSince == 0) {
+            idleSince = now;
+            return 0;
+        }
+
+        long idleFor = now - idleSince;
+        idleSince = 0;
+        onStall(idleFor);
+        recover();
+        return idleFor;
+    }
+
+    public int getStallCount() {
+        return stallCount;
+    }
+
+    /**
+     * @return stalls since the last operation that completed successfully
+     */
+    public int getConsecutiveStalls() {
+        return consecutiveStalls;
+    }
+
+    public long getTotalStallTime() {
+        return totalStallTime;
+    }
+
+    public long getLongestStall() {
+        return longestStall;
+    }
+
+    /**
+     * Classifies a failed attempt of the running operation. A transient failure of the running operation is retried after a backoff, while the
+     * queue waits, so operations keep their order.
+     * @return true if the operation will be retried
+     */
+    private boolean onFailure(@NonNull final GattOperation<?> operation, int status, @NonNull String msg) {
+        if (operation != currentOperation) {
+            return false;
+        }
+
+        boolean isTransient = GattError.isTransient(status);
+        failureStats.onFailure(status, isTransient);
+        if (status == GattError.TIMEOUT) {
+            timeouts.onTimedOut(operation.type(), operation.getTimeout());
+        }
+
+        if (!isTransient || !operation.isRetryable()) {
+            return false;
+        }
+        RetryPolicy policy = retryPolicy;
+        if (!policy.shouldRetry(operation.getAttempt())) {
+            failureStats.onExhausted();
+            return false;
+        }
+
+        long delay = policy.getDelay(operation.getAttempt());
+        logError("GattExecutor " + deviceAddress + " retrying in " + delay + "ms after attempt " + operation.getAttempt()
+                + " - " + msg + " (" + GattError.parse(status) + ")");
+        operation.onRetry();
+        failureStats.onRetry();
+        GattOperation.getScheduler().schedule(() -> retry(operation), delay);
+        return true;
+    }
+
+    private void retry(@NonNull GattOperation<?> operation) {
+        if (!isRunning || operation != currentOperation) {
+            return;
+        }
+        currentStartTime = SystemClock.elapsedRealtime();
+        operation.setAdaptiveTimeout(timeouts.getTimeout(operation.type()));
+        operation.execute(gatt);
+    }
+
+    private void onStall(long duration) {
+        stallCount++;
+        consecutiveStalls++;
+        totalStallTime += duration;
+        longestStall = Math.max(longestStall, duration);
+        logError("GattExecutor " + deviceAddress + " stalled for " + duration + "ms");
+    }
+
+    private void recover() {
+        isRunning = false;
+        run();
+    }
+
+    private boolean hasPendingOperations() {
+        synchronized (lanes) {
+            if (isHeld) {
+                return !lanes[OperationPriority.CONTROL.ordinal()].isEmpty();
+            }
+            for (Queue<GattOperation> lane : lanes) {
+                if (!lane.isEmpty()) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     private void run() {
@@ -122,22 +484,87 @@ public class GattExecutor implements OnCompletionListener<Object>, OnErrorListen
         currentOperation = getNextOperation();
         if (currentOperation != null && !currentOperation.isRunning()) {
             isRunning = true;
+            currentStartTime = SystemClock.elapsedRealtime();
+            currentOperation.setAdaptiveTimeout(timeouts.getTimeout(currentOperation.type()));
+            if (currentOperation instanceof CharacteristicWriteNoResponseOperation) {
+                takeNoResponseCredit((CharacteristicWriteNoResponseOperation) currentOperation);
+            }
             currentOperation.execute(gatt);
         }
     }
 
+    private void takeNoResponseCredit(CharacteristicWriteNoResponseOperation operation) {
+        if (noResponseCredits > 0) {
+            noResponseCredits--;
+            operation.setAcknowledged(false);
+        } else {
+            noResponseCredits = MAX_NO_RESPONSE_CREDITS;
+            operation.setAcknowledged(true);
+        }
+    }
+
+    private void coalesce(GattOperation<?> operation) {
+        for (Queue<GattOperation> lane : lanes) {
+            for (GattOperation queued : lane) {
+                if (!queued.isRunning() && operation.supersedes(queued) && lane.remove(queued)) {
+                    queued.postOnSuperseded("Superseded by a newer " + operation.type().toString() + " operation");
+                }
+            }
+        }
+    }
+
     private GattOperation getNextOperation() {
         if (currentOperation != null && !currentOperation.isCompleted()) {
             return currentOperation;
         }
 
-        if (!operations.isEmpty()) {
-            return operations.poll();
+        synchronized (lanes) {
+            if (isHeld) {
+                return lanes[OperationPriority.CONTROL.ordinal()].poll();
+            }
+
+            // Starvation protection - a lane that was passed over too often goes first
+            for (int i = 0; i < lanes.length; i++) {
+                if (skips[i] >= MAX_SKIPS && !lanes[i].isEmpty()) {
+                    skips[i] = 0;
+                    return lanes[i].poll();
+                }
+            }
+
+            for (int i = 0; i < lanes.length; i++) {
+                GattOperation operation = lanes[i].poll();
+                if (operation != null) {
+                    skips[i] = 0;
+                    for (int j = i + 1; j < lanes.length; j++) {
+                        if (!lanes[j].isEmpty()) {
+                            skips[j]++;
+                        }
+                    }
+                    return operation;
+                }
+            }
         }
 
         return null;
     }
 
+    private static QueueLimit[] createLimits(OperationPriority[] priorities) {
+        QueueLimit[] limits = new QueueLimit[priorities.length];
+        for (int i = 0; i < priorities.length; i++) {
+            limits[i] = priorities[i].getDefaultLimit();
+        }
+        return limits;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Queue<GattOperation>[] createLanes(int count) {
+        Queue<GattOperation>[] lanes = new Queue[count];
+        for (int i = 0; i < count; i++) {
+            lanes[i] = new LinkedBlockingDeque<>();
+        }
+        return lanes;
+    }
+
     private void logError(String message) {
         Log.e(TAG, message);
     }
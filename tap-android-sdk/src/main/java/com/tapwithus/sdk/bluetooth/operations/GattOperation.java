@@ -1,16 +1,18 @@
 package com.tapwithus.sdk.bluetooth.operations;
 
 import android.bluetooth.BluetoothGatt;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import com.tapwithus.sdk.bluetooth.GattError;
 import com.tapwithus.sdk.bluetooth.callbacks.OnCompletionListener;
 import com.tapwithus.sdk.bluetooth.callbacks.OnErrorListener;
 import com.tapwithus.sdk.bluetooth.callbacks.OnNotFoundListener;
+import com.tapwithus.sdk.bluetooth.callbacks.OnSupersededListener;
 
 import java.util.Iterator;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 public abstract class GattOperation<T> {
@@ -18,17 +20,52 @@ public abstract class GattOperation<T> {
     public static final int GATT_SUCCESS = BluetoothGatt.GATT_SUCCESS;
     public static final int OP_TIMEOUT = 30000;
 
+    private static volatile GattScheduler scheduler = new ExecutorGattScheduler();
+
+    interface RetryHandler {
+        /**
+         * Called when an attempt of the operation failed, before the error listeners.
+         * @param status a GATT status, or one of the pseudo statuses of {@link GattError}
+         * @return true if the operation will be tried again, the error listeners are then skipped
+         */
+        boolean onFailure(@NonNull GattOperation<?> operation, int status, @NonNull String msg);
+    }
 
     private boolean isRunning = false;
     private boolean isCompleted = false;
     private boolean isTimedout = false;
+    private volatile boolean isCancelled = false;
 
     private long preDelay = 0;
     private long postDelay = 0;
+    private long timeout = OP_TIMEOUT;
+    private boolean isTimeoutFixed = false;
+    private long executeTime = 0;
+    private long latency = -1;
+    private int attempt = 1;
+    private int errorStatus = GattError.NO_STATUS;
+    private volatile RetryHandler retryHandler;
+    private OperationPriority priority = OperationPriority.CONTROL;
+    private boolean retryable = true;
+
+    private volatile GattScheduler.Task timeoutTask;
+    private volatile GattScheduler.Task delayTask;
 
     private final List<OnCompletionListener<T>> cCallbacks = new CopyOnWriteArrayList<>();
     private final List<OnErrorListener> eCallbacks = new CopyOnWriteArrayList<>();
     private final List<OnNotFoundListener> nfCallbacks = new CopyOnWriteArrayList<>();
+    private final List<OnSupersededListener> sCallbacks = new CopyOnWriteArrayList<>();
+
+    /**
+     * Replaces the scheduler shared by all operations, e.g. with a virtual clock in tests.
+     */
+    public static void setScheduler(@NonNull GattScheduler scheduler) {
+        GattOperation.scheduler = scheduler;
+    }
+
+    public static @NonNull GattScheduler getScheduler() {
+        return scheduler;
+    }
 
     public abstract OperationType type();
     public abstract void onExecute(@NonNull BluetoothGatt gatt);
@@ -42,6 +79,63 @@ public abstract class GattOperation<T> {
         return isCompleted;
     }
 
+    public boolean isTimedout() {
+        return isTimedout;
+    }
+
+    /**
+     * @return true if the operation was cancelled before it started, see {@link GattExecutor#cancel(GattOperation)}
+     */
+    public boolean isCancelled() {
+        return isCancelled;
+    }
+
+    void markCancelled() {
+        isCancelled = true;
+    }
+
+    /**
+     * @return how long the operation may take at most, delays and timeout included
+     */
+    public long getMaxDuration() {
+        return preDelay + timeout + postDelay;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Fixes the timeout of this operation. Otherwise the executor sets it from the latency observed on the link, see
+     * {@link OperationTimeouts}.
+     * @param timeout must be greater than zero
+     * @return this
+     */
+    public GattOperation<T> setTimeout(long timeout) {
+        if (timeout > 0) {
+            this.timeout = timeout;
+            this.isTimeoutFixed = true;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the timeout unless it was fixed with {@link #setTimeout(long)}.
+     */
+    void setAdaptiveTimeout(long timeout) {
+        if (!isTimeoutFixed && timeout > 0) {
+            this.timeout = timeout;
+        }
+    }
+
+    /**
+     * @return the time from the start of the operation to its GATT callback, delays excluded, or -1 if it didn't
+     * complete
+     */
+    public long getLatency() {
+        return latency;
+    }
+
     /**
      * @param preDelay must be greater than zero
      * @return this
@@ -64,6 +158,65 @@ public abstract class GattOperation<T> {
         return this;
     }
 
+    public OperationPriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * @param priority defaults to {@link OperationPriority#CONTROL}
+     * @return this
+     */
+    public GattOperation<T> setPriority(@NonNull OperationPriority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * @return the current attempt, starting at 1
+     */
+    public int getAttempt() {
+        return attempt;
+    }
+
+    /**
+     * @return the status of the last failed attempt, see {@link GattError#parse(int)}
+     */
+    public int getErrorStatus() {
+        return errorStatus;
+    }
+
+    /**
+     * Marks a one-shot command, e.g. a haptic, that must not be sent twice. A timed out attempt may still have reached
+     * the device.
+     * @param retryable defaults to true
+     * @return this
+     */
+    public GattOperation<T> setRetryable(boolean retryable) {
+        this.retryable = retryable;
+        return this;
+    }
+
+    /**
+     * Whether the operation may be tried again after a transient failure. Disconnecting, refreshing, waiting for
+     * a change and operations marked with {@link #setRetryable(boolean)} are not.
+     */
+    public boolean isRetryable() {
+        OperationType type = type();
+        return retryable
+                && type != null
+                && type != OperationType.DISCONNECT
+                && type != OperationType.REFRESH
+                && type != OperationType.CHAR_CHANGE;
+    }
+
+    void setRetryHandler(@NonNull RetryHandler retryHandler) {
+        this.retryHandler = retryHandler;
+    }
+
+    void onRetry() {
+        attempt++;
+    }
+
     public GattOperation<T> addOnCompletionListener(@NonNull OnCompletionListener<T> listener) {
         if (!cCallbacks.contains(listener)) {
             cCallbacks.add(listener);
@@ -100,13 +253,34 @@ public abstract class GattOperation<T> {
         return this;
     }
 
+    public GattOperation<T> addOnSupersededListener(@NonNull OnSupersededListener listener) {
+        if (!sCallbacks.contains(listener)) {
+            sCallbacks.add(listener);
+        }
+        return this;
+    }
+
+    public GattOperation<T> removeOnSupersededListener(@NonNull OnSupersededListener listener) {
+        sCallbacks.remove(listener);
+        return this;
+    }
+
+    /**
+     * Whether this operation makes the given queued, not yet started, operation redundant, so that the executor may
+     * drop it. No operation supersedes another by default.
+     */
+    public boolean supersedes(@NonNull GattOperation<?> queued) {
+        return false;
+    }
+
     public void execute(@NonNull final BluetoothGatt gatt) {
         isRunning = true;
         isCompleted = false;
         isTimedout = false;
+        latency = -1;
 
         if (preDelay == 0) {
-            setTimeout(gatt.toString());
+            scheduleTimeout(gatt.toString());
             onExecute(gatt);
             return;
         }
@@ -114,12 +288,20 @@ public abstract class GattOperation<T> {
         delay(preDelay, new OnCompletionListener<Void>() {
             @Override
             public void onCompletion(Void data) {
-                setTimeout(gatt.toString());
+                scheduleTimeout(gatt.toString());
                 onExecute(gatt);
             }
         });
     }
 
+    /**
+     * For callbacks that carry the value they are for. The value of a characteristic or descriptor object is shared
+     * and overwritten by the next callback, so operations completing with a value should take this one instead.
+     */
+    public void gattCallback(@NonNull Object gattOrCharOrDesc, @Nullable byte[] value, int status) {
+        gattCallback(gattOrCharOrDesc, status);
+    }
+
     public void gattCallback(@NonNull Object gattOrCharOrDesc) {
         gattCallback(gattOrCharOrDesc, GATT_SUCCESS);
     }
@@ -132,6 +314,8 @@ public abstract class GattOperation<T> {
         if (isTimedout) {
             return;
         }
+        cancelTimeout();
+        latency = SystemClock.elapsedRealtime() - executeTime;
 
         if (postDelay == 0) {
             doPostOnCompletion(data);
@@ -147,6 +331,36 @@ public abstract class GattOperation<T> {
     }
 
     protected void postOnError(@NonNull final String msg) {
+        postOnError(GattError.NO_STATUS, msg);
+    }
+
+    /**
+     * @param status a GATT status, or one of the pseudo statuses of {@link GattError}. A transient status may have the
+     * executor retry the operation instead of failing it.
+     */
+    protected void postOnError(int status, @NonNull final String msg) {
+        cancelTimeout();
+        cancelDelay();
+        errorStatus = status;
+
+        RetryHandler handler = retryHandler;
+        if (handler != null && handler.onFailure(this, status, msg)) {
+            return;
+        }
+        notifyOnError(msg);
+    }
+
+    /**
+     * Fails the operation without a retry, see {@link GattExecutor#checkStall(long)}.
+     */
+    void postOnStalled(@NonNull final String msg) {
+        cancelTimeout();
+        cancelDelay();
+        errorStatus = GattError.TIMEOUT;
+        notifyOnError(msg);
+    }
+
+    private void notifyOnError(@NonNull final String msg) {
         isRunning = false;
         isCompleted = true;
 
@@ -158,12 +372,25 @@ public abstract class GattOperation<T> {
     protected void postOnNotFound(@NonNull final String message) {
         isRunning = false;
         isCompleted = true;
+        cancelTimeout();
+        cancelDelay();
 
         for (Iterator<OnNotFoundListener> iterator = nfCallbacks.iterator(); iterator.hasNext();) {
             iterator.next().onNotFound(message);
         }
     }
 
+    void postOnSuperseded(@NonNull final String message) {
+        isRunning = false;
+        isCompleted = true;
+        cancelTimeout();
+        cancelDelay();
+
+        for (Iterator<OnSupersededListener> iterator = sCallbacks.iterator(); iterator.hasNext();) {
+            iterator.next().onSuperseded(message);
+        }
+    }
+
     private void doPostOnCompletion(T data) {
         isRunning = false;
         isCompleted = true;
@@ -173,24 +400,37 @@ public abstract class GattOperation<T> {
         }
     }
 
-    private void setTimeout(String description) {
-        delay(OP_TIMEOUT, new OnCompletionListener<Void>() {
-            @Override
-            public void onCompletion(Void data) {
-                if (!isCompleted) {
-                    isTimedout = true;
-                    postOnError("Operation timeout (" + type().toString()  + ") " + description);
-                }
+    private void scheduleTimeout(String description) {
+        cancelTimeout();
+        executeTime = SystemClock.elapsedRealtime();
+        timeoutTask = scheduler.schedule(() -> {
+            if (!isCompleted) {
+                isTimedout = true;
+                postOnError(GattError.TIMEOUT, "Operation timeout (" + type().toString()  + ", " + timeout + "ms) " + description);
             }
-        });
+        }, timeout);
+    }
+
+    private void cancelTimeout() {
+        GattScheduler.Task task = timeoutTask;
+        timeoutTask = null;
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    private void cancelDelay() {
+        GattScheduler.Task task = delayTask;
+        delayTask = null;
+        if (task != null) {
+            task.cancel();
+        }
     }
 
     private void delay(long delay, final OnCompletionListener<Void> onFinish) {
-        new Timer().schedule(new TimerTask() {
-            @Override
-            public void run() {
-                onFinish.onCompletion(null);
-            }
+        delayTask = scheduler.schedule(() -> {
+            delayTask = null;
+            onFinish.onCompletion(null);
         }, delay);
     }
 }
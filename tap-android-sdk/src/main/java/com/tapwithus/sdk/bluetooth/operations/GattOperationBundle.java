@@ -2,6 +2,7 @@ package com.tapwithus.sdk.bluetooth.operations;
 
 import android.bluetooth.BluetoothGatt;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.tapwithus.sdk.bluetooth.ErrorStrings;
 import com.tapwithus.sdk.bluetooth.callbacks.OnCompletionListener;
@@ -46,7 +47,16 @@ public class GattOperationBundle extends GattOperation<Void> implements OnComple
     @Override
     public void gattCallback(@NonNull Object gattOrCharOrDesc, int status) {
         currentOperation.gattCallback(gattOrCharOrDesc, status);
+        onCurrentOperationCallback();
+    }
+
+    @Override
+    public void gattCallback(@NonNull Object gattOrCharOrDesc, @Nullable byte[] value, int status) {
+        currentOperation.gattCallback(gattOrCharOrDesc, value, status);
+        onCurrentOperationCallback();
+    }
 
+    private void onCurrentOperationCallback() {
         GattOperation nextOperation = getNextOperation();
         if (nextOperation == null) {
             postOnCompletion(null);
@@ -0,0 +1,20 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Runs the delayed work of {@link GattOperation}s - pre-delays, post-delays and timeouts.
+ * All operations share a single scheduler, see {@link GattOperation#setScheduler(GattScheduler)}.
+ */
+public interface GattScheduler {
+
+    interface Task {
+        /**
+         * Cancels the task if it hasn't run yet. Safe to call more than once.
+         */
+        void cancel();
+    }
+
+    @NonNull
+    Task schedule(@NonNull Runnable runnable, long delayMillis);
+}
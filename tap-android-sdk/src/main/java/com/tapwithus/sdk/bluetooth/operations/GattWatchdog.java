@@ -0,0 +1,75 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Periodically checks every {@link GattExecutor} for a stalled queue and restarts it, see
+ * {@link GattExecutor#checkStall(long)}. Runs on the shared {@link GattScheduler}.
+ */
+public class GattWatchdog {
+
+    public static final long CHECK_INTERVAL = 2000;
+    /** Extra time a running operation gets past its own timeout before it counts as stuck. */
+    public static final long GRACE_PERIOD = 5000;
+
+    public interface OnStallListener {
+        /**
+         * @param stalledFor how long the queue was stalled, in milliseconds
+         * @param consecutiveStalls stalls since the last operation that completed successfully
+         */
+        void onStall(@NonNull String deviceAddress, long stalledFor, int consecutiveStalls);
+    }
+
+    private final Iterable<GattExecutor> executors;
+    private final OnStallListener listener;
+    private GattScheduler.Task task;
+
+    /**
+     * @param executors the executors to check. Iterated on every check, so it may change.
+     */
+    public GattWatchdog(@NonNull Iterable<GattExecutor> executors, @NonNull OnStallListener listener) {
+        this.executors = executors;
+        this.listener = listener;
+    }
+
+    public synchronized void start() {
+        if (task == null) {
+            schedule();
+        }
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private synchronized void schedule() {
+        task = GattOperation.getScheduler().schedule(this::check, CHECK_INTERVAL);
+    }
+
+    private void check() {
+        synchronized (this) {
+            if (task == null) {
+                return;
+            }
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        for (GattExecutor executor : executors) {
+            long stalledFor = executor.checkStall(now);
+            if (stalledFor > 0) {
+                listener.onStall(executor.getDeviceAddress(), stalledFor, executor.getConsecutiveStalls());
+            }
+        }
+
+        synchronized (this) {
+            if (task != null) {
+                schedule();
+            }
+        }
+    }
+}
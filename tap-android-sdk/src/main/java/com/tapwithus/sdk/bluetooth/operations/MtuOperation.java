@@ -0,0 +1,50 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import android.bluetooth.BluetoothGatt;
+import androidx.annotation.NonNull;
+
+import com.tapwithus.sdk.bluetooth.ErrorStrings;
+import com.tapwithus.sdk.bluetooth.GattError;
+
+/**
+ * Requests an ATT MTU exchange. Completes with the MTU agreed by both sides.
+ */
+public class MtuOperation extends GattOperation<Integer> {
+
+    private final int mtu;
+
+    public MtuOperation(int mtu) {
+        this.mtu = mtu;
+    }
+
+    @Override
+    public OperationType type() {
+        return OperationType.MTU;
+    }
+
+    @Override
+    public void onExecute(@NonNull BluetoothGatt gatt) {
+        try {
+            if (!gatt.requestMtu(mtu)) {
+                postOnError(GattError.INIT_FAILED, ErrorStrings.MTU_OP_INIT_FAIL);
+            }
+        } catch (SecurityException se) {
+            postOnError(ErrorStrings.MTU_OP_INIT_FAIL);
+            postOnError(ErrorStrings.LACKING_PERMISSION_FAIL);
+        }
+    }
+
+    @Override
+    public void gattCallback(Object gattOrCharOrDesc, int status) {
+        if (!(gattOrCharOrDesc instanceof Integer)) {
+            postOnError(ErrorStrings.GATT_CALLBACK_MISMATCH);
+            return;
+        }
+
+        if (status == BluetoothGatt.GATT_SUCCESS) {
+            postOnCompletion((Integer) gattOrCharOrDesc);
+        } else {
+            postOnError(status, ErrorStrings.MTU_OP_FAIL + " " + status);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+/**
+ * Scheduling class of a {@link GattOperation}. The executor runs higher priorities first, in declaration order.
+ */
+public enum OperationPriority {
+    /** User facing feedback, like haptics. Stale feedback is dropped when the link can't keep up. */
+    INTERACTIVE(new QueueLimit(8, DropPolicy.DROP_OLDEST)),
+    /** Connection setup, subscriptions and mode changes. */
+    CONTROL(new QueueLimit(32, DropPolicy.REJECT)),
+    /** Metadata reads and other work that may wait. */
+    BACKGROUND(new QueueLimit(32, DropPolicy.REJECT));
+
+    private final QueueLimit defaultLimit;
+
+    OperationPriority(QueueLimit defaultLimit) {
+        this.defaultLimit = defaultLimit;
+    }
+
+    /**
+     * @return the queue limit of the priority, unless changed with {@link GattExecutor#setQueueLimit(OperationPriority, QueueLimit)}
+     */
+    public QueueLimit getDefaultLimit() {
+        return defaultLimit;
+    }
+}
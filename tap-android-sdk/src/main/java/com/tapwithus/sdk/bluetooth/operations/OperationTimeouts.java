@@ -0,0 +1,101 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Timeouts of the operations of a single device, by {@link OperationType}, adapted to the latency observed on the link.
+ * <p>
+ * The timeout of a type is the 99th percentile of its last {@link #WINDOW_SIZE} latencies times {@link #FACTOR},
+ * clamped between the minimum of the type and {@link GattOperation#OP_TIMEOUT}. Until {@link #MIN_SAMPLES} latencies
+ * were seen, or if the type has an override, the timeout is fixed. A timed out operation counts as a sample of its
+ * timeout, so the timeout grows again on a degraded link.
+ */
+public class OperationTimeouts {
+
+    public static final int WINDOW_SIZE = 32;
+    public static final int MIN_SAMPLES = 8;
+    public static final int FACTOR = 3;
+    public static final long MIN_TIMEOUT = 1000;
+    /** Minimum of the operations that involve the whole connection, like service discovery or an MTU exchange. */
+    public static final long MIN_CONNECTION_TIMEOUT = 5000;
+
+    private final OperationType[] types = OperationType.values();
+    private final long[][] samples = new long[types.length][WINDOW_SIZE];
+    private final int[] sampleCounts = new int[types.length];
+    private final int[] nextSamples = new int[types.length];
+    private final long[] timeouts = new long[types.length];
+    private final long[] overrides = new long[types.length];
+
+    public OperationTimeouts() {
+        Arrays.fill(timeouts, GattOperation.OP_TIMEOUT);
+    }
+
+    /**
+     * @return the timeout for the next operation of the type
+     */
+    public synchronized long getTimeout(@Nullable OperationType type) {
+        if (type == null) {
+            return GattOperation.OP_TIMEOUT;
+        }
+        int i = type.ordinal();
+        return overrides[i] > 0 ? overrides[i] : timeouts[i];
+    }
+
+    /**
+     * Fixes the timeout of the type, regardless of the observed latency.
+     * @param timeout in milliseconds, 0 to adapt it again
+     */
+    public synchronized void setOverride(@NonNull OperationType type, long timeout) {
+        overrides[type.ordinal()] = Math.max(0, timeout);
+    }
+
+    /**
+     * @param latency from the start of an operation to its GATT callback, in milliseconds
+     */
+    public synchronized void onCompleted(@Nullable OperationType type, long latency) {
+        if (type != null && latency >= 0) {
+            addSample(type.ordinal(), latency);
+        }
+    }
+
+    /**
+     * @param timeout the timeout the operation failed with
+     */
+    public synchronized void onTimedOut(@Nullable OperationType type, long timeout) {
+        if (type != null) {
+            addSample(type.ordinal(), timeout);
+        }
+    }
+
+    private void addSample(int i, long sample) {
+        samples[i][nextSamples[i]] = sample;
+        nextSamples[i] = (nextSamples[i] + 1) % WINDOW_SIZE;
+        sampleCounts[i] = Math.min(sampleCounts[i] + 1, WINDOW_SIZE);
+        if (sampleCounts[i] < MIN_SAMPLES) {
+            return;
+        }
+
+        int count = sampleCounts[i];
+        long[] sorted = Arrays.copyOf(samples[i], count);
+        Arrays.sort(sorted);
+        long p99 = sorted[(int) Math.ceil(count * 0.99) - 1];
+        long min = getMinTimeout(types[i]);
+        timeouts[i] = Math.max(min, Math.min(GattOperation.OP_TIMEOUT, p99 * FACTOR));
+    }
+
+    private static long getMinTimeout(@NonNull OperationType type) {
+        switch (type) {
+            case CHAR_READ:
+            case CHAR_WRITE:
+            case CHAR_CHANGE:
+            case DESC_READ:
+            case DESC_WRITE:
+                return MIN_TIMEOUT;
+            default:
+                return MIN_CONNECTION_TIMEOUT;
+        }
+    }
+}
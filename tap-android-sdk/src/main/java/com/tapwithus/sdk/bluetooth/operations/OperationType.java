@@ -9,4 +9,7 @@ public enum OperationType {
     DESC_READ,
     DESC_WRITE,
     DISCONNECT,
+    MTU,
+    CONNECTION_PRIORITY,
+    PHY,
 }
@@ -0,0 +1,65 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.os.Build;
+import androidx.annotation.NonNull;
+
+import com.tapwithus.sdk.bluetooth.ErrorStrings;
+
+/**
+ * Sets the preferred PHY, e.g. {@link BluetoothDevice#PHY_LE_2M_MASK}. Completes with the TX PHY in use.
+ * PHY selection needs Android 8.0, on older versions the operation completes right away with {@link BluetoothDevice#PHY_LE_1M}.
+ */
+public class PhyOperation extends GattOperation<Integer> {
+
+    private static final int PHY_LE_1M = 1;
+
+    private final int phyMask;
+
+    public PhyOperation(int phyMask) {
+        this.phyMask = phyMask;
+    }
+
+    @Override
+    public OperationType type() {
+        return OperationType.PHY;
+    }
+
+    /**
+     * The PHY is only a preference, and a timeout usually means the stack won't report an update, not that it was busy.
+     */
+    @Override
+    public boolean isRetryable() {
+        return false;
+    }
+
+    @Override
+    public void onExecute(@NonNull BluetoothGatt gatt) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            gattCallback(PHY_LE_1M, GATT_SUCCESS);
+            return;
+        }
+
+        try {
+            gatt.setPreferredPhy(phyMask, phyMask, BluetoothDevice.PHY_OPTION_NO_PREFERRED);
+        } catch (SecurityException se) {
+            postOnError(ErrorStrings.PHY_OP_FAIL);
+            postOnError(ErrorStrings.LACKING_PERMISSION_FAIL);
+        }
+    }
+
+    @Override
+    public void gattCallback(Object gattOrCharOrDesc, int status) {
+        if (!(gattOrCharOrDesc instanceof Integer)) {
+            postOnError(ErrorStrings.GATT_CALLBACK_MISMATCH);
+            return;
+        }
+
+        if (status == BluetoothGatt.GATT_SUCCESS) {
+            postOnCompletion((Integer) gattOrCharOrDesc);
+        } else {
+            postOnError(status, ErrorStrings.PHY_OP_FAIL + " " + status);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Bound of the queue of a single {@link OperationPriority} of a device, and what happens once it is full.
+ */
+public class QueueLimit {
+
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private final int capacity;
+    private final DropPolicy dropPolicy;
+
+    /**
+     * @param capacity queued operations, the running one excluded. At least 1.
+     */
+    public QueueLimit(int capacity, @NonNull DropPolicy dropPolicy) {
+        this.capacity = Math.max(1, capacity);
+        this.dropPolicy = dropPolicy;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public @NonNull DropPolicy getDropPolicy() {
+        return dropPolicy;
+    }
+}
@@ -0,0 +1,68 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Random;
+
+/**
+ * How often, and how long after, an operation that failed with a transient status is tried again, see
+ * {@link com.tapwithus.sdk.bluetooth.GattError#isTransient(int)}.
+ * <p>
+ * The n-th retry waits a random time between half and all of {@code baseDelay * 2^(n-1)}, capped at
+ * {@code maxDelay}, so devices that failed together don't all retry at the same moment.
+ */
+public class RetryPolicy {
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 100, 2000);
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final Random random;
+
+    /**
+     * @param maxAttempts attempts of an operation, the first one included
+     * @param baseDelay delay before the first retry, in milliseconds
+     * @param maxDelay longest delay before a retry, in milliseconds
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay) {
+        this(maxAttempts, baseDelay, maxDelay, new Random());
+    }
+
+    @VisibleForTesting
+    RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, @NonNull Random random) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelay = Math.max(0, baseDelay);
+        this.maxDelay = Math.max(this.baseDelay, maxDelay);
+        this.random = random;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param attempt the attempt that failed, starting at 1
+     * @return whether there is another attempt
+     */
+    public boolean shouldRetry(int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /**
+     * @param attempt the attempt that failed, starting at 1
+     * @return the delay before the next attempt, in milliseconds
+     */
+    public long getDelay(int attempt) {
+        long delay = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 16));
+        if (delay <= 1) {
+            return delay;
+        }
+        long half = delay / 2;
+        synchronized (random) {
+            return half + (long) (random.nextDouble() * (delay - half));
+        }
+    }
+}
@@ -6,6 +6,7 @@ import android.bluetooth.BluetoothGattDescriptor;
 import androidx.annotation.NonNull;
 
 import com.tapwithus.sdk.bluetooth.ErrorStrings;
+import com.tapwithus.sdk.bluetooth.GattError;
 
 import java.util.UUID;
 
@@ -18,11 +19,11 @@ public class SetNotificationOperation extends DescriptorWriteOperation {
     }
 
     @Override
-    public void execute(@NonNull BluetoothGatt gatt) {
+    public void onExecute(@NonNull BluetoothGatt gatt) {
 
         BluetoothGattCharacteristic c = extractCharacteristic(gatt);
         if (c == null) {
-            postOnError(ErrorStrings.NO_CHARACTERISTIC + ": " + this.characteristic.toString());
+            postOnNotFound(ErrorStrings.NO_CHARACTERISTIC + ": " + this.characteristic.toString());
             return;
         }
 
@@ -63,7 +64,7 @@ public class SetNotificationOperation extends DescriptorWriteOperation {
 
         try {
             if (!gatt.writeDescriptor(d)) {
-                postOnError(ErrorStrings.WRITE_OP_INIT_FAIL);
+                postOnError(GattError.INIT_FAILED, ErrorStrings.WRITE_OP_INIT_FAIL);
             }
         } catch (SecurityException se) {
             postOnError(ErrorStrings.NOTIFY_OP_INIT_FAIL);
@@ -12,7 +12,7 @@ public class Point3 {
     public double y;
     public double z;
 
-    private Point3(double x, double y, double z) {
+    Point3(double x, double y, double z) {
         this.x = x;
         this.y = y;
         this.z = z;
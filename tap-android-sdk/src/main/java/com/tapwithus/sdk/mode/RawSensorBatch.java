@@ -0,0 +1,206 @@
+package com.tapwithus.sdk.mode;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * All the raw sensor samples of a single notification, stored column by column.
+ * <p>
+ * Sample {@code i}, in the order the Tap sent them, has its timestamp at index {@code i} of {@link #getTimestamps()},
+ * its type at index {@code i} of {@link #getDataTypes()} and the index {@code j} of its values at index {@code i} of
+ * {@link #getValueIndices()}. IMU and Device values are kept in separate columns: for an IMU sample the gyro and
+ * accelerometer values are at index {@code j} of the matching column, for a Device sample the accelerometer values of
+ * finger {@code f} ({@link RawSensorData#iDEV_THUMB} to {@link RawSensorData#iDEV_PINKY}) are at index
+ * {@code j * DEVICE_POINTS + f}.
+ * <p>
+ * The SDK reuses one batch per Tap, so the arrays are only valid during the listener callback and may be longer than
+ * the sample count. Use {@link #copy()} to keep a batch.
+ */
+public class RawSensorBatch implements RawSensorDataSink {
+
+    public static final int DEVICE_POINTS = 5;
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private int count;
+    private int[] timestamps = new int[INITIAL_CAPACITY];
+    private RawSensorData.DataType[] dataTypes = new RawSensorData.DataType[INITIAL_CAPACITY];
+    private int[] valueIndices = new int[INITIAL_CAPACITY];
+
+    private int imuCount;
+    private float[] gyroX = new float[INITIAL_CAPACITY];
+    private float[] gyroY = new float[INITIAL_CAPACITY];
+    private float[] gyroZ = new float[INITIAL_CAPACITY];
+    private float[] imuAccelX = new float[INITIAL_CAPACITY];
+    private float[] imuAccelY = new float[INITIAL_CAPACITY];
+    private float[] imuAccelZ = new float[INITIAL_CAPACITY];
+
+    private int deviceCount;
+    private float[] deviceAccelX = new float[INITIAL_CAPACITY * DEVICE_POINTS];
+    private float[] deviceAccelY = new float[INITIAL_CAPACITY * DEVICE_POINTS];
+    private float[] deviceAccelZ = new float[INITIAL_CAPACITY * DEVICE_POINTS];
+
+    private RawSensorData.DataType currentType;
+    private int currentIndex;
+
+    public void clear() {
+        count = 0;
+        imuCount = 0;
+        deviceCount = 0;
+        currentType = null;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public @NonNull int[] getTimestamps() {
+        return timestamps;
+    }
+
+    public @NonNull RawSensorData.DataType[] getDataTypes() {
+        return dataTypes;
+    }
+
+    public @NonNull int[] getValueIndices() {
+        return valueIndices;
+    }
+
+    public int getImuCount() {
+        return imuCount;
+    }
+
+    public @NonNull float[] getGyroX() {
+        return gyroX;
+    }
+
+    public @NonNull float[] getGyroY() {
+        return gyroY;
+    }
+
+    public @NonNull float[] getGyroZ() {
+        return gyroZ;
+    }
+
+    public @NonNull float[] getImuAccelX() {
+        return imuAccelX;
+    }
+
+    public @NonNull float[] getImuAccelY() {
+        return imuAccelY;
+    }
+
+    public @NonNull float[] getImuAccelZ() {
+        return imuAccelZ;
+    }
+
+    public int getDeviceCount() {
+        return deviceCount;
+    }
+
+    public @NonNull float[] getDeviceAccelX() {
+        return deviceAccelX;
+    }
+
+    public @NonNull float[] getDeviceAccelY() {
+        return deviceAccelY;
+    }
+
+    public @NonNull float[] getDeviceAccelZ() {
+        return deviceAccelZ;
+    }
+
+    /**
+     * @return a detached batch, trimmed to the current sample counts
+     */
+    public @NonNull RawSensorBatch copy() {
+        RawSensorBatch copy = new RawSensorBatch();
+        copy.count = count;
+        copy.timestamps = Arrays.copyOf(timestamps, count);
+        copy.dataTypes = Arrays.copyOf(dataTypes, count);
+        copy.valueIndices = Arrays.copyOf(valueIndices, count);
+        copy.imuCount = imuCount;
+        copy.gyroX = Arrays.copyOf(gyroX, imuCount);
+        copy.gyroY = Arrays.copyOf(gyroY, imuCount);
+        copy.gyroZ = Arrays.copyOf(gyroZ, imuCount);
+        copy.imuAccelX = Arrays.copyOf(imuAccelX, imuCount);
+        copy.imuAccelY = Arrays.copyOf(imuAccelY, imuCount);
+        copy.imuAccelZ = Arrays.copyOf(imuAccelZ, imuCount);
+        copy.deviceCount = deviceCount;
+        copy.deviceAccelX = Arrays.copyOf(deviceAccelX, deviceCount * DEVICE_POINTS);
+        copy.deviceAccelY = Arrays.copyOf(deviceAccelY, deviceCount * DEVICE_POINTS);
+        copy.deviceAccelZ = Arrays.copyOf(deviceAccelZ, deviceCount * DEVICE_POINTS);
+        return copy;
+    }
+
+    @Override
+    public void onSample(int sampleIndex, int timestamp, @NonNull RawSensorData.DataType dataType) {
+        currentType = dataType;
+        if (dataType == RawSensorData.DataType.IMU) {
+            ensureImuCapacity(imuCount + 1);
+            currentIndex = imuCount++;
+        } else {
+            ensureDeviceCapacity(deviceCount + 1);
+            currentIndex = deviceCount++;
+        }
+        ensureCapacity(count + 1);
+        timestamps[count] = timestamp;
+        dataTypes[count] = dataType;
+        valueIndices[count] = currentIndex;
+        count++;
+    }
+
+    @Override
+    public void onPoint(int sampleIndex, int pointIndex, double x, double y, double z) {
+        if (currentType == RawSensorData.DataType.IMU) {
+            if (pointIndex == RawSensorData.iIMU_GYRO) {
+                gyroX[currentIndex] = (float) x;
+                gyroY[currentIndex] = (float) y;
+                gyroZ[currentIndex] = (float) z;
+            } else {
+                imuAccelX[currentIndex] = (float) x;
+                imuAccelY[currentIndex] = (float) y;
+                imuAccelZ[currentIndex] = (float) z;
+            }
+        } else if (currentType == RawSensorData.DataType.Device) {
+            int index = currentIndex * DEVICE_POINTS + pointIndex;
+            deviceAccelX[index] = (float) x;
+            deviceAccelY[index] = (float) y;
+            deviceAccelZ[index] = (float) z;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= timestamps.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, timestamps.length * 2);
+        timestamps = Arrays.copyOf(timestamps, newCapacity);
+        dataTypes = Arrays.copyOf(dataTypes, newCapacity);
+        valueIndices = Arrays.copyOf(valueIndices, newCapacity);
+    }
+
+    private void ensureImuCapacity(int capacity) {
+        if (capacity <= gyroX.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, gyroX.length * 2);
+        gyroX = Arrays.copyOf(gyroX, newCapacity);
+        gyroY = Arrays.copyOf(gyroY, newCapacity);
+        gyroZ = Arrays.copyOf(gyroZ, newCapacity);
+        imuAccelX = Arrays.copyOf(imuAccelX, newCapacity);
+        imuAccelY = Arrays.copyOf(imuAccelY, newCapacity);
+        imuAccelZ = Arrays.copyOf(imuAccelZ, newCapacity);
+    }
+
+    private void ensureDeviceCapacity(int capacity) {
+        if (capacity <= deviceAccelX.length / DEVICE_POINTS) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, deviceAccelX.length / DEVICE_POINTS * 2);
+        deviceAccelX = Arrays.copyOf(deviceAccelX, newCapacity * DEVICE_POINTS);
+        deviceAccelY = Arrays.copyOf(deviceAccelY, newCapacity * DEVICE_POINTS);
+        deviceAccelZ = Arrays.copyOf(deviceAccelZ, newCapacity * DEVICE_POINTS);
+    }
+}
@@ -28,7 +28,7 @@ public class RawSensorData {
     public DataType dataType;
     public Point3[] points;
 
-    private RawSensorData(int timestamp, DataType dataType, Point3[] points) {
+    RawSensorData(int timestamp, DataType dataType, Point3[] points) {
         this.timestamp = timestamp;
         this.dataType = dataType;
         this.points = Arrays.copyOf(points, points.length);
@@ -0,0 +1,59 @@
+package com.tapwithus.sdk.mode;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds {@link RawSensorData} objects out of the decoded samples, for listeners that still consume them one by one.
+ * Every sample is also forwarded to the next sink, if any.
+ */
+public class RawSensorDataCollector implements RawSensorDataSink {
+
+    private final List<RawSensorData> rsData = new ArrayList<>();
+    private final @Nullable RawSensorDataSink next;
+
+    private int currentTimestamp;
+    private RawSensorData.DataType currentType;
+    private Point3[] currentPoints;
+
+    public RawSensorDataCollector(@Nullable RawSensorDataSink next) {
+        this.next = next;
+    }
+
+    public @NonNull List<RawSensorData> getRawSensorData() {
+        return rsData;
+    }
+
+    /**
+     * Drops the collected data, so the collector can be reused for the next notification.
+     */
+    public void clear() {
+        rsData.clear();
+        currentType = null;
+        currentPoints = null;
+    }
+
+    @Override
+    public void onSample(int sampleIndex, int timestamp, @NonNull RawSensorData.DataType dataType) {
+        currentTimestamp = timestamp;
+        currentType = dataType;
+        currentPoints = new Point3[dataType == RawSensorData.DataType.IMU ? 2 : 5];
+        if (next != null) {
+            next.onSample(sampleIndex, timestamp, dataType);
+        }
+    }
+
+    @Override
+    public void onPoint(int sampleIndex, int pointIndex, double x, double y, double z) {
+        currentPoints[pointIndex] = new Point3(x, y, z);
+        if (pointIndex == currentPoints.length - 1) {
+            rsData.add(new RawSensorData(currentTimestamp, currentType, currentPoints));
+        }
+        if (next != null) {
+            next.onPoint(sampleIndex, pointIndex, x, y, z);
+        }
+    }
+}
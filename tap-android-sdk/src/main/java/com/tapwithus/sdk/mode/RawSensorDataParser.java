@@ -16,6 +16,12 @@ public class RawSensorDataParser {
 
     }
 
+    static final int META_LENGTH = 4;
+    static final int MAX_RECORD_LENGTH = 34;
+    private static final int POINT_LENGTH = 6;
+    private static final int IMU_MESSAGE_LENGTH = 12;
+    private static final int DEVICE_MESSAGE_LENGTH = 30;
+
     private static int parseAsLittleEndianByteArray(byte[] bytes) {
         if (bytes.length != 4) {
             return 0;
@@ -24,6 +30,80 @@ public class RawSensorDataParser {
                 ((bytes[1] & 0xff) << 8)  | (bytes[0] & 0xff);
     }
 
+    static int readIntLittleEndian(byte[] data, int offset) {
+        return ((data[offset + 3] & 0xff) << 24) | ((data[offset + 2] & 0xff) << 16) |
+                ((data[offset + 1] & 0xff) << 8)  | (data[offset] & 0xff);
+    }
+
+    private static short readShortLittleEndian(byte[] data, int offset) {
+        return (short) (((data[offset + 1] & 0xff) << 8) | (data[offset] & 0xff));
+    }
+
+    static int getTimestamp(int meta) {
+        return meta & 0x7fffffff;
+    }
+
+    static int getMessageLength(int meta) {
+        return (meta >>> 31) == 1 ? DEVICE_MESSAGE_LENGTH : IMU_MESSAGE_LENGTH;
+    }
+
+    /**
+     * Hands the sample whose meta word starts at {@code metaOffset} to the sink. The whole record must be in {@code data}.
+     */
+    static void decodeSample(byte[] data, int metaOffset, int sampleIndex, byte devAccelSens, byte imuGyroSens, byte imuAccelSens, @NonNull RawSensorDataSink sink) {
+        int meta = readIntLittleEndian(data, metaOffset);
+        boolean isDevice = (meta >>> 31) == 1;
+        int messageOffset = metaOffset + META_LENGTH;
+        int numOfPoints = getMessageLength(meta) / POINT_LENGTH;
+
+        sink.onSample(sampleIndex, getTimestamp(meta), isDevice ? RawSensorData.DataType.Device : RawSensorData.DataType.IMU);
+        for (int i = 0; i < numOfPoints; i++) {
+            double factor;
+            if (isDevice) {
+                factor = SensorSensitivity.getDeviceAccelFactor(devAccelSens);
+            } else if (i == RawSensorData.iIMU_GYRO) {
+                factor = SensorSensitivity.getImuGyroFactor(imuGyroSens);
+            } else {
+                factor = SensorSensitivity.getImuAccelFactor(imuAccelSens);
+            }
+            int pointOffset = messageOffset + i * POINT_LENGTH;
+            sink.onPoint(sampleIndex, i,
+                    readShortLittleEndian(data, pointOffset) * factor,
+                    readShortLittleEndian(data, pointOffset + 2) * factor,
+                    readShortLittleEndian(data, pointOffset + 4) * factor);
+        }
+    }
+
+    /**
+     * Decodes the raw sensor messages of a notification without any heap allocation, handing every sample to the given sink.
+     * Applies the same framing rules as {@link #parseWhole(String, byte[], byte, byte, byte)}.
+     * @return the number of samples passed to the sink
+     */
+    public static int parse(@NonNull byte[] data, int offset, int length, byte devAccelSens, byte imuGyroSens, byte imuAccelSens, @NonNull RawSensorDataSink sink) {
+        int end = offset + length;
+        int metaOffset = offset;
+        int count = 0;
+
+        while (metaOffset + META_LENGTH - 1 < end) {
+            int meta = readIntLittleEndian(data, metaOffset);
+            if (meta == 0) {
+                break;
+            }
+
+            int messageLength = getMessageLength(meta);
+            if (metaOffset + META_LENGTH + messageLength < end) {
+                decodeSample(data, metaOffset, count, devAccelSens, imuGyroSens, imuAccelSens, sink);
+                count++;
+            }
+
+            if (getTimestamp(meta) == 0) {
+                break;
+            }
+            metaOffset = metaOffset + META_LENGTH + messageLength;
+        }
+        return count;
+    }
+
     public static ArrayList<RawSensorData> parseWhole(@NonNull String tapIdentifier, byte[] data, byte devAccelSens, byte imuGyroSens, byte imuAccelSens) {
         int metaLength = 4;
         int metaOffset = 0;
@@ -0,0 +1,22 @@
+package com.tapwithus.sdk.mode;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Receives the samples decoded by {@link RawSensorDataParser#parse(byte[], int, int, byte, byte, byte, RawSensorDataSink)}
+ * as primitives, so that a caller can store them in its own reusable buffers.
+ */
+public interface RawSensorDataSink {
+
+    /**
+     * Called once for every decoded sample, before its points.
+     * @param sampleIndex index of the sample within the parsed notification
+     */
+    void onSample(int sampleIndex, int timestamp, @NonNull RawSensorData.DataType dataType);
+
+    /**
+     * Called for every point of the current sample - 2 points (gyro, accelerometer) for {@link RawSensorData.DataType#IMU}
+     * and 5 points (thumb to pinky) for {@link RawSensorData.DataType#Device}. Values are already scaled by the sensitivity factor.
+     */
+    void onPoint(int sampleIndex, int pointIndex, double x, double y, double z);
+}
@@ -0,0 +1,209 @@
+package com.tapwithus.sdk.mode;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Incremental raw sensor parser for a single Tap.
+ * <p>
+ * Unlike {@link RawSensorDataParser}, a record that straddles the end of a notification is not dropped. Its bytes are
+ * carried over and the record is completed with the head of the next notification. The carried bytes are dropped
+ * (resynced) and parsing starts over at the beginning of that notification if they didn't belong to it: when the
+ * completed record's timestamp goes back in time, or when the bytes following it in the notification don't start with
+ * a meta word whose timestamp closely follows it. Non-zero bytes that follow a terminating record are discarded. Zero
+ * padding is ignored.
+ * <p>
+ * A record that ends exactly at the end of a notification is decoded, where {@link RawSensorDataParser#parseWhole}
+ * drops it.
+ */
+public class RawSensorStreamParser {
+
+    /**
+     * The largest timestamp step, in milliseconds like the sample timestamps, from a completed carried record to the
+     * record after it. A larger one means the bytes after the carried record are sample data rather than a meta word.
+     * <p>
+     * Samples follow each other within a few milliseconds, so a real step stays far below a second, even when
+     * notifications were lost. Sample data read as a meta word gives a timestamp anywhere in the 31 bit range, which
+     * falls within a second after the carried record only rarely.
+     */
+    static final int MAX_TIMESTAMP_STEP = 1000;
+
+    private final byte[] carry = new byte[RawSensorDataParser.MAX_RECORD_LENGTH];
+    private int carryLength = 0;
+
+    private boolean hasLastTimestamp = false;
+    private int lastTimestamp = 0;
+
+    private long carriedBytes = 0;
+    private long resyncedBytes = 0;
+    private long discardedBytes = 0;
+
+    /**
+     * @return the number of samples passed to the sink
+     */
+    public int parse(@NonNull byte[] data, int offset, int length, byte devAccelSens, byte imuGyroSens, byte imuAccelSens, @NonNull RawSensorDataSink sink) {
+        int end = offset + length;
+        int pos = offset;
+        int count = 0;
+
+        if (carryLength > 0) {
+            int previousCarryLength = carryLength;
+            int taken = completeCarriedRecord(data, offset, end);
+            if (taken < 0) {
+                carriedBytes += carryLength - previousCarryLength;
+                return 0;
+            }
+
+            int meta = RawSensorDataParser.readIntLittleEndian(carry, 0);
+            int timestamp = RawSensorDataParser.getTimestamp(meta);
+            carryLength = 0;
+            if (continuesCarriedRecord(timestamp, data, offset + taken, end)) {
+                RawSensorDataParser.decodeSample(carry, 0, count++, devAccelSens, imuGyroSens, imuAccelSens, sink);
+                onDecoded(timestamp);
+                pos = offset + taken;
+                if (timestamp == 0) {
+                    discard(data, pos, end);
+                    return count;
+                }
+            } else {
+                resyncedBytes += previousCarryLength;
+            }
+        }
+
+        while (pos < end) {
+            if (end - pos < RawSensorDataParser.META_LENGTH) {
+                hold(data, pos, end);
+                break;
+            }
+
+            int meta = RawSensorDataParser.readIntLittleEndian(data, pos);
+            if (meta == 0) {
+                discard(data, pos, end);
+                break;
+            }
+
+            int recordLength = RawSensorDataParser.META_LENGTH + RawSensorDataParser.getMessageLength(meta);
+            if (pos + recordLength > end) {
+                hold(data, pos, end);
+                break;
+            }
+
+            RawSensorDataParser.decodeSample(data, pos, count++, devAccelSens, imuGyroSens, imuAccelSens, sink);
+            int timestamp = RawSensorDataParser.getTimestamp(meta);
+            onDecoded(timestamp);
+            pos += recordLength;
+
+            if (timestamp == 0) {
+                discard(data, pos, end);
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Drops any carried bytes, e.g. when the Tap leaves raw sensor mode. They are counted as discarded.
+     */
+    public void reset() {
+        discardedBytes += carryLength;
+        carryLength = 0;
+        hasLastTimestamp = false;
+        lastTimestamp = 0;
+    }
+
+    /**
+     * @return the total number of bytes held over from one notification to the next
+     */
+    public long getCarriedBytes() {
+        return carriedBytes;
+    }
+
+    /**
+     * @return the total number of carried bytes dropped because the next notification didn't continue them
+     */
+    public long getResyncedBytes() {
+        return resyncedBytes;
+    }
+
+    /**
+     * @return the total number of bytes dropped without being decoded, not counting zero padding
+     */
+    public long getDiscardedBytes() {
+        return discardedBytes;
+    }
+
+    /**
+     * Fills the carry buffer up to a whole record.
+     * @return the number of bytes taken from {@code data}, or -1 if {@code data} was too short and was carried as a whole
+     */
+    private int completeCarriedRecord(byte[] data, int offset, int end) {
+        int pos = offset;
+        while (carryLength < RawSensorDataParser.META_LENGTH && pos < end) {
+            carry[carryLength++] = data[pos++];
+        }
+        if (carryLength < RawSensorDataParser.META_LENGTH) {
+            return -1;
+        }
+
+        int meta = RawSensorDataParser.readIntLittleEndian(carry, 0);
+        int recordLength = RawSensorDataParser.META_LENGTH + RawSensorDataParser.getMessageLength(meta);
+        int needed = Math.min(recordLength - carryLength, end - pos);
+        System.arraycopy(data, pos, carry, carryLength, needed);
+        carryLength += needed;
+        pos += needed;
+        if (carryLength < recordLength) {
+            return -1;
+        }
+        return pos - offset;
+    }
+
+    /**
+     * @param timestamp the timestamp of the completed carried record
+     * @param next where the record after it would start in {@code data}
+     * @return whether the notification continues the carried record rather than starting afresh
+     */
+    private boolean continuesCarriedRecord(int timestamp, byte[] data, int next, int end) {
+        if (hasLastTimestamp && timestamp < lastTimestamp) {
+            return false;
+        }
+        if (end - next < RawSensorDataParser.META_LENGTH) {
+            // Nothing to check the carried record against
+            return true;
+        }
+
+        int meta = RawSensorDataParser.readIntLittleEndian(data, next);
+        if (meta == 0) {
+            return isZero(data, next, end);
+        }
+        int nextTimestamp = RawSensorDataParser.getTimestamp(meta);
+        return nextTimestamp == 0 || (nextTimestamp >= timestamp && nextTimestamp - timestamp <= MAX_TIMESTAMP_STEP);
+    }
+
+    private void onDecoded(int timestamp) {
+        hasLastTimestamp = true;
+        lastTimestamp = timestamp;
+    }
+
+    private void hold(byte[] data, int from, int to) {
+        if (isZero(data, from, to)) {
+            return;
+        }
+        System.arraycopy(data, from, carry, 0, to - from);
+        carryLength = to - from;
+        carriedBytes += carryLength;
+    }
+
+    private void discard(byte[] data, int from, int to) {
+        if (!isZero(data, from, to)) {
+            discardedBytes += to - from;
+        }
+    }
+
+    private static boolean isZero(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
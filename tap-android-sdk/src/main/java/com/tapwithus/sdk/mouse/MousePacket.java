@@ -4,12 +4,32 @@ import com.tapwithus.sdk.bluetooth.Packet;
 
 public class MousePacket extends Packet {
 
+    private static final int SIZE = 9;
+
     public MousePacket(byte[] data) {
-        super(data, 9);
+        super(data, SIZE);
+    }
+
+    /**
+     * Creates an empty packet, meant to be re-pointed at incoming notifications with {@link #wrap(byte[], int, int)}.
+     */
+    public MousePacket() {
+        this(new byte[0]);
     }
 
     public PacketValue dx = new PacketValue(0, 16);
     public PacketValue dy = new PacketValue(16, 16);
     public PacketValue dt = new PacketValue(32, 32);
     public PacketValue proximity = new PacketValue(64, 8);
+
+    @Override
+    public MousePacket wrap(byte[] data, int offset, int length) {
+        super.wrap(data, offset, length);
+        return this;
+    }
+
+    @Override
+    public MousePacket copy() {
+        return new MousePacket(getData());
+    }
 }
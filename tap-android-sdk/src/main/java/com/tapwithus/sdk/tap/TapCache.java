@@ -5,10 +5,12 @@ import androidx.annotation.Nullable;
 import android.util.Log;
 import com.tapwithus.sdk.FeatureVersionSupport;
 
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class TapCache {
@@ -25,12 +27,65 @@ public class TapCache {
     private static final String UNAVAILABLE_STRING = "N.A";
 
     protected Map<String, TapCh> tapChs = new ConcurrentHashMap<>();
+    // Data keys per Tap that were restored from the store and not read from the Tap since
+    protected Map<String, Set<String>> restoredKeys = new ConcurrentHashMap<>();
+    private volatile TapCacheStore store;
+
+    public void setStore(@Nullable TapCacheStore store) {
+        this.store = store;
+    }
+
+    public @Nullable TapCacheStore getStore() {
+        return store;
+    }
+
+    /**
+     * Fills the cache of a Tap that isn't cached in memory with the values persisted by the {@link TapCacheStore}.
+     * The firmware version has to be read again before the Tap is considered cached, the other restored values are
+     * served as they are until they are read again.
+     * @return true if any values were restored
+     */
+    public boolean restore(@NonNull String identifier) {
+        TapCacheStore store = this.store;
+        if (store == null || tapChs.containsKey(identifier)) {
+            return false;
+        }
+
+        Map<String, String> values = store.load(identifier);
+        if (values == null) {
+            return false;
+        }
+
+        TapCh tapCh = new TapCh(identifier);
+        Set<String> restored = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            tapCh.set(entry.getKey(), entry.getValue());
+            restored.add(entry.getKey());
+        }
+        restoredKeys.put(identifier, restored);
+        saveToCache(tapCh);
+        return true;
+    }
+
+    /**
+     * @return true if the value was restored from the {@link TapCacheStore} and wasn't read from the Tap since
+     */
+    public boolean isRestored(@NonNull String identifier, @NonNull String dataKey) {
+        Set<String> restored = restoredKeys.get(identifier);
+        return restored != null && restored.contains(dataKey);
+    }
+
+    public @NonNull Set<String> getRestoredKeys(@NonNull String identifier) {
+        Set<String> restored = restoredKeys.get(identifier);
+        return restored == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(restored);
+    }
 
     public void onNameRead(@NonNull String identifier, @NonNull String name) {
         TapCh tapCh = getFromCache(identifier);
         tapCh.set(DataKey.Name, name);
 //        tapCh.name = name;
         saveToCache(tapCh);
+        persist(tapCh, DataKey.Name);
     }
 
     public void onNameWrite(@NonNull String identifier, @NonNull String name) {
@@ -38,6 +93,7 @@ public class TapCache {
         tapCh.set(DataKey.Name, name);
 //        tapCh.name = name;
         saveToCache(tapCh);
+        persist(tapCh, DataKey.Name);
     }
 
     public void onBatteryRead(@NonNull String identifier, int battery) {
@@ -56,9 +112,13 @@ public class TapCache {
 
     public void onSerialNumberRead(@NonNull String identifier, @NonNull String serialNumber) {
         TapCh tapCh = getFromCache(identifier);
+        if (isRestored(identifier, DataKey.SerialNumber) && !serialNumber.equals(tapCh.get(DataKey.SerialNumber))) {
+            invalidateRestored(tapCh);
+        }
         tapCh.set(DataKey.SerialNumber, serialNumber);
 //        tapCh.serialNumber = serialNumber;
         saveToCache(tapCh);
+        persist(tapCh, DataKey.SerialNumber);
     }
 
     public void onCustomDataRead(@NonNull String identifier, String dataKey, String value) {
@@ -72,13 +132,18 @@ public class TapCache {
         tapCh.set(DataKey.HwVer, hwVer);
 //        tapCh.hwVer = hwVer;
         saveToCache(tapCh);
+        persist(tapCh, DataKey.HwVer);
     }
 
     public void onFwVerRead(@NonNull String identifier, @NonNull String fwVer) {
         TapCh tapCh = getFromCache(identifier);
+        if (isRestored(identifier, DataKey.FwVer) && !fwVer.equals(tapCh.get(DataKey.FwVer))) {
+            invalidateRestored(tapCh);
+        }
         tapCh.set(DataKey.FwVer, fwVer);
 //        tapCh.fwVer = fwVer;
         saveToCache(tapCh);
+        persist(tapCh, DataKey.FwVer);
     }
 
     public void onBootloaderVerRead(@NonNull String identifier, @NonNull String bootloaderVer) {
@@ -86,6 +151,7 @@ public class TapCache {
         tapCh.set(DataKey.BootloaderVer, bootloaderVer);
 //        tapCh.bootloaderVer = bootloaderVer;
         saveToCache(tapCh);
+        persist(tapCh, DataKey.BootloaderVer);
     }
 
     public void onBootloaderUnavailable(@NonNull String identifier) {
@@ -152,8 +218,8 @@ public class TapCache {
     }
 
     public boolean has(@NonNull String identifier, @NonNull String dataKey) {
-        TapCh tapCh = getFromCache(identifier);
-        return tapCh.has(dataKey);
+        TapCh tapCh = tapChs.get(identifier);
+        return tapCh != null && tapCh.has(dataKey);
 //        switch (dataKey) {
 //            case Name: return tapCh.name != null;
 //            case Battery: return tapCh.battery != INT_NULL_VALUE;
@@ -171,9 +237,9 @@ public class TapCache {
     }
 
     public boolean shouldHave(@NonNull String identifier, @NonNull String dataKey) {
-        TapCh tapCh = getFromCache(identifier);
-        String hwVer = tapCh.has(DataKey.HwVer) ? tapCh.get(DataKey.HwVer) : "0";
-        String fwVer = tapCh.has(DataKey.FwVer) ? tapCh.get(DataKey.FwVer) : "0";
+        TapCh tapCh = tapChs.get(identifier);
+        String hwVer = tapCh != null && tapCh.has(DataKey.HwVer) ? tapCh.get(DataKey.HwVer) : "0";
+        String fwVer = tapCh != null && tapCh.has(DataKey.FwVer) ? tapCh.get(DataKey.FwVer) : "0";
         switch (dataKey) {
             case DataKey.Name: return true;
             case DataKey.Battery: return true;
@@ -192,10 +258,12 @@ public class TapCache {
 
     public void clear() {
         tapChs.clear();
+        restoredKeys.clear();
     }
 
     public void clear(@NonNull String identifier) {
         tapChs.remove(identifier);
+        restoredKeys.remove(identifier);
     }
 
     public void softClear(@NonNull String identifier) {
@@ -207,7 +275,8 @@ public class TapCache {
     }
 
     public boolean isCached(@NonNull String identifier) {
-        return isCached(getFromCache(identifier));
+        TapCh tapCh = tapChs.get(identifier);
+        return tapCh != null && !isRestored(identifier, DataKey.FwVer) && isCached(tapCh);
     }
 
     protected boolean isCached(TapCh tapCh) {
@@ -276,6 +345,39 @@ public class TapCache {
             tapChs.put(tapCh.identifier, tapCh);
         }
     }
+
+    /**
+     * Marks the value as read from the Tap and updates the store, once the firmware version was read from the Tap.
+     */
+    private void persist(@NonNull TapCh tapCh, @NonNull String dataKey) {
+        Set<String> restored = restoredKeys.get(tapCh.identifier);
+        if (restored != null) {
+            restored.remove(dataKey);
+        }
+
+        TapCacheStore store = this.store;
+        if (store != null && !isRestored(tapCh.identifier, DataKey.FwVer)) {
+            store.save(tapCh.identifier, tapCh.data);
+        }
+    }
+
+    /**
+     * The firmware changed since the values were persisted, or they were persisted for another Tap with the same
+     * address, so none of the restored values can be trusted. They are dropped, with the record of the store.
+     */
+    private void invalidateRestored(@NonNull TapCh tapCh) {
+        Set<String> restored = restoredKeys.remove(tapCh.identifier);
+        if (restored != null) {
+            for (String dataKey : restored) {
+                tapCh.remove(dataKey);
+            }
+        }
+
+        TapCacheStore store = this.store;
+        if (store != null) {
+            store.delete(tapCh.identifier);
+        }
+    }
     
     public class TapCh {
 
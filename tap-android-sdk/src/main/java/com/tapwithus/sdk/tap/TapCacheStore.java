@@ -0,0 +1,190 @@
+package com.tapwithus.sdk.tap;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the values of a Tap that don't change between connections (name, serial number and versions) in a small binary
+ * file per Tap address, so they can be served as soon as the Tap connects.
+ * <p>
+ * A record is keyed by the serial number and firmware version it was read with. File layout:
+ * magic (int), format version (byte), serial number (UTF), firmware version (UTF), count (byte) and count pairs of
+ * data key index (byte) and value (UTF).
+ * <p>
+ * Files are written and deleted on a background thread. Records are also kept in memory, so a load never misses a
+ * pending write.
+ */
+public class TapCacheStore {
+
+    private static final String TAG = "TapCacheStore";
+    private static final int MAGIC = 0x54415043;
+    private static final byte FORMAT_VERSION = 1;
+    private static final String FILE_EXTENSION = ".bin";
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+
+    /** Data keys that are persisted, the index of a key is its id in the file. */
+    static final String[] KEYS = new String[] {
+            TapCache.DataKey.Name,
+            TapCache.DataKey.HwVer,
+            TapCache.DataKey.BootloaderVer,
+    };
+
+    private final File directory;
+    private final Map<String, Map<String, String>> records = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public TapCacheStore(@NonNull File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the persisted values of the Tap, including its serial number and firmware version, or null if nothing
+     * was persisted
+     */
+    public @Nullable Map<String, String> load(@NonNull String identifier) {
+        Map<String, String> record = records.get(identifier);
+        if (record != null) {
+            return record;
+        }
+
+        File file = getFile(identifier);
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION) {
+                Log.w(TAG, "Unknown cache file format " + file.getName());
+                return null;
+            }
+            Map<String, String> values = new HashMap<>();
+            values.put(TapCache.DataKey.SerialNumber, in.readUTF());
+            values.put(TapCache.DataKey.FwVer, in.readUTF());
+            int count = in.readByte();
+            for (int i = 0; i < count; i++) {
+                int index = in.readByte();
+                String value = in.readUTF();
+                if (index >= 0 && index < KEYS.length) {
+                    values.put(KEYS[index], value);
+                }
+            }
+            record = Collections.unmodifiableMap(values);
+            records.put(identifier, record);
+            return record;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed reading cache file " + file.getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Persists the values of the Tap. Ignored unless both the serial number and firmware version are known.
+     */
+    public void save(@NonNull final String identifier, @NonNull Map<String, String> values) {
+        final String serialNumber = values.get(TapCache.DataKey.SerialNumber);
+        final String fwVer = values.get(TapCache.DataKey.FwVer);
+        if (serialNumber == null || fwVer == null) {
+            return;
+        }
+
+        Map<String, String> record = new HashMap<>();
+        for (String key : KEYS) {
+            String value = values.get(key);
+            if (value != null) {
+                record.put(key, value);
+            }
+        }
+        record.put(TapCache.DataKey.SerialNumber, serialNumber);
+        record.put(TapCache.DataKey.FwVer, fwVer);
+
+        final Map<String, String> saved = Collections.unmodifiableMap(record);
+        if (saved.equals(records.put(identifier, saved))) {
+            return;
+        }
+        executor.execute(() -> write(identifier, saved));
+    }
+
+    public void delete(@NonNull final String identifier) {
+        records.remove(identifier);
+        executor.execute(() -> {
+            File file = getFile(identifier);
+            if (file.exists() && !file.delete()) {
+                Log.w(TAG, "Failed deleting cache file " + file.getName());
+            }
+        });
+    }
+
+    /**
+     * Waits for the pending writes and deletions.
+     */
+    @VisibleForTesting
+    void awaitPendingWrites() throws InterruptedException, ExecutionException {
+        executor.submit(() -> { }).get();
+    }
+
+    private void write(@NonNull String identifier, @NonNull Map<String, String> record) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.w(TAG, "Failed creating cache directory " + directory);
+            return;
+        }
+
+        File file = getFile(identifier);
+        File temp = new File(directory, file.getName() + TEMP_FILE_EXTENSION);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeUTF(record.get(TapCache.DataKey.SerialNumber));
+            out.writeUTF(record.get(TapCache.DataKey.FwVer));
+            int count = 0;
+            for (String key : KEYS) {
+                if (record.containsKey(key)) {
+                    count++;
+                }
+            }
+            out.writeByte(count);
+            for (int i = 0; i < KEYS.length; i++) {
+                String value = record.get(KEYS[i]);
+                if (value != null) {
+                    out.writeByte(i);
+                    out.writeUTF(value);
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed writing cache file " + file.getName(), e);
+            temp.delete();
+            return;
+        }
+
+        if (!temp.renameTo(file)) {
+            Log.w(TAG, "Failed replacing cache file " + file.getName());
+            temp.delete();
+        }
+    }
+
+    private @NonNull File getFile(@NonNull String identifier) {
+        return new File(directory, identifier.replace(":", "") + FILE_EXTENSION);
+    }
+}
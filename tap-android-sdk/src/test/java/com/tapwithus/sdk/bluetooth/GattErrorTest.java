@@ -0,0 +1,46 @@
+package com.tapwithus.sdk.bluetooth;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GattErrorTest {
+
+    private static final int[] TRANSIENT = {
+            0x0011, 0x0022, 0x002A, 0x003A, 0x0080, 0x0081, 0x0084, 0x0085, 0x0086, 0x0088, 0x008f, 0x00FE,
+    };
+
+    private static final int[] PERMANENT = {
+            0x0000, 0x0001, 0x0002, 0x0003, 0x0005, 0x0006, 0x0008, 0x000a, 0x000d, 0x000f, 0x0087, 0x0089,
+            0x00FD, 0x0101,
+    };
+
+    @Test
+    public void busyOrCongestedStatuses_areTransient() {
+        for (int status : TRANSIENT) {
+            assertTrue(GattError.parse(status), GattError.isTransient(status));
+        }
+    }
+
+    @Test
+    public void otherStatuses_arePermanent() {
+        for (int status : PERMANENT) {
+            assertFalse(GattError.isTransient(status));
+        }
+    }
+
+    @Test
+    public void pseudoStatuses() {
+        assertFalse(GattError.isTransient(GattError.NO_STATUS));
+        assertTrue(GattError.isTransient(GattError.INIT_FAILED));
+        assertTrue(GattError.isTransient(GattError.TIMEOUT));
+        assertFalse(GattError.isTransient(GattError.QUEUE_FULL));
+
+        assertEquals(-1, GattError.NO_STATUS);
+        assertEquals(-2, GattError.INIT_FAILED);
+        assertEquals(-3, GattError.TIMEOUT);
+        assertEquals("TIMEOUT", GattError.parse(GattError.TIMEOUT));
+    }
+}
@@ -0,0 +1,252 @@
+package com.tapwithus.sdk.bluetooth;
+
+import android.os.HandlerThread;
+
+import com.tapwithus.sdk.bluetooth.operations.ExecutorGattScheduler;
+import com.tapwithus.sdk.bluetooth.operations.GattOperation;
+import com.tapwithus.sdk.bluetooth.operations.ManualScheduler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GattFutureTest {
+
+    private ManualScheduler scheduler;
+    private final List<String> events = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        scheduler = new ManualScheduler();
+        GattOperation.setScheduler(scheduler);
+    }
+
+    @After
+    public void tearDown() {
+        GattOperation.setScheduler(new ExecutorGattScheduler());
+        SdkEventLoop.setDefault(null);
+    }
+
+    @Test
+    public void completedFuture_deliversValue() throws Exception {
+        GattFuture<String> future = new GattFuture<>();
+        future.addCallback((v, e) -> events.add("callback " + v + " " + e));
+
+        assertTrue(future.complete("value"));
+        assertFalse(future.complete("other"));
+        assertFalse(future.fail(new GattException(GattException.Reason.FAILED, "late")));
+
+        assertEquals("value", future.get());
+        assertTrue(future.isDone());
+        assertFalse(future.isCancelled());
+        assertEquals(1, events.size());
+        assertEquals("callback value null", events.get(0));
+    }
+
+    @Test
+    public void callbackAddedWhenDone_runsRightAway() {
+        GattFuture<String> future = GattFuture.completed("value");
+        future.addCallback((v, e) -> events.add("callback " + v));
+
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void failedFuture_throwsItsException() throws Exception {
+        GattException error = new GattException(GattException.Reason.NOT_FOUND, "missing");
+        GattFuture<String> future = GattFuture.failed(error);
+
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+    }
+
+    @Test
+    public void cancelledFuture_runsCancelListeners() throws Exception {
+        GattFuture<String> future = new GattFuture<>();
+        future.addOnCancelListener(() -> events.add("cancelled"));
+        future.addCallback((v, e) -> events.add("callback " + (e instanceof CancellationException)));
+
+        assertTrue(future.cancel(false));
+        assertFalse(future.cancel(false));
+        future.addOnCancelListener(() -> events.add("late"));
+
+        assertTrue(future.isCancelled());
+        assertEquals(3, events.size());
+        assertEquals("callback true", events.get(0));
+        assertEquals("cancelled", events.get(1));
+        assertEquals("late", events.get(2));
+        try {
+            future.get();
+            fail();
+        } catch (CancellationException expected) {
+        }
+    }
+
+    @Test
+    public void completedFuture_doesNotRunCancelListeners() {
+        GattFuture<String> future = new GattFuture<>();
+        future.addOnCancelListener(() -> events.add("cancelled"));
+        future.complete("value");
+        future.addOnCancelListener(() -> events.add("late"));
+
+        assertFalse(future.cancel(false));
+        assertEquals(0, events.size());
+    }
+
+    @Test
+    public void failedFuture_doesNotRunCancelListeners() {
+        GattFuture<String> future = new GattFuture<>();
+        future.addOnCancelListener(() -> events.add("cancelled"));
+        future.fail(new GattException(GattException.Reason.FAILED, "failed"));
+        future.addOnCancelListener(() -> events.add("late"));
+
+        assertEquals(0, events.size());
+    }
+
+    @Test
+    public void timedOutFuture_failsWithTimeout() throws Exception {
+        GattFuture<String> future = new GattFuture<String>().withTimeout(100);
+        future.addOnCancelListener(() -> events.add("cancelled"));
+
+        scheduler.advance(99);
+        assertFalse(future.isDone());
+        scheduler.advance(1);
+
+        assertTrue(future.isDone());
+        assertFalse(future.isCancelled());
+        assertEquals(1, events.size());
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(GattException.Reason.TIMEOUT, ((GattException) e.getCause()).getReason());
+        }
+    }
+
+    @Test
+    public void cancelListenerAddedAfterTimeout_runsRightAway() {
+        GattFuture<String> future = new GattFuture<String>().withTimeout(100);
+        scheduler.advance(100);
+
+        future.addOnCancelListener(() -> events.add("late"));
+
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void futureDoneInTime_cancelsItsTimeout() {
+        GattFuture<String> future = new GattFuture<String>().withTimeout(100);
+        future.complete("value");
+
+        assertEquals(0, scheduler.getPendingDelays().size());
+    }
+
+    @Test
+    public void thenApply_chainsTheResult() throws Exception {
+        GattFuture<Integer> future = new GattFuture<>();
+        GattFuture<String> next = future.thenApply(v -> "#" + v);
+        future.complete(3);
+
+        assertEquals("#3", next.get());
+    }
+
+    @Test
+    public void thenCompose_propagatesFailure() throws Exception {
+        GattFuture<Integer> future = new GattFuture<>();
+        GattFuture<String> next = future.thenCompose(v -> GattFuture.<String>failed(new GattException(GattException.Reason.FAILED, "dependent")));
+        future.complete(3);
+
+        try {
+            next.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("dependent", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void cancellingChainedFuture_cancelsTheSource() {
+        GattFuture<Integer> future = new GattFuture<>();
+        GattFuture<String> next = future.thenApply(v -> "#" + v);
+        next.cancel(false);
+
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    public void timedGet_throwsTimeoutException() throws Exception {
+        GattFuture<String> future = new GattFuture<>();
+        try {
+            future.get(1, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (TimeoutException expected) {
+        }
+    }
+
+    @Test
+    public void getOnTheLoop_throwsIfPending() throws Exception {
+        final GattFuture<String> pending = new GattFuture<>();
+        final GattFuture<String> done = GattFuture.completed("value");
+        final AtomicReference<Throwable> thrown = new AtomicReference<>();
+        final AtomicReference<String> value = new AtomicReference<>();
+        HandlerThread thread = new HandlerThread("loop") {
+            @Override
+            public void run() {
+                try {
+                    value.set(done.get());
+                    pending.get();
+                } catch (Throwable t) {
+                    thrown.set(t);
+                }
+            }
+        };
+        SdkEventLoop.setDefault(new SdkEventLoop(thread));
+
+        thread.start();
+        thread.join(1000);
+
+        assertEquals("value", value.get());
+        assertTrue(thrown.get() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void getOffTheLoop_waitsForTheResult() throws Exception {
+        final GattFuture<String> future = new GattFuture<>();
+        SdkEventLoop.setDefault(new SdkEventLoop(new HandlerThread("loop")));
+        Thread completer = new Thread(() -> future.complete("value"));
+
+        completer.start();
+
+        assertEquals("value", future.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void gattException_keepsReasonAndCause() {
+        Exception cause = new IllegalStateException("cause");
+        GattException e = new GattException(GattException.Reason.NOT_CONNECTED, "message", cause);
+
+        assertEquals(GattException.Reason.NOT_CONNECTED, e.getReason());
+        assertEquals("message", e.getMessage());
+        assertSame(cause, e.getCause());
+        assertNull(new GattException(GattException.Reason.SUPERSEDED, "message").getCause());
+    }
+}
@@ -0,0 +1,134 @@
+package com.tapwithus.sdk.bluetooth;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PacketCodecTest {
+
+    private static final int ITERATIONS = 2000;
+
+    private final Random random = new Random(20231);
+
+    @Test
+    public void lsbRead_matchesLegacyLayout() {
+        for (int i = 0; i < ITERATIONS; i++) {
+            byte[] data = randomData();
+            // The legacy LSB read returns every byte the field touches, which must fit a long
+            int size = 1 + random.nextInt(Math.min(48, data.length * 8));
+            int start = random.nextInt(data.length * 8 - size + 1);
+
+            long expected = new LegacyPacket(data, data.length, true).new PacketValue(start, size).getUnsignedLong();
+            assertEquals(expected, PacketCodec.readLsb(data, 0, data.length, start, size));
+        }
+    }
+
+    @Test
+    public void msbRead_matchesLegacyLayout() {
+        for (int i = 0; i < ITERATIONS; i++) {
+            byte[] data = randomData();
+            int size = 1 + random.nextInt(Math.min(63, data.length * 8));
+            int start = random.nextInt(data.length * 8 - size + 1);
+
+            long expected = new LegacyPacket(data, data.length, false).new PacketValue(start, size).getUnsignedLong();
+            assertEquals(expected, PacketCodec.readMsb(data, 0, data.length, start, size));
+        }
+    }
+
+    @Test
+    public void lsbWrite_matchesLegacyLayout() {
+        for (int i = 0; i < ITERATIONS; i++) {
+            byte[] data = randomData();
+            int size = 1 + random.nextInt(Math.min(31, data.length * 8));
+            int start = random.nextInt(data.length * 8 - size + 1);
+            int value = random.nextInt() >>> (Integer.SIZE - size);
+
+            LegacyPacket legacy = new LegacyPacket(data, data.length, true);
+            legacy.new PacketValue(start, size).set(value);
+            byte[] actual = data.clone();
+            PacketCodec.writeLsb(actual, 0, actual.length, start, size, value);
+
+            assertArrayEquals(legacy.getData(), actual);
+        }
+    }
+
+    @Test
+    public void msbWrite_matchesLegacyLayout() {
+        for (int i = 0; i < ITERATIONS; i++) {
+            byte[] data = randomData();
+            int size = 1 + random.nextInt(Math.min(31, data.length * 8));
+            int start = random.nextInt(data.length * 8 - size + 1);
+            int value = random.nextInt() >>> (Integer.SIZE - size);
+
+            LegacyPacket legacy = new LegacyPacket(data, data.length, false);
+            legacy.new PacketValue(start, size).set(value);
+            byte[] actual = data.clone();
+            PacketCodec.writeMsb(actual, 0, actual.length, start, size, value);
+
+            assertArrayEquals(legacy.getData(), actual);
+        }
+    }
+
+    @Test
+    public void byteAlignedLsbField_isLittleEndian() {
+        byte[] data = {0x11, 0x34, 0x12, 0x22};
+        assertEquals(0x1234, PacketCodec.readLsb(data, 0, data.length, 8, 16));
+
+        PacketCodec.writeLsb(data, 0, data.length, 8, 16, 0xBEEF);
+        assertArrayEquals(new byte[] {0x11, (byte) 0xEF, (byte) 0xBE, 0x22}, data);
+    }
+
+    @Test
+    public void fieldWithinOneByte_isShiftedAndMasked() {
+        byte[] data = {(byte) 0xFF};
+        PacketCodec.writeLsb(data, 0, data.length, 2, 3, 0);
+        assertArrayEquals(new byte[] {(byte) 0xE3}, data);
+        assertEquals(7, PacketCodec.readLsb(new byte[] {(byte) 0x38}, 0, 1, 3, 3));
+    }
+
+    @Test
+    public void offset_isHonoured() {
+        byte[] data = {0x7F, 0x01, 0x02, 0x7F};
+        assertEquals(0x0201, PacketCodec.readLsb(data, 1, 2, 0, 16));
+
+        PacketCodec.writeLsb(data, 1, 2, 0, 16, 0x0403);
+        assertArrayEquals(new byte[] {0x7F, 0x03, 0x04, 0x7F}, data);
+    }
+
+    @Test
+    public void oversizedValue_isRejected() {
+        byte[] data = new byte[4];
+        try {
+            PacketCodec.writeLsb(data, 0, data.length, 0, 8, 0x100);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            PacketCodec.writeMsb(data, 0, data.length, 4, 3, 8);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertArrayEquals(new byte[4], data);
+    }
+
+    @Test
+    public void packetValue_writesNegativeIntAsByte() {
+        Packet packet = new Packet(new byte[2], 2);
+        packet.new PacketValue(0, 8).set(-1);
+        LegacyPacket legacy = new LegacyPacket(new byte[2], 2);
+        legacy.new PacketValue(0, 8).set(-1);
+
+        assertArrayEquals(legacy.getData(), packet.getData());
+        assertEquals(-1, packet.new PacketValue(0, 8).getInt());
+    }
+
+    private byte[] randomData() {
+        byte[] data = new byte[1 + random.nextInt(20)];
+        random.nextBytes(data);
+        return data;
+    }
+}
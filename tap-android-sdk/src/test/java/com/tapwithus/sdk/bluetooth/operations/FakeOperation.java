@@ -0,0 +1,59 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import android.bluetooth.BluetoothGatt;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * An operation that only records that it ran, and is completed or failed by the test.
+ */
+class FakeOperation extends GattOperation<Void> {
+
+    private final String name;
+    private final List<String> log;
+    private int executions = 0;
+
+    FakeOperation(@NonNull String name, @NonNull List<String> log, @NonNull OperationPriority priority) {
+        this.name = name;
+        this.log = log;
+        setPriority(priority);
+    }
+
+    @Override
+    public OperationType type() {
+        return OperationType.CHAR_WRITE;
+    }
+
+    @Override
+    public void execute(@NonNull BluetoothGatt gatt) {
+        executions++;
+        log.add(name);
+    }
+
+    @Override
+    public void onExecute(@NonNull BluetoothGatt gatt) {
+    }
+
+    @Override
+    public void gattCallback(Object gattOrCharOrDesc, int status) {
+    }
+
+    int getExecutions() {
+        return executions;
+    }
+
+    void complete() {
+        postOnCompletion(null);
+    }
+
+    void fail(int status) {
+        postOnError(status, name + " failed");
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
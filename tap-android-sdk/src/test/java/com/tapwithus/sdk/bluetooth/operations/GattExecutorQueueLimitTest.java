@@ -0,0 +1,211 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import android.bluetooth.BluetoothGatt;
+
+import androidx.annotation.NonNull;
+
+import com.tapwithus.sdk.bluetooth.GattError;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GattExecutorQueueLimitTest {
+
+    private static final UUID SERVICE = UUID.fromString("6e400001-b5a3-f393-e0a9-e50e24dcca9e");
+    private static final UUID RX = UUID.fromString("6e400002-b5a3-f393-e0a9-e50e24dcca9e");
+    private static final String MODE = "mode";
+
+    private final List<String> log = new ArrayList<>();
+    private final List<String> superseded = new ArrayList<>();
+    private final List<FakeOperation> operations = new ArrayList<>();
+    private GattExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new GattExecutor("00:00:00:00:00:00", null, Runnable::run);
+        // Keeps the executor busy, so the operations added after it stay queued
+        add("busy", OperationPriority.CONTROL);
+    }
+
+    @Test
+    public void defaultLimits() {
+        assertEquals(8, OperationPriority.INTERACTIVE.getDefaultLimit().getCapacity());
+        assertEquals(DropPolicy.DROP_OLDEST, OperationPriority.INTERACTIVE.getDefaultLimit().getDropPolicy());
+        assertEquals(32, OperationPriority.CONTROL.getDefaultLimit().getCapacity());
+        assertEquals(DropPolicy.REJECT, OperationPriority.CONTROL.getDefaultLimit().getDropPolicy());
+        assertEquals(32, OperationPriority.BACKGROUND.getDefaultLimit().getCapacity());
+        assertEquals(DropPolicy.REJECT, OperationPriority.BACKGROUND.getDefaultLimit().getDropPolicy());
+    }
+
+    @Test
+    public void fullInteractiveLane_failsTheOldestWithQueueFull() {
+        List<FakeOperation> queued = fill(OperationPriority.INTERACTIVE, 8);
+        FakeOperation oldest = queued.get(0);
+        List<String> errors = errorsOf(oldest);
+
+        FakeOperation newest = add("interactive8", OperationPriority.INTERACTIVE);
+
+        assertTrue(oldest.isCompleted());
+        assertEquals(GattError.QUEUE_FULL, oldest.getErrorStatus());
+        assertEquals(1, errors.size());
+        assertEquals(0, superseded.size());
+        assertFalse(newest.isCompleted());
+        assertEquals(1, executor.getDroppedCount());
+        assertEquals(0, executor.getRejectedCount());
+        assertEquals(8, executor.getHighWaterMark(OperationPriority.INTERACTIVE));
+
+        drain();
+        assertEquals(0, oldest.getExecutions());
+        assertEquals(1, newest.getExecutions());
+        assertEquals(9, log.size());
+        assertEquals("interactive1", log.get(1));
+    }
+
+    @Test
+    public void fullControlLane_rejectsTheNewOperation() {
+        assertRejected(OperationPriority.CONTROL);
+    }
+
+    @Test
+    public void fullBackgroundLane_rejectsTheNewOperation() {
+        assertRejected(OperationPriority.BACKGROUND);
+    }
+
+    @Test
+    public void queueLimit_canBeChanged() {
+        executor.setQueueLimit(OperationPriority.BACKGROUND, new QueueLimit(2, DropPolicy.DROP_OLDEST));
+        List<FakeOperation> queued = fill(OperationPriority.BACKGROUND, 2);
+
+        add("extra", OperationPriority.BACKGROUND);
+
+        assertEquals(GattError.QUEUE_FULL, queued.get(0).getErrorStatus());
+        assertEquals(1, executor.getDroppedCount());
+    }
+
+    @Test
+    public void coalescedModeWrite_replacesTheQueuedOne() {
+        FakeWrite first = write("text", MODE);
+        FakeWrite second = write("controller", MODE);
+
+        assertTrue(first.isCompleted());
+        assertEquals(1, superseded.size());
+        assertFalse(second.isCompleted());
+
+        drain();
+        assertEquals(0, first.getExecutions());
+        assertEquals(1, second.getExecutions());
+        assertEquals("[busy, controller]", log.toString());
+    }
+
+    @Test
+    public void writesWithoutTheSameKey_areNotCoalesced() {
+        write("text", MODE);
+        write("state", "xr");
+        write("raw", null);
+
+        assertEquals(0, superseded.size());
+        drain();
+        assertEquals("[busy, text]", log.toString());
+    }
+
+    @Test
+    public void coalescedWrite_doesNotCountAgainstTheLimit() {
+        fill(OperationPriority.CONTROL, 31);
+        write("text", MODE);
+        FakeWrite latest = write("controller", MODE);
+
+        assertFalse(latest.isCompleted());
+        assertEquals(0, executor.getRejectedCount());
+    }
+
+    private void assertRejected(OperationPriority priority) {
+        List<FakeOperation> queued = fill(priority, 32);
+
+        FakeOperation rejected = add("rejected", priority);
+
+        assertTrue(rejected.isCompleted());
+        assertEquals(GattError.QUEUE_FULL, rejected.getErrorStatus());
+        assertFalse(queued.get(0).isCompleted());
+        assertEquals(1, executor.getRejectedCount());
+        assertEquals(0, executor.getDroppedCount());
+
+        drain();
+        assertEquals(0, rejected.getExecutions());
+        assertEquals(33, log.size());
+    }
+
+    private List<FakeOperation> fill(OperationPriority priority, int count) {
+        List<FakeOperation> queued = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            queued.add(add(priority.name().toLowerCase() + i, priority));
+        }
+        return queued;
+    }
+
+    private FakeOperation add(String name, OperationPriority priority) {
+        FakeOperation operation = new FakeOperation(name, log, priority);
+        operations.add(operation);
+        executor.addOperation(operation);
+        return operation;
+    }
+
+    private FakeWrite write(String name, String coalesceKey) {
+        FakeWrite write = new FakeWrite(name, coalesceKey);
+        write.addOnSupersededListener(superseded::add);
+        executor.addOperation(write);
+        return write;
+    }
+
+    private static List<String> errorsOf(GattOperation<?> operation) {
+        List<String> errors = new ArrayList<>();
+        operation.addOnErrorListener(errors::add);
+        return errors;
+    }
+
+    /**
+     * Completes the running fake operations in turn, stopping at the first write.
+     */
+    private void drain() {
+        for (int i = 0; i < log.size(); i++) {
+            for (FakeOperation operation : operations) {
+                if (operation.toString().equals(log.get(i)) && !operation.isCompleted()) {
+                    operation.complete();
+                }
+            }
+        }
+    }
+
+    /**
+     * A mode write, like the ones of TapBluetoothManager, that only records that it ran.
+     */
+    private class FakeWrite extends CharacteristicWriteNoResponseOperation {
+
+        private final String name;
+        private int executions = 0;
+
+        FakeWrite(String name, String coalesceKey) {
+            super(SERVICE, RX, new byte[] {0x03, 0x0c, 0x00, 0x00});
+            this.name = name;
+            setCoalesceKey(coalesceKey);
+            setPriority(OperationPriority.CONTROL);
+        }
+
+        int getExecutions() {
+            return executions;
+        }
+
+        @Override
+        public void execute(@NonNull BluetoothGatt gatt) {
+            executions++;
+            log.add(name);
+        }
+    }
+}
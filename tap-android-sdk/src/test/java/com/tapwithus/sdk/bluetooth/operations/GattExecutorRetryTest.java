@@ -0,0 +1,136 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import com.tapwithus.sdk.bluetooth.GattError;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GattExecutorRetryTest {
+
+    private static final int GATT_BUSY = 0x0084;
+    private static final int GATT_INSUF_AUTHENTICATION = 0x0005;
+
+    private final List<String> log = new ArrayList<>();
+    private final List<String> errors = new ArrayList<>();
+    private ManualScheduler scheduler;
+    private GattExecutor executor;
+
+    @Before
+    public void setUp() {
+        scheduler = new ManualScheduler();
+        GattOperation.setScheduler(scheduler);
+        executor = new GattExecutor("00:00:00:00:00:00", null, Runnable::run);
+        executor.setRetryPolicy(new RetryPolicy(3, 100, 2000, new Random(5)));
+    }
+
+    @After
+    public void tearDown() {
+        GattOperation.setScheduler(new ExecutorGattScheduler());
+    }
+
+    @Test
+    public void transientFailure_isRetriedAfterBackoff() {
+        FakeOperation operation = add("op");
+        operation.fail(GATT_BUSY);
+
+        assertEquals(1, scheduler.getPendingDelays().size());
+        long delay = scheduler.getPendingDelays().get(0);
+        assertTrue(delay >= 50 && delay <= 100);
+        assertEquals(1, operation.getExecutions());
+
+        scheduler.advance(delay);
+        assertEquals(2, operation.getExecutions());
+        assertEquals(2, operation.getAttempt());
+        assertEquals(0, errors.size());
+    }
+
+    @Test
+    public void retries_stopAtMaxAttempts() {
+        FakeOperation operation = add("op");
+        add("next");
+
+        operation.fail(GattError.TIMEOUT);
+        scheduler.advance(2000);
+        operation.fail(GattError.TIMEOUT);
+        scheduler.advance(2000);
+        operation.fail(GattError.TIMEOUT);
+
+        assertEquals(3, operation.getExecutions());
+        assertEquals(1, errors.size());
+        assertEquals(0, scheduler.getPendingDelays().size());
+        assertEquals("[op, op, op, next]", log.toString());
+
+        FailureStats stats = executor.getFailureStats();
+        assertEquals(3, stats.getTransientFailures());
+        assertEquals(2, stats.getRetries());
+        assertEquals(1, stats.getExhausted());
+        assertEquals(GattError.TIMEOUT, stats.getLastStatus());
+    }
+
+    @Test
+    public void permanentFailure_isNotRetried() {
+        FakeOperation operation = add("op");
+        add("next");
+
+        operation.fail(GATT_INSUF_AUTHENTICATION);
+
+        assertEquals(1, operation.getExecutions());
+        assertEquals(1, errors.size());
+        assertEquals("[op, next]", log.toString());
+        assertEquals(1, executor.getFailureStats().getPermanentFailures());
+        assertEquals(0, executor.getFailureStats().getRetries());
+    }
+
+    @Test
+    public void nonRetryableOperation_isNotRetried() {
+        FakeOperation operation = add("op");
+        operation.setRetryable(false);
+
+        operation.fail(GATT_BUSY);
+
+        assertEquals(1, operation.getExecutions());
+        assertEquals(1, errors.size());
+        assertEquals(1, executor.getFailureStats().getTransientFailures());
+        assertEquals(0, executor.getFailureStats().getRetries());
+    }
+
+    @Test
+    public void succeededRetry_countsAsRecovered() {
+        FakeOperation operation = add("op");
+        add("next");
+
+        operation.fail(GATT_BUSY);
+        scheduler.advance(100);
+        assertEquals("[op, op]", log.toString());
+        operation.complete();
+
+        assertEquals("[op, op, next]", log.toString());
+        assertEquals(1, executor.getFailureStats().getRecovered());
+        assertEquals(0, errors.size());
+    }
+
+    @Test
+    public void queue_waitsForTheRetry() {
+        FakeOperation operation = add("op");
+        add("next");
+
+        operation.fail(GATT_BUSY);
+
+        assertEquals("[op]", log.toString());
+    }
+
+    private FakeOperation add(String name) {
+        FakeOperation operation = new FakeOperation(name, log, OperationPriority.CONTROL);
+        operation.addOnErrorListener(errors::add);
+        executor.addOperation(operation);
+        return operation;
+    }
+}
@@ -0,0 +1,159 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GattExecutorTest {
+
+    private final List<String> log = new ArrayList<>();
+    private final Map<String, FakeOperation> operations = new HashMap<>();
+    private GattExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new GattExecutor("00:00:00:00:00:00", null, Runnable::run);
+    }
+
+    @Test
+    public void lanes_runInPriorityOrder() {
+        add("first", OperationPriority.BACKGROUND);
+        add("background", OperationPriority.BACKGROUND);
+        add("control", OperationPriority.CONTROL);
+        add("interactive", OperationPriority.INTERACTIVE);
+
+        drain();
+
+        assertLog("first", "interactive", "control", "background");
+    }
+
+    @Test
+    public void lane_keepsItsOrder() {
+        add("first", OperationPriority.CONTROL);
+        add("a", OperationPriority.CONTROL);
+        add("b", OperationPriority.CONTROL);
+        add("c", OperationPriority.CONTROL);
+
+        drain();
+
+        assertLog("first", "a", "b", "c");
+    }
+
+    @Test
+    public void passedOverLane_runsAfterMaxSkips() {
+        add("first", OperationPriority.INTERACTIVE);
+        add("background", OperationPriority.BACKGROUND);
+        for (int i = 0; i < 6; i++) {
+            add("interactive" + i, OperationPriority.INTERACTIVE);
+        }
+
+        drain();
+
+        assertLog("first", "interactive0", "interactive1", "interactive2", "interactive3", "background",
+                "interactive4", "interactive5");
+    }
+
+    @Test
+    public void heldExecutor_runsOnlyControlLane() {
+        executor.hold();
+        add("interactive", OperationPriority.INTERACTIVE);
+        add("background", OperationPriority.BACKGROUND);
+        FakeOperation discover = add("discover", OperationPriority.CONTROL);
+        add("mtu", OperationPriority.CONTROL);
+
+        discover.complete();
+
+        assertLog("discover", "mtu");
+        assertTrue(executor.isHeld());
+    }
+
+    @Test
+    public void releasedExecutor_runsHeldLanes() {
+        executor.hold();
+        add("interactive", OperationPriority.INTERACTIVE);
+        add("background", OperationPriority.BACKGROUND);
+        add("discover", OperationPriority.CONTROL);
+        drain();
+
+        executor.release();
+        drain();
+
+        assertLog("discover", "interactive", "background");
+        assertFalse(executor.isHeld());
+    }
+
+    @Test
+    public void heldExecutor_isIdleWithOnlyHeldOperations() {
+        executor.hold();
+        add("interactive", OperationPriority.INTERACTIVE);
+
+        assertEquals(0, executor.checkStall(1000));
+        assertEquals(0, executor.checkStall(2000));
+        assertLog();
+    }
+
+    @Test
+    public void operationCancelledBeforeItGotToTheLoop_isDropped() {
+        List<Runnable> posted = new ArrayList<>();
+        executor = new GattExecutor("00:00:00:00:00:00", null, posted::add);
+        FakeOperation operation = add("cancelled", OperationPriority.CONTROL);
+
+        assertTrue(executor.cancel(operation));
+        for (Runnable runnable : posted) {
+            runnable.run();
+        }
+
+        assertLog();
+    }
+
+    @Test
+    public void queuedOperation_isCancelled() {
+        add("running", OperationPriority.CONTROL);
+        FakeOperation queued = add("queued", OperationPriority.CONTROL);
+        add("next", OperationPriority.CONTROL);
+
+        assertTrue(executor.cancel(queued));
+        drain();
+
+        assertLog("running", "next");
+    }
+
+    @Test
+    public void runningOperation_isNotCancelled() {
+        FakeOperation running = add("running", OperationPriority.CONTROL);
+
+        assertFalse(executor.cancel(running));
+    }
+
+    private FakeOperation add(String name, OperationPriority priority) {
+        FakeOperation operation = new FakeOperation(name, log, priority);
+        operations.put(name, operation);
+        executor.addOperation(operation);
+        return operation;
+    }
+
+    /**
+     * Completes the running operation and every operation started after it.
+     */
+    private void drain() {
+        for (int i = 0; i < log.size(); i++) {
+            FakeOperation operation = operations.get(log.get(i));
+            if (!operation.isCompleted()) {
+                operation.complete();
+            }
+        }
+    }
+
+    private void assertLog(String... expected) {
+        assertEquals(Arrays.asList(expected), log);
+    }
+}
@@ -0,0 +1,66 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link GattScheduler} on a virtual clock, which only runs tasks when the test advances it.
+ */
+public class ManualScheduler implements GattScheduler {
+
+    private final List<ScheduledTask> tasks = new ArrayList<>();
+    private long now = 0;
+
+    @NonNull
+    @Override
+    public Task schedule(@NonNull Runnable runnable, long delayMillis) {
+        final ScheduledTask task = new ScheduledTask(runnable, now + delayMillis);
+        tasks.add(task);
+        return () -> tasks.remove(task);
+    }
+
+    /**
+     * Runs the tasks that are due within the given time, in order, including the ones they schedule.
+     */
+    public void advance(long millis) {
+        long until = now + millis;
+        while (true) {
+            ScheduledTask next = null;
+            for (ScheduledTask task : tasks) {
+                if (task.time <= until && (next == null || task.time < next.time)) {
+                    next = task;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            tasks.remove(next);
+            now = next.time;
+            next.runnable.run();
+        }
+        now = until;
+    }
+
+    /**
+     * @return the delays of the pending tasks from now
+     */
+    public @NonNull List<Long> getPendingDelays() {
+        List<Long> delays = new ArrayList<>();
+        for (ScheduledTask task : tasks) {
+            delays.add(task.time - now);
+        }
+        return delays;
+    }
+
+    private static class ScheduledTask {
+        final Runnable runnable;
+        final long time;
+
+        ScheduledTask(Runnable runnable, long time) {
+            this.runnable = runnable;
+            this.time = time;
+        }
+    }
+}
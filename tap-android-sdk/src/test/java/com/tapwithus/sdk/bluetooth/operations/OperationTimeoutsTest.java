@@ -0,0 +1,107 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class OperationTimeoutsTest {
+
+    private OperationTimeouts timeouts;
+
+    @Before
+    public void setUp() {
+        timeouts = new OperationTimeouts();
+    }
+
+    @Test
+    public void timeout_isFixedUntilMinSamples() {
+        complete(OperationType.CHAR_WRITE, OperationTimeouts.MIN_SAMPLES - 1, 500);
+        assertEquals(GattOperation.OP_TIMEOUT, timeouts.getTimeout(OperationType.CHAR_WRITE));
+
+        complete(OperationType.CHAR_WRITE, 1, 500);
+        assertEquals(500 * OperationTimeouts.FACTOR, timeouts.getTimeout(OperationType.CHAR_WRITE));
+    }
+
+    @Test
+    public void timeout_isP99TimesFactor() {
+        complete(OperationType.CHAR_READ, OperationTimeouts.WINDOW_SIZE - 1, 400);
+        complete(OperationType.CHAR_READ, 1, 900);
+
+        // With a full window of 32 samples the 99th percentile is the slowest one
+        assertEquals(900 * OperationTimeouts.FACTOR, timeouts.getTimeout(OperationType.CHAR_READ));
+    }
+
+    @Test
+    public void samplesOutsideTheWindow_areForgotten() {
+        complete(OperationType.CHAR_READ, 1, 900);
+        complete(OperationType.CHAR_READ, OperationTimeouts.WINDOW_SIZE - 1, 400);
+        assertEquals(900 * OperationTimeouts.FACTOR, timeouts.getTimeout(OperationType.CHAR_READ));
+
+        complete(OperationType.CHAR_READ, 1, 400);
+        assertEquals(400 * OperationTimeouts.FACTOR, timeouts.getTimeout(OperationType.CHAR_READ));
+    }
+
+    @Test
+    public void attributeTimeout_isAtLeastOneSecond() {
+        complete(OperationType.DESC_WRITE, OperationTimeouts.MIN_SAMPLES, 20);
+
+        assertEquals(OperationTimeouts.MIN_TIMEOUT, timeouts.getTimeout(OperationType.DESC_WRITE));
+        assertEquals(1000, OperationTimeouts.MIN_TIMEOUT);
+    }
+
+    @Test
+    public void connectionTimeout_isAtLeastFiveSeconds() {
+        complete(OperationType.MTU, OperationTimeouts.MIN_SAMPLES, 20);
+        complete(OperationType.DISCOVER_SERVICES, OperationTimeouts.MIN_SAMPLES, 1000);
+
+        assertEquals(OperationTimeouts.MIN_CONNECTION_TIMEOUT, timeouts.getTimeout(OperationType.MTU));
+        assertEquals(OperationTimeouts.MIN_CONNECTION_TIMEOUT, timeouts.getTimeout(OperationType.DISCOVER_SERVICES));
+        assertEquals(5000, OperationTimeouts.MIN_CONNECTION_TIMEOUT);
+    }
+
+    @Test
+    public void timeout_isAtMostOpTimeout() {
+        complete(OperationType.CHAR_WRITE, OperationTimeouts.MIN_SAMPLES, 20000);
+
+        assertEquals(GattOperation.OP_TIMEOUT, timeouts.getTimeout(OperationType.CHAR_WRITE));
+    }
+
+    @Test
+    public void timedOutOperation_raisesTheTimeout() {
+        complete(OperationType.CHAR_WRITE, OperationTimeouts.MIN_SAMPLES, 500);
+        timeouts.onTimedOut(OperationType.CHAR_WRITE, 1500);
+
+        assertEquals(1500 * OperationTimeouts.FACTOR, timeouts.getTimeout(OperationType.CHAR_WRITE));
+    }
+
+    @Test
+    public void types_adaptSeparately() {
+        complete(OperationType.CHAR_WRITE, OperationTimeouts.MIN_SAMPLES, 500);
+
+        assertEquals(GattOperation.OP_TIMEOUT, timeouts.getTimeout(OperationType.CHAR_READ));
+    }
+
+    @Test
+    public void override_fixesTheTimeout() {
+        timeouts.setOverride(OperationType.CHAR_WRITE, 7000);
+        complete(OperationType.CHAR_WRITE, OperationTimeouts.MIN_SAMPLES, 500);
+        assertEquals(7000, timeouts.getTimeout(OperationType.CHAR_WRITE));
+
+        timeouts.setOverride(OperationType.CHAR_WRITE, 0);
+        assertEquals(500 * OperationTimeouts.FACTOR, timeouts.getTimeout(OperationType.CHAR_WRITE));
+    }
+
+    @Test
+    public void unknownType_getsOpTimeout() {
+        timeouts.onCompleted(null, 100);
+
+        assertEquals(GattOperation.OP_TIMEOUT, timeouts.getTimeout(null));
+    }
+
+    private void complete(OperationType type, int count, long latency) {
+        for (int i = 0; i < count; i++) {
+            timeouts.onCompleted(type, latency);
+        }
+    }
+}
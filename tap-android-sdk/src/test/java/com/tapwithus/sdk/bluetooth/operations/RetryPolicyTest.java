@@ -0,0 +1,81 @@
+package com.tapwithus.sdk.bluetooth.operations;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void defaultPolicy_triesThreeTimes() {
+        assertTrue(RetryPolicy.DEFAULT.shouldRetry(1));
+        assertTrue(RetryPolicy.DEFAULT.shouldRetry(2));
+        assertFalse(RetryPolicy.DEFAULT.shouldRetry(3));
+    }
+
+    @Test
+    public void nonePolicy_neverRetries() {
+        assertFalse(RetryPolicy.NONE.shouldRetry(1));
+        assertEquals(0, RetryPolicy.NONE.getDelay(1));
+    }
+
+    @Test
+    public void maxAttempts_isAtLeastOne() {
+        RetryPolicy policy = new RetryPolicy(0, 100, 1000);
+
+        assertEquals(1, policy.getMaxAttempts());
+        assertFalse(policy.shouldRetry(1));
+    }
+
+    @Test
+    public void delay_isBetweenHalfAndAllOfTheBackoff() {
+        RetryPolicy policy = new RetryPolicy(10, 100, 2000, new Random(42));
+        long[] backoffs = {100, 200, 400, 800, 1600, 2000, 2000};
+
+        for (int i = 0; i < 1000; i++) {
+            for (int attempt = 1; attempt <= backoffs.length; attempt++) {
+                long backoff = backoffs[attempt - 1];
+                long delay = policy.getDelay(attempt);
+                assertTrue("attempt " + attempt + " waited " + delay, delay >= backoff / 2 && delay <= backoff);
+            }
+        }
+    }
+
+    @Test
+    public void delay_isSpreadOverTheRange() {
+        RetryPolicy policy = new RetryPolicy(3, 1000, 1000, new Random(7));
+        long min = Long.MAX_VALUE;
+        long max = 0;
+
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.getDelay(1);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+
+        assertTrue(min < 550);
+        assertTrue(max > 950);
+    }
+
+    @Test
+    public void delay_ofLateAttempt_isCapped() {
+        RetryPolicy policy = new RetryPolicy(100, 100, 2000, new Random(1));
+
+        assertTrue(policy.getDelay(64) <= 2000);
+        assertTrue(policy.getDelay(64) >= 1000);
+    }
+
+    @Test
+    public void seededPolicies_waitTheSame() {
+        RetryPolicy a = new RetryPolicy(3, 100, 2000, new Random(3));
+        RetryPolicy b = new RetryPolicy(3, 100, 2000, new Random(3));
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            assertEquals(a.getDelay(attempt), b.getDelay(attempt));
+        }
+    }
+}
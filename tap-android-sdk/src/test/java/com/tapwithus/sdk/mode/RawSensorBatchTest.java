@@ -0,0 +1,79 @@
+package com.tapwithus.sdk.mode;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class RawSensorBatchTest {
+
+    private RawSensorBatch batch;
+
+    @Before
+    public void setUp() {
+        batch = new RawSensorBatch();
+    }
+
+    @Test
+    public void interleavedSamples_keepTheirOrder() {
+        imu(10, 1);
+        device(20, 2);
+        imu(30, 3);
+
+        assertEquals(3, batch.size());
+        assertEquals(10, batch.getTimestamps()[0]);
+        assertEquals(20, batch.getTimestamps()[1]);
+        assertEquals(30, batch.getTimestamps()[2]);
+        assertSame(RawSensorData.DataType.IMU, batch.getDataTypes()[0]);
+        assertSame(RawSensorData.DataType.Device, batch.getDataTypes()[1]);
+        assertSame(RawSensorData.DataType.IMU, batch.getDataTypes()[2]);
+        assertEquals(3, batch.getGyroX()[batch.getValueIndices()[2]], 0);
+        assertEquals(2, batch.getDeviceAccelX()[batch.getValueIndices()[1] * RawSensorBatch.DEVICE_POINTS + RawSensorData.iDEV_INDEX], 0);
+    }
+
+    @Test
+    public void growingBatch_keepsEarlierSamples() {
+        for (int i = 0; i < 40; i++) {
+            if (i % 3 == 0) {
+                device(i, i);
+            } else {
+                imu(i, i);
+            }
+        }
+
+        assertEquals(40, batch.size());
+        assertEquals(14, batch.getDeviceCount());
+        for (int i = 0; i < 40; i++) {
+            assertEquals(i, batch.getTimestamps()[i]);
+        }
+        assertEquals(38, batch.getGyroX()[batch.getValueIndices()[38]], 0);
+    }
+
+    @Test
+    public void copy_isTrimmedAndDetached() {
+        imu(10, 1);
+        device(20, 2);
+        RawSensorBatch copy = batch.copy();
+        batch.clear();
+        imu(30, 3);
+
+        assertEquals(2, copy.size());
+        assertEquals(2, copy.getTimestamps().length);
+        assertEquals(20, copy.getTimestamps()[1]);
+        assertEquals(1, batch.size());
+    }
+
+    private void imu(int timestamp, double value) {
+        batch.onSample(0, timestamp, RawSensorData.DataType.IMU);
+        batch.onPoint(0, RawSensorData.iIMU_GYRO, value, value, value);
+        batch.onPoint(0, RawSensorData.iIMU_ACCELEROMETER, value, value, value);
+    }
+
+    private void device(int timestamp, double value) {
+        batch.onSample(0, timestamp, RawSensorData.DataType.Device);
+        for (int point = 0; point < RawSensorBatch.DEVICE_POINTS; point++) {
+            batch.onPoint(0, point, value, value, value);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.tapwithus.sdk.mode;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RawSensorStreamParserTest {
+
+    private static final int IMU_RECORD_LENGTH = 16;
+    private static final int DEVICE_RECORD_LENGTH = 34;
+
+    private RawSensorStreamParser parser;
+    private final List<Integer> timestamps = new ArrayList<>();
+
+    private final RawSensorDataSink sink = new RawSensorDataSink() {
+        @Override
+        public void onSample(int sampleIndex, int timestamp, @NonNull RawSensorData.DataType dataType) {
+            timestamps.add(timestamp);
+        }
+
+        @Override
+        public void onPoint(int sampleIndex, int pointIndex, double x, double y, double z) {
+        }
+    };
+
+    @Before
+    public void setUp() {
+        parser = new RawSensorStreamParser();
+        timestamps.clear();
+    }
+
+    @Test
+    public void wholeRecords_areDecoded() {
+        assertEquals(2, parse(concat(imu(100), imu(110))));
+        assertTimestamps(100, 110);
+        assertEquals(0, parser.getCarriedBytes());
+    }
+
+    @Test
+    public void recordEndingAtNotificationEnd_isDecoded() {
+        assertEquals(1, parse(imu(100)));
+        assertTimestamps(100);
+        assertEquals(0, parser.getCarriedBytes());
+    }
+
+    @Test
+    public void splitRecord_isCompletedWithNextNotification() {
+        byte[] b = imu(110);
+        parse(concat(imu(100), head(b, 10)));
+        parse(concat(tail(b, 10), imu(120)));
+
+        assertTimestamps(100, 110, 120);
+        assertEquals(10, parser.getCarriedBytes());
+        assertEquals(0, parser.getResyncedBytes());
+    }
+
+    @Test
+    public void splitRecord_spanningThreeNotifications_isCountedOnce() {
+        byte[] b = imu(110);
+        parse(concat(imu(100), head(b, 2)));
+        parse(range(b, 2, 8));
+        parse(concat(tail(b, 8), imu(120)));
+
+        assertTimestamps(100, 110, 120);
+        assertEquals(8, parser.getCarriedBytes());
+    }
+
+    @Test
+    public void freshNotification_dropsCarry() {
+        parse(concat(imu(100), head(imu(110), 10)));
+        parse(concat(imu(120), imu(130)));
+
+        assertTimestamps(100, 120, 130);
+        assertEquals(10, parser.getResyncedBytes());
+    }
+
+    @Test
+    public void freshNotification_doesNotBreakLaterCarries() {
+        parse(concat(imu(100), head(imu(110), 10)));
+        byte[] d = imu(130);
+        parse(concat(imu(120), head(d, 10)));
+        parse(concat(tail(d, 10), imu(140)));
+
+        assertTimestamps(100, 120, 130, 140);
+        assertEquals(10, parser.getResyncedBytes());
+    }
+
+    @Test
+    public void carryGoingBackInTime_isDropped() {
+        parse(imu(100));
+        byte[] old = imu(50);
+        parse(head(old, 10));
+        parse(concat(imu(110), imu(120)));
+
+        assertTimestamps(100, 110, 120);
+        assertEquals(10, parser.getResyncedBytes());
+    }
+
+    @Test
+    public void zeroPadding_isIgnored() {
+        parse(concat(imu(100), new byte[6]));
+
+        assertTimestamps(100);
+        assertEquals(0, parser.getCarriedBytes());
+        assertEquals(0, parser.getDiscardedBytes());
+    }
+
+    @Test
+    public void bytesAfterTerminatingRecord_areDiscarded() {
+        parse(concat(imu(100), device(0), imu(110)));
+
+        assertTimestamps(100, 0);
+        assertEquals(IMU_RECORD_LENGTH, parser.getDiscardedBytes());
+    }
+
+    @Test
+    public void reset_discardsCarry() {
+        parse(concat(imu(100), head(imu(110), 10)));
+        parser.reset();
+        parse(imu(120));
+
+        assertTimestamps(100, 120);
+        assertEquals(10, parser.getDiscardedBytes());
+        assertEquals(0, parser.getResyncedBytes());
+    }
+
+    private int parse(byte[] data) {
+        return parser.parse(data, 0, data.length, (byte) 0, (byte) 0, (byte) 0, sink);
+    }
+
+    private void assertTimestamps(int... expected) {
+        assertEquals(expected.length, timestamps.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], (int) timestamps.get(i));
+        }
+    }
+
+    /**
+     * An IMU record whose points are all 3, so sample data read as a meta word gives a large timestamp.
+     */
+    private static byte[] imu(int timestamp) {
+        return record(IMU_RECORD_LENGTH, timestamp);
+    }
+
+    private static byte[] device(int timestamp) {
+        return record(DEVICE_RECORD_LENGTH, timestamp | 0x80000000);
+    }
+
+    private static byte[] record(int length, int meta) {
+        byte[] record = new byte[length];
+        record[0] = (byte) meta;
+        record[1] = (byte) (meta >> 8);
+        record[2] = (byte) (meta >> 16);
+        record[3] = (byte) (meta >> 24);
+        for (int i = 4; i < record.length; i += 2) {
+            record[i] = 3;
+        }
+        return record;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] head(byte[] data, int length) {
+        return range(data, 0, length);
+    }
+
+    private static byte[] tail(byte[] data, int from) {
+        return range(data, from, data.length);
+    }
+
+    private static byte[] range(byte[] data, int from, int to) {
+        byte[] result = new byte[to - from];
+        System.arraycopy(data, from, result, 0, result.length);
+        return result;
+    }
+}
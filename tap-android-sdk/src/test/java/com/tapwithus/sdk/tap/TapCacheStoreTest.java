@@ -0,0 +1,161 @@
+package com.tapwithus.sdk.tap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TapCacheStoreTest {
+
+    private static final String ADDRESS = "AA:BB:CC:DD:EE:FF";
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("tap-cache").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void savedRecord_isLoadedFromFile() throws Exception {
+        TapCacheStore store = new TapCacheStore(directory);
+        store.save(ADDRESS, values("serial", "2.1.0"));
+        store.awaitPendingWrites();
+
+        Map<String, String> loaded = new TapCacheStore(directory).load(ADDRESS);
+
+        assertEquals(values("serial", "2.1.0"), loaded);
+    }
+
+    @Test
+    public void valuesThatAreNotPersisted_areSkipped() throws Exception {
+        TapCacheStore store = new TapCacheStore(directory);
+        Map<String, String> values = values("serial", "2.1.0");
+        values.put(TapCache.DataKey.Battery, "80");
+        store.save(ADDRESS, values);
+        store.awaitPendingWrites();
+
+        Map<String, String> loaded = new TapCacheStore(directory).load(ADDRESS);
+
+        assertFalse(loaded.containsKey(TapCache.DataKey.Battery));
+        assertEquals(values("serial", "2.1.0"), loaded);
+    }
+
+    @Test
+    public void recordWithoutSerialNumber_isNotSaved() throws Exception {
+        TapCacheStore store = new TapCacheStore(directory);
+        Map<String, String> values = values("serial", "2.1.0");
+        values.remove(TapCache.DataKey.SerialNumber);
+        store.save(ADDRESS, values);
+        store.awaitPendingWrites();
+
+        assertNull(store.load(ADDRESS));
+        assertNull(new TapCacheStore(directory).load(ADDRESS));
+    }
+
+    @Test
+    public void deletedRecord_isGone() throws Exception {
+        TapCacheStore store = new TapCacheStore(directory);
+        store.save(ADDRESS, values("serial", "2.1.0"));
+        store.delete(ADDRESS);
+        store.awaitPendingWrites();
+
+        assertNull(store.load(ADDRESS));
+        assertNull(new TapCacheStore(directory).load(ADDRESS));
+    }
+
+    @Test
+    public void unknownFile_isIgnored() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(new File(directory, "AABBCCDDEEFF.bin"))) {
+            out.write(new byte[] {1, 2, 3, 4, 5});
+        }
+
+        assertNull(new TapCacheStore(directory).load(ADDRESS));
+    }
+
+    @Test
+    public void restoredValues_ofAnotherTap_areInvalidated() throws Exception {
+        TapCacheStore store = new TapCacheStore(directory);
+        store.save(ADDRESS, values("serial", "2.1.0"));
+        TapCache cache = new TapCache();
+        cache.setStore(store);
+
+        assertTrue(cache.restore(ADDRESS));
+        cache.onFwVerRead(ADDRESS, "2.1.0");
+        cache.onSerialNumberRead(ADDRESS, "other");
+        store.awaitPendingWrites();
+
+        assertFalse(cache.isRestored(ADDRESS, TapCache.DataKey.Name));
+        assertFalse(cache.has(ADDRESS, TapCache.DataKey.Name));
+        assertFalse(cache.has(ADDRESS, TapCache.DataKey.HwVer));
+        Map<String, String> expected = new HashMap<>();
+        expected.put(TapCache.DataKey.SerialNumber, "other");
+        expected.put(TapCache.DataKey.FwVer, "2.1.0");
+        assertEquals(expected, new TapCacheStore(directory).load(ADDRESS));
+    }
+
+    @Test
+    public void restoredValues_ofTheSameTap_areKept() throws Exception {
+        TapCacheStore store = new TapCacheStore(directory);
+        store.save(ADDRESS, values("serial", "2.1.0"));
+        TapCache cache = new TapCache();
+        cache.setStore(store);
+
+        cache.restore(ADDRESS);
+        cache.onFwVerRead(ADDRESS, "2.1.0");
+        cache.onSerialNumberRead(ADDRESS, "serial");
+        store.awaitPendingWrites();
+
+        assertTrue(cache.isRestored(ADDRESS, TapCache.DataKey.Name));
+        assertEquals("Tap", cache.getFromCache(ADDRESS).get(TapCache.DataKey.Name));
+        assertEquals(values("serial", "2.1.0"), new TapCacheStore(directory).load(ADDRESS));
+    }
+
+    @Test
+    public void restoredValues_ofAnotherFirmware_areInvalidated() throws Exception {
+        TapCacheStore store = new TapCacheStore(directory);
+        store.save(ADDRESS, values("serial", "2.1.0"));
+        TapCache cache = new TapCache();
+        cache.setStore(store);
+
+        cache.restore(ADDRESS);
+        cache.onFwVerRead(ADDRESS, "2.2.0");
+        store.awaitPendingWrites();
+
+        assertFalse(cache.has(ADDRESS, TapCache.DataKey.Name));
+        assertFalse(cache.has(ADDRESS, TapCache.DataKey.SerialNumber));
+        assertNull(new TapCacheStore(directory).load(ADDRESS));
+    }
+
+    private static Map<String, String> values(String serialNumber, String fwVer) {
+        Map<String, String> values = new HashMap<>();
+        values.put(TapCache.DataKey.Name, "Tap");
+        values.put(TapCache.DataKey.HwVer, "3");
+        values.put(TapCache.DataKey.BootloaderVer, "1.0");
+        values.put(TapCache.DataKey.SerialNumber, serialNumber);
+        values.put(TapCache.DataKey.FwVer, fwVer);
+        return values;
+    }
+}